@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Issues the requests of the wrapped {@link RestRequest} on an executor and returns futures
+ * for their results. Requests beyond the number of executor threads are queued, so the number
+ * of requests in flight is independent of the number of calling threads.
+ */
+public class AsyncRestRequest {
+
+    private final RestRequest restRequest;
+    private final ExecutorService executor;
+
+    public AsyncRestRequest(RestRequest restRequest, ExecutorService executor) {
+        this.restRequest = restRequest;
+        this.executor = executor;
+    }
+
+    public Future<RequestResult> get(final String path) {
+        return executor.submit(Deadline.bind(new Callable<RequestResult>() {
+            public RequestResult call() throws Exception {
+                return restRequest.get(path);
+            }
+        }));
+    }
+
+    public Future<RequestResult> get(final String path, final Object data) {
+        return executor.submit(Deadline.bind(new Callable<RequestResult>() {
+            public RequestResult call() throws Exception {
+                return restRequest.get(path, data);
+            }
+        }));
+    }
+
+    public Future<RequestResult> delete(final String path) {
+        return executor.submit(Deadline.bind(new Callable<RequestResult>() {
+            public RequestResult call() throws Exception {
+                return restRequest.delete(path);
+            }
+        }));
+    }
+
+    public Future<RequestResult> post(final String path, final Object data) {
+        return executor.submit(Deadline.bind(new Callable<RequestResult>() {
+            public RequestResult call() throws Exception {
+                return restRequest.post(path, data);
+            }
+        }));
+    }
+
+    public Future<RequestResult> put(final String path, final Object data) {
+        return executor.submit(Deadline.bind(new Callable<RequestResult>() {
+            public RequestResult call() throws Exception {
+                return restRequest.put(path, data);
+            }
+        }));
+    }
+
+    public AsyncRestRequest with(String uri) {
+        return new AsyncRestRequest(restRequest.with(uri), executor);
+    }
+
+    public String getUri() {
+        return restRequest.getUri();
+    }
+
+    public RestRequest getRestRequest() {
+        return restRequest;
+    }
+}
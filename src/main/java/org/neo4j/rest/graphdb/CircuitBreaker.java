@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the consecutive failures of one endpoint. After the threshold is reached the breaker opens and rejects
+ * requests until the reset timeout passed, then a single trial request is let through (half open) whose outcome
+ * closes or re-opens the breaker.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String endpoint;
+    private final int failureThreshold;
+    private final long resetTimeoutNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long opened;
+    private long rejected;
+
+    public CircuitBreaker(String endpoint, int failureThreshold, long resetTimeoutMillis) {
+        this.endpoint = endpoint;
+        this.failureThreshold = failureThreshold;
+        this.resetTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(resetTimeoutMillis);
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= resetTimeoutNanos) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) return true;
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Ends a request whose outcome says nothing about the health of the endpoint.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) opened++;
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+        trialInFlight = false;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return how often the breaker opened
+     */
+    public synchronized long getOpened() {
+        return opened;
+    }
+
+    /**
+     * @return number of requests rejected while open
+     */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CircuitBreaker{%s %s, failures=%d, opened=%d, rejected=%d}", endpoint, state, consecutiveFailures, opened, rejected);
+    }
+}
@@ -0,0 +1,320 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import org.neo4j.rest.graphdb.util.Config;
+import org.neo4j.rest.graphdb.util.DaemonThreadFactory;
+
+/**
+ * Sends writes (PUT, DELETE, POST, batch and updating cypher) to the master of a HA cluster and spreads reads
+ * (GET, read only cypher, traversals and path finding) over the replicas. Of two randomly picked healthy replicas
+ * the one with the lower latency (EWMA of the response times weighted by the requests in flight) is used. Replicas
+ * that fail are ejected until the periodic health check succeeds again, without healthy replicas reads go to the master.
+ * <p/>
+ * Reads from replicas are eventually consistent, an entity written on the master may not be visible on a replica yet.
+ */
+public class ClusterRestRequest implements RestRequest {
+    private static final Pattern ABSOLUTE = Pattern.compile("^https?://.*");
+    private static final double EWMA_WEIGHT = 0.3;
+
+    private final Member master;
+    private final List<Member> replicas;
+    private final ScheduledExecutorService healthChecker;
+    private final Random random;
+    private final String path;
+
+    public ClusterRestRequest(String masterUri, Collection<String> replicaUris) {
+        this(masterUri, replicaUris, null, null);
+    }
+
+    public ClusterRestRequest(String masterUri, Collection<String> replicaUris, String username, String password) {
+        this.master = new Member(createRestRequest(masterUri, username, password));
+        final List<Member> members = new ArrayList<Member>(replicaUris.size());
+        for (String replicaUri : replicaUris) {
+            members.add(new Member(createRestRequest(replicaUri, username, password)));
+        }
+        this.replicas = Collections.unmodifiableList(members);
+        this.random = new Random();
+        this.path = "";
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("neo4j-rest-health-check"));
+        final long interval = Config.getHealthCheckInterval();
+        healthChecker.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                checkHealth();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private ClusterRestRequest(ClusterRestRequest parent, String path) {
+        this.master = parent.master;
+        this.replicas = parent.replicas;
+        this.healthChecker = parent.healthChecker;
+        this.random = parent.random;
+        this.path = path;
+    }
+
+    protected RestRequest createRestRequest(String uri, String username, String password) {
+        return new ExecutingRestRequest(uri, username, password);
+    }
+
+    @Override
+    public RequestResult get(String path) {
+        return execute(RequestMethod.GET, resolve(path), null);
+    }
+
+    @Override
+    public RequestResult get(String path, Object data) {
+        return execute(RequestMethod.GET, resolve(path), data);
+    }
+
+    @Override
+    public RequestResult delete(String path) {
+        return execute(RequestMethod.DELETE, resolve(path), null);
+    }
+
+    @Override
+    public RequestResult post(String path, Object data) {
+        return execute(RequestMethod.POST, resolve(path), data);
+    }
+
+    @Override
+    public RequestResult put(String path, Object data) {
+        return execute(RequestMethod.PUT, resolve(path), data);
+    }
+
+    private RequestResult execute(RequestMethod method, String target, Object data) {
+        if (!isRead(method, target, data)) {
+            return master.execute(method, target, data);
+        }
+        final Member replica = selectReplica(null);
+        if (replica == null) {
+            return master.execute(method, target, data);
+        }
+        try {
+            return replica.execute(method, target, data);
+        } catch (DeadlineExceededException e) {
+            throw e;
+        } catch (ClientHandlerException e) {
+            final Member other = selectReplica(replica);
+            return (other != null ? other : master).execute(method, target, data);
+        }
+    }
+
+    private boolean isRead(RequestMethod method, String target, Object data) {
+        if (ReadOnlyRequests.isPaged(target)) return false;
+        if (method == RequestMethod.GET) return true;
+        return method == RequestMethod.POST && ReadOnlyRequests.isReadOnlyPost(target, data);
+    }
+
+    /**
+     * power of two choices, the replica with the lower latency score of two random healthy replicas
+     */
+    private Member selectReplica(Member excluded) {
+        final List<Member> candidates = new ArrayList<Member>(replicas.size());
+        for (Member replica : replicas) {
+            if (replica.isHealthy() && replica != excluded) candidates.add(replica);
+        }
+        final int size = candidates.size();
+        if (size == 0) return null;
+        if (size == 1) return candidates.get(0);
+        final int first = random.nextInt(size);
+        final int second = (first + 1 + random.nextInt(size - 1)) % size;
+        final Member a = candidates.get(first);
+        final Member b = candidates.get(second);
+        return a.getScore() <= b.getScore() ? a : b;
+    }
+
+    /**
+     * Turns absolute uris of any cluster member into paths relative to the members base uri, so that entities
+     * loaded from one instance can be accessed on another.
+     */
+    private String resolve(String path) {
+        if (ABSOLUTE.matcher(path).matches()) {
+            final String relative = relativize(path);
+            return relative != null ? relative : path;
+        }
+        if (this.path.length() == 0) return path;
+        if (path.length() == 0) return this.path;
+        return this.path + "/" + path;
+    }
+
+    private String relativize(String uri) {
+        for (Member member : getMembers()) {
+            final String base = member.getUri();
+            if (uri.equals(base)) return "";
+            if (uri.startsWith(base + "/")) return uri.substring(base.length() + 1);
+        }
+        return null;
+    }
+
+    void checkHealth() {
+        for (Member member : getMembers()) {
+            member.checkHealth();
+        }
+    }
+
+    @Override
+    public RestRequest with(String uri) {
+        final String relative = ABSOLUTE.matcher(uri).matches() ? relativize(uri) : resolve(uri);
+        if (relative == null) return master.restRequest.with(uri);
+        return new ClusterRestRequest(this, relative.endsWith("/") ? relative.substring(0, relative.length() - 1) : relative);
+    }
+
+    @Override
+    public String getUri() {
+        return path.length() == 0 ? master.getUri() : master.getUri() + "/" + path;
+    }
+
+    @Override
+    public Map<?, ?> toMap(RequestResult requestResult) {
+        return requestResult.toMap();
+    }
+
+    public Member getMaster() {
+        return master;
+    }
+
+    public List<Member> getReplicas() {
+        return replicas;
+    }
+
+    private List<Member> getMembers() {
+        final List<Member> members = new ArrayList<Member>(replicas.size() + 1);
+        members.add(master);
+        members.addAll(replicas);
+        return members;
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        for (Member member : getMembers()) {
+            member.restRequest.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterRestRequest{master=" + master + ", replicas=" + replicas + "}";
+    }
+
+    public static class Member {
+        private final RestRequest restRequest;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong ejections = new AtomicLong();
+        private volatile boolean healthy = true;
+        private double latencyMicros;
+
+        Member(RestRequest restRequest) {
+            this.restRequest = restRequest;
+        }
+
+        RequestResult execute(RequestMethod method, String path, Object data) {
+            inFlight.incrementAndGet();
+            final long start = System.nanoTime();
+            try {
+                final RequestResult result = method.execute(restRequest, path, data);
+                recordLatency(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                return result;
+            } catch (DeadlineExceededException e) {
+                throw e;
+            } catch (ClientHandlerException e) {
+                eject();
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+                requests.incrementAndGet();
+            }
+        }
+
+        void checkHealth() {
+            try {
+                final RequestResult result = restRequest.get("");
+                result.close();
+                if (result.getStatus() == 200) {
+                    healthy = true;
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // fall through
+            }
+            eject();
+        }
+
+        private void eject() {
+            if (healthy) {
+                healthy = false;
+                ejections.incrementAndGet();
+            }
+        }
+
+        private synchronized void recordLatency(long micros) {
+            latencyMicros = latencyMicros == 0 ? micros : latencyMicros + EWMA_WEIGHT * (micros - latencyMicros);
+        }
+
+        double getScore() {
+            return getLatencyMicros() * (inFlight.get() + 1);
+        }
+
+        public synchronized double getLatencyMicros() {
+            return latencyMicros;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public String getUri() {
+            return restRequest.getUri();
+        }
+
+        public long getRequests() {
+            return requests.get();
+        }
+
+        public long getEjections() {
+            return ejections.get();
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{healthy=%s, requests=%d, latency=%.0fus, ejections=%d}", getUri(), healthy, getRequests(), getLatencyMicros(), getEjections());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Lets concurrent identical GET requests share a single HTTP exchange. A GET for an uri that is already in flight
+ * waits for the running request and returns the same {@link RequestResult}, whose body is read once and shared as
+ * text, each caller decodes it (or reuses what {@link RequestResult#toEntity()} decoded). Only requests that overlap
+ * are collapsed, nothing is cached after the request finished. A GET that joins a request started before a
+ * concurrent write completed may not see that write.
+ */
+public class CoalescingRestRequest implements RestRequest {
+    private static final Pattern ABSOLUTE = Pattern.compile("^https?://.*");
+
+    private final RestRequest restRequest;
+    private final ConcurrentMap<String, FutureTask<RequestResult>> inFlight;
+    private final AtomicLong executed;
+    private final AtomicLong collapsed;
+
+    public CoalescingRestRequest(RestRequest restRequest) {
+        this.restRequest = restRequest;
+        this.inFlight = new ConcurrentHashMap<String, FutureTask<RequestResult>>();
+        this.executed = new AtomicLong();
+        this.collapsed = new AtomicLong();
+    }
+
+    private CoalescingRestRequest(RestRequest restRequest, CoalescingRestRequest parent) {
+        this.restRequest = restRequest;
+        this.inFlight = parent.inFlight;
+        this.executed = parent.executed;
+        this.collapsed = parent.collapsed;
+    }
+
+    @Override
+    public RequestResult get(final String path) {
+        final String key = ABSOLUTE.matcher(path).matches() ? path : restRequest.getUri() + "/" + path;
+        final FutureTask<RequestResult> task = new FutureTask<RequestResult>(new Callable<RequestResult>() {
+            public RequestResult call() throws Exception {
+                final RequestResult result = restRequest.get(path);
+                // a streamed body can only be read once, read it for all waiting callers
+                result.getText();
+                return result;
+            }
+        });
+        final FutureTask<RequestResult> running = inFlight.putIfAbsent(key, task);
+        if (running != null) {
+            collapsed.incrementAndGet();
+            return await(running);
+        }
+        try {
+            executed.incrementAndGet();
+            task.run();
+        } finally {
+            inFlight.remove(key, task);
+        }
+        return await(task);
+    }
+
+    private RequestResult await(FutureTask<RequestResult> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for coalesced request", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    @Override
+    public RequestResult get(String path, Object data) {
+        if (data == null) return get(path);
+        return restRequest.get(path, data);
+    }
+
+    @Override
+    public RequestResult delete(String path) {
+        return restRequest.delete(path);
+    }
+
+    @Override
+    public RequestResult post(String path, Object data) {
+        return restRequest.post(path, data);
+    }
+
+    @Override
+    public RequestResult put(String path, Object data) {
+        return restRequest.put(path, data);
+    }
+
+    @Override
+    public RestRequest with(String uri) {
+        return new CoalescingRestRequest(restRequest.with(uri), this);
+    }
+
+    @Override
+    public String getUri() {
+        return restRequest.getUri();
+    }
+
+    @Override
+    public Map<?, ?> toMap(RequestResult requestResult) {
+        return restRequest.toMap(requestResult);
+    }
+
+    @Override
+    public void close() {
+        restRequest.close();
+    }
+
+    public RestRequest getRestRequest() {
+        return restRequest;
+    }
+
+    /**
+     * @return number of GET requests that were sent to the server
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * @return number of GET requests that were answered by a request already in flight
+     */
+    public long getCollapsed() {
+        return collapsed.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CoalescingRestRequest{executed=%d, collapsed=%d}", getExecuted(), getCollapsed());
+    }
+}
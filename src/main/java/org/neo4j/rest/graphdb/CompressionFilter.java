@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.sun.jersey.api.client.AbstractClientRequestAdapter;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientRequestAdapter;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Negotiates gzip/deflate compressed responses and gzips request bodies that are larger than the
+ * configured threshold. Counts the body bytes before and after compression in both directions.
+ */
+public class CompressionFilter extends ClientFilter {
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    private final boolean acceptCompressed;
+    private final int requestThreshold;
+
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong requestBytesOnWire = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLong responseBytesOnWire = new AtomicLong();
+    private final AtomicLong compressedRequests = new AtomicLong();
+    private final AtomicLong compressedResponses = new AtomicLong();
+
+    /**
+     * @param acceptCompressed send Accept-Encoding: gzip, deflate
+     * @param requestThreshold gzip request bodies larger than this many bytes, negative to never compress requests
+     */
+    public CompressionFilter(boolean acceptCompressed, int requestThreshold) {
+        this.acceptCompressed = acceptCompressed;
+        this.requestThreshold = requestThreshold;
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+        if (acceptCompressed) {
+            request.getHeaders().putSingle("Accept-Encoding", "gzip, deflate");
+        }
+        if (request.getEntity() != null) {
+            request.setAdapter(new RequestAdapter(request.getAdapter()));
+        }
+        final ClientResponse response = getNext().handle(request);
+        decode(response);
+        return response;
+    }
+
+    private void decode(ClientResponse response) {
+        if (!response.hasEntity()) return;
+        final String encoding = response.getHeaders().getFirst(CONTENT_ENCODING);
+        final InputStream wire = new CountingInputStream(response.getEntityInputStream(), responseBytesOnWire);
+        try {
+            InputStream decoded = wire;
+            if ("gzip".equalsIgnoreCase(encoding) || "x-gzip".equalsIgnoreCase(encoding)) {
+                decoded = new GZIPInputStream(wire);
+            } else if ("deflate".equalsIgnoreCase(encoding)) {
+                decoded = new InflaterInputStream(wire);
+            }
+            if (decoded != wire) {
+                response.getHeaders().remove(CONTENT_ENCODING);
+                compressedResponses.incrementAndGet();
+            }
+            response.setEntityInputStream(new CountingInputStream(decoded, responseBytes));
+        } catch (IOException e) {
+            throw new ClientHandlerException("Error decoding " + encoding + " response", e);
+        }
+    }
+
+    public long getRequestBytes() {
+        return requestBytes.get();
+    }
+
+    public long getRequestBytesOnWire() {
+        return requestBytesOnWire.get();
+    }
+
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    public long getResponseBytesOnWire() {
+        return responseBytesOnWire.get();
+    }
+
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompressionFilter{request bytes %d -> %d on wire (%d compressed), response bytes %d on wire -> %d (%d compressed)}",
+                getRequestBytes(), getRequestBytesOnWire(), getCompressedRequests(), getResponseBytesOnWire(), getResponseBytes(), getCompressedResponses());
+    }
+
+    private class RequestAdapter extends AbstractClientRequestAdapter {
+        RequestAdapter(ClientRequestAdapter adapter) {
+            super(adapter);
+        }
+
+        @Override
+        public OutputStream adapt(ClientRequest request, OutputStream out) throws IOException {
+            return new ThresholdOutputStream(request, getAdapter().adapt(request, out));
+        }
+    }
+
+    /**
+     * Buffers the body up to the threshold, the encoding is only decided (and the header set) before the first byte
+     * reaches the connection, which is when the request headers are committed.
+     */
+    private class ThresholdOutputStream extends OutputStream {
+        private final ClientRequest request;
+        private final OutputStream wire;
+        private ByteArrayOutputStream buffer;
+        private OutputStream out;
+
+        ThresholdOutputStream(ClientRequest request, OutputStream out) {
+            this.request = request;
+            this.wire = new CountingOutputStream(out, requestBytesOnWire);
+            if (requestThreshold < 0) {
+                this.out = wire;
+            } else {
+                this.buffer = new ByteArrayOutputStream(Math.min(requestThreshold, 8192));
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            requestBytes.addAndGet(length);
+            if (out == null) {
+                if (buffer.size() + length <= requestThreshold) {
+                    buffer.write(bytes, offset, length);
+                    return;
+                }
+                request.getHeaders().putSingle(CONTENT_ENCODING, "gzip");
+                compressedRequests.incrementAndGet();
+                out = new GZIPOutputStream(wire);
+                buffer.writeTo(out);
+                buffer = null;
+            }
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null) out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out == null) {
+                out = wire;
+                buffer.writeTo(out);
+                buffer = null;
+            }
+            out.close();
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private final AtomicLong counter;
+
+        CountingOutputStream(OutputStream out, AtomicLong counter) {
+            super(out);
+            this.counter = counter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            counter.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            counter.addAndGet(length);
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final AtomicLong counter;
+
+        CountingInputStream(InputStream in, AtomicLong counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = in.read();
+            if (b != -1) counter.incrementAndGet();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            final int read = in.read(bytes, offset, length);
+            if (read > 0) counter.addAndGet(read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = in.skip(n);
+            if (skipped > 0) counter.addAndGet(skipped);
+            return skipped;
+        }
+    }
+}
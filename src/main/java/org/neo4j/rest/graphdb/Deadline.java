@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.neo4j.rest.graphdb.util.DaemonThreadFactory;
+
+/**
+ * A time budget for the requests issued by the current thread, e.g. for all requests of a {@link RestAPI} operation
+ * or a query. While a deadline is entered the connect and read timeouts of each request are limited to the remaining
+ * time, requests are rejected once it passed and a request in flight is aborted when it expires or is cancelled
+ * (for the pooled connector the connection is closed, otherwise the limited read timeout ends the request).
+ * <pre>
+ * Deadline deadline = Deadline.after(200, TimeUnit.MILLISECONDS);
+ * Deadline.Scope scope = deadline.enter();
+ * try {
+ *     restAPI.getNodeById(id);
+ * } finally {
+ *     scope.exit();
+ * }
+ * </pre>
+ * {@link #cancel()} can be called from another thread.
+ */
+public class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("neo4j-rest-deadline"));
+
+    private final long deadlineNanos;
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<Runnable>();
+    private volatile boolean cancelled;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(long timeout, TimeUnit unit) {
+        return new Deadline(System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * @return the deadline entered by the current thread or null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public Scope enter() {
+        final Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(this);
+        return scope;
+    }
+
+    /**
+     * Runs the callable with this deadline entered, checked exceptions are wrapped in a RuntimeException.
+     */
+    public <T> T call(Callable<T> callable) {
+        final Scope scope = enter();
+        try {
+            return callable.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            scope.exit();
+        }
+    }
+
+    /**
+     * @return a callable that runs with the deadline of the current thread, for handing work to other threads
+     */
+    public static <T> Callable<T> bind(final Callable<T> callable) {
+        final Deadline deadline = current();
+        if (deadline == null) return callable;
+        return new Callable<T>() {
+            public T call() throws Exception {
+                final Scope scope = deadline.enter();
+                try {
+                    return callable.call();
+                } finally {
+                    scope.exit();
+                }
+            }
+        };
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return cancelled || deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Aborts the requests in flight under this deadline and rejects further ones.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Runnable hook : cancelHooks) {
+            hook.run();
+        }
+    }
+
+    /**
+     * @throws DeadlineExceededException if the deadline passed or was cancelled
+     */
+    public void check() {
+        if (cancelled) throw new DeadlineExceededException("Request cancelled");
+        if (isExpired()) throw new DeadlineExceededException("Deadline exceeded");
+    }
+
+    /**
+     * Runs the hook when the deadline expires or is cancelled, until the registration is removed.
+     */
+    Registration onExpiry(final Runnable hook) {
+        cancelHooks.add(hook);
+        final ScheduledFuture<?> timer = TIMER.schedule(hook, Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        return new Registration() {
+            public void remove() {
+                timer.cancel(false);
+                cancelHooks.remove(hook);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return cancelled ? "Deadline{cancelled}" : "Deadline{remaining=" + remainingMillis() + "ms}";
+    }
+
+    interface Registration {
+        void remove();
+    }
+
+    public static class Scope {
+        private final Deadline previous;
+
+        private Scope(Deadline previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * Restores the deadline that was entered before.
+         */
+        public void exit() {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+}
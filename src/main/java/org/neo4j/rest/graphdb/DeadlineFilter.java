@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Applies the {@link Deadline} of the current thread to the requests of a client: the timeouts are limited to
+ * the remaining time, the response body is only readable until the deadline and a pooled connection is aborted
+ * when the deadline expires or is cancelled while the request is in flight.
+ */
+public class DeadlineFilter extends ClientFilter {
+    private final PooledConnectionManager connectionManager;
+
+    /**
+     * @param connectionManager the pool whose connections are aborted, null for the unpooled connector
+     */
+    public DeadlineFilter(PooledConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+        final Deadline deadline = Deadline.current();
+        if (deadline == null) return getNext().handle(request);
+        deadline.check();
+        final int remaining = (int) Math.min(Integer.MAX_VALUE, Math.max(1, deadline.remainingMillis()));
+        limit(request.getProperties(), ClientConfig.PROPERTY_READ_TIMEOUT, remaining);
+        limit(request.getProperties(), ClientConfig.PROPERTY_CONNECT_TIMEOUT, remaining);
+
+        final PooledConnectionManager.Lease lease = new PooledConnectionManager.Lease();
+        final Deadline.Registration registration = deadline.onExpiry(new Runnable() {
+            public void run() {
+                if (connectionManager != null) connectionManager.abort(lease);
+            }
+        });
+        final ClientResponse response;
+        if (connectionManager != null) connectionManager.captureLeases(lease);
+        try {
+            response = getNext().handle(request);
+        } catch (ClientHandlerException e) {
+            registration.remove();
+            if (deadline.isExpired()) throw exceeded(deadline, e);
+            throw e;
+        } catch (RuntimeException e) {
+            registration.remove();
+            throw e;
+        } finally {
+            if (connectionManager != null) connectionManager.captureLeases(null);
+        }
+        if (!response.hasEntity()) {
+            registration.remove();
+            return response;
+        }
+        response.setEntityInputStream(new DeadlineInputStream(response.getEntityInputStream(), deadline, registration));
+        return response;
+    }
+
+    private void limit(Map<String, Object> properties, String property, int remaining) {
+        final Object timeout = properties.get(property);
+        if (timeout instanceof Integer && (Integer) timeout > 0 && (Integer) timeout < remaining) return;
+        properties.put(property, remaining);
+    }
+
+    private static DeadlineExceededException exceeded(Deadline deadline, Throwable cause) {
+        return new DeadlineExceededException(deadline.isCancelled() ? "Request cancelled" : "Deadline exceeded", cause);
+    }
+
+    /**
+     * Fails reads after the deadline, the registration is removed once the body was read or closed. An abort that
+     * races with the release at the end of the body is ignored by the {@link PooledConnectionManager.Lease}.
+     */
+    private static class DeadlineInputStream extends FilterInputStream {
+        private final Deadline deadline;
+        private final Deadline.Registration registration;
+        private boolean done;
+
+        DeadlineInputStream(InputStream in, Deadline deadline, Deadline.Registration registration) {
+            super(in);
+            this.deadline = deadline;
+            this.registration = registration;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!check()) return -1;
+            try {
+                return finished(in.read());
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (!check()) return -1;
+            try {
+                return finished(in.read(bytes, offset, length));
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+
+        private boolean check() {
+            if (done) return false;
+            if (deadline.isExpired()) {
+                finish();
+                throw exceeded(deadline, null);
+            }
+            return true;
+        }
+
+        private int finished(int read) {
+            if (read == -1) finish();
+            return read;
+        }
+
+        private IOException failed(IOException e) {
+            finish();
+            if (deadline.isExpired()) throw exceeded(deadline, e);
+            return e;
+        }
+
+        private void finish() {
+            if (done) return;
+            done = true;
+            registration.remove();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            super.close();
+        }
+    }
+}
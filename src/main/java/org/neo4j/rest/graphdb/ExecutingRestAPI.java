@@ -25,8 +25,10 @@ import org.neo4j.graphdb.traversal.TraversalDescription;
 import org.neo4j.helpers.collection.MapUtil;
 import org.neo4j.index.lucene.ValueContext;
 import org.neo4j.rest.graphdb.batch.BatchCallback;
+import org.neo4j.rest.graphdb.batch.BatchRequestEntity;
 import org.neo4j.rest.graphdb.batch.BatchRestAPI;
 import org.neo4j.rest.graphdb.converter.RelationshipIterableConverter;
+import org.neo4j.rest.graphdb.converter.RestEntityDecoder;
 import org.neo4j.rest.graphdb.converter.RestEntityExtractor;
 import org.neo4j.rest.graphdb.converter.RestIndexHitsConverter;
 import org.neo4j.rest.graphdb.entity.RestEntity;
@@ -37,6 +39,8 @@ import org.neo4j.rest.graphdb.index.RestIndex;
 import org.neo4j.rest.graphdb.index.RestIndexManager;
 import org.neo4j.rest.graphdb.index.RetrievedIndexInfo;
 import org.neo4j.rest.graphdb.index.SimpleIndexHits;
+import org.neo4j.rest.graphdb.query.ColumnarResult;
+import org.neo4j.rest.graphdb.query.ColumnarResultDecoder;
 import org.neo4j.rest.graphdb.query.RestGremlinQueryResult;
 import org.neo4j.rest.graphdb.query.RestQueryResult;
 import org.neo4j.rest.graphdb.services.PluginInvocation;
@@ -45,7 +49,10 @@ import org.neo4j.rest.graphdb.services.RestInvocationHandler;
 import org.neo4j.rest.graphdb.services.ServiceInvocation;
 import org.neo4j.rest.graphdb.traversal.RestTraversal;
 import org.neo4j.rest.graphdb.traversal.RestTraverser;
-import org.neo4j.rest.graphdb.util.JsonHelper;
+import org.neo4j.rest.graphdb.util.Config;
+import org.neo4j.rest.graphdb.util.DaemonThreadFactory;
+import org.neo4j.rest.graphdb.util.JsonCodec;
+import org.neo4j.rest.graphdb.util.JsonCodecs;
 import org.neo4j.rest.graphdb.util.QueryResult;
 import org.neo4j.rest.graphdb.util.ResultConverter;
 
@@ -55,6 +62,10 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static javax.ws.rs.core.Response.Status.CREATED;
 
@@ -64,19 +75,38 @@ public class ExecutingRestAPI implements RestAPI {
     protected RestRequest restRequest;
     private long propertyRefetchTimeInMillis = 1000;
     protected final RestAPI facade;
+    private final JsonCodec codec;
+    private ExecutorService asyncExecutor;
 
     protected ExecutingRestAPI(String uri, RestAPI facade) {
-        this.facade = facade;
-        this.restRequest = createRestRequest(uri, null, null);
+        this(uri, null, null, facade);
     }
 
     protected ExecutingRestAPI(String uri, String user, String password, RestAPI facade) {
+        this(uri, user, password, facade, JsonCodecs.getDefault());
+    }
+
+    protected ExecutingRestAPI(String uri, String user, String password, RestAPI facade, JsonCodec codec) {
         this.facade = facade;
+        this.codec = codec;
         this.restRequest = createRestRequest(uri, user, password);
     }
 
+    protected ExecutingRestAPI(RestRequest restRequest, RestAPI facade) {
+        this.facade = facade;
+        this.codec = JsonCodecs.getDefault();
+        this.restRequest = restRequest;
+    }
+
     protected RestRequest createRestRequest(String uri, String user, String password) {
-        return new ExecutingRestRequest(uri, user, password);
+        RestRequest restRequest = new ExecutingRestRequest(uri, user, password, codec);
+        if (Config.getRetries() > 0 || Config.getCircuitBreakerFailures() > 0) {
+            restRequest = new ResilientRestRequest(restRequest);
+        }
+        if (Config.hedgeRequests()) {
+            restRequest = new HedgingRestRequest(restRequest);
+        }
+        return Config.coalesceRequests() ? new CoalescingRestRequest(restRequest) : restRequest;
     }
 
     @Override
@@ -90,7 +120,7 @@ public class ExecutingRestAPI implements RestAPI {
         if (response.statusIs(Status.NOT_FOUND)) {
             throw new NotFoundException("" + id);
         }
-        return new RestNode(response.toMap(), facade);
+        return (RestNode) createExtractor().convertFromRepresentation(response);
     }
 
     @Override
@@ -99,7 +129,7 @@ public class ExecutingRestAPI implements RestAPI {
         if (requestResult.statusIs(Status.NOT_FOUND)) {
             throw new NotFoundException("" + id);
         }
-        return new RestRelationship(requestResult.toMap(), facade);
+        return (RestRelationship) createExtractor().convertFromRepresentation(requestResult);
     }
 
 
@@ -194,6 +224,9 @@ public class ExecutingRestAPI implements RestAPI {
     @Override
     public void close() {
         if (restRequest!=null) restRequest.close();
+        synchronized (this) {
+            if (asyncExecutor!=null) asyncExecutor.shutdown();
+        }
     }
 
     @Override
@@ -217,7 +250,7 @@ public class ExecutingRestAPI implements RestAPI {
     @Override
     public Set<String> getAutoIndexedProperties(Class forClass) {
         RequestResult response = getRestRequest().get(buildPathAutoIndexerProperties(forClass).toString());
-        Collection<String> autoIndexedProperties = (Collection<String>) JsonHelper.readJson(response.getText());
+        Collection<String> autoIndexedProperties = (Collection<String>) codec.decode(response.getText());
         return new HashSet<String>(autoIndexedProperties);
     }
 
@@ -283,7 +316,7 @@ public class ExecutingRestAPI implements RestAPI {
         if (response.statusIs(Status.NOT_FOUND)) {
             throw new NotFoundException("Reference node not available");
         }
-        return new RestNode(response.toMap(), facade);
+        return (RestNode) createExtractor().convertFromRepresentation(response);
     }
 
     public long getPropertyRefetchTimeInMillis() {
@@ -294,6 +327,10 @@ public class ExecutingRestAPI implements RestAPI {
         return restRequest.getUri();
     }
 
+    public JsonCodec getCodec() {
+        return codec;
+    }
+
 
     public void setPropertyRefetchTimeInMillis(long propertyRefetchTimeInMillis) {
         this.propertyRefetchTimeInMillis = propertyRefetchTimeInMillis;
@@ -500,17 +537,26 @@ public class ExecutingRestAPI implements RestAPI {
     public RestTraverser traverse(RestNode restNode, Map<String, Object> description) {
         final RequestResult result = getRestRequest().with(restNode.getUri()).post("traverse/" + FULLPATH, description);
         if (result.statusOtherThan(Response.Status.OK)) throw new RuntimeException(String.format("Error executing traversal: %d %s",result.getStatus(), description));
-        final Object col = result.toEntity();
+        final Object col = result.decode(new RestEntityDecoder(facade));
         if (!(col instanceof Collection)) throw new RuntimeException(String.format("Unexpected traversal result, %s instead of collection", col!=null ? col.getClass() : null));
         return new RestTraverser((Collection) col,restNode.getRestApi());
     }
 
     public QueryResult<Map<String, Object>> query(String statement, Map<String, Object> params, ResultConverter resultConverter) {
-        final Map<?, ?> resultMap = query(statement, params);
+        params =  (params==null) ? Collections.<String,Object>emptyMap() : params;
+        final RequestResult requestResult = getRestRequest().post("cypher", MapUtil.map("query", statement, "params", params));
+        final Map<?, ?> resultMap = (Map<?, ?>) requestResult.decode(new RestEntityDecoder(facade));
         if (RestResultException.isExceptionResult(resultMap)) throw new RestResultException(resultMap);
         return new RestQueryResult(resultMap, facade, resultConverter);
     }
 
+    public ColumnarResult queryColumnar(String statement, Map<String, Object> params) {
+        params =  (params==null) ? Collections.<String,Object>emptyMap() : params;
+        final RequestResult requestResult = getRestRequest().post("cypher", MapUtil.map("query", statement, "params", params));
+        if (requestResult.statusOtherThan(Status.OK)) throw new RestResultException(requestResult.toMap());
+        return requestResult.decode(new ColumnarResultDecoder(facade));
+    }
+
     public QueryResult<Object> run(String statement, Map<String, Object> params, ResultConverter resultConverter) {
         final  Map<String, Object> data = MapUtil.map("script", statement, "params", params);
         final RequestResult requestResult = getRestRequest().get("ext/GremlinPlugin/graphdb/execute_script", data);
@@ -535,4 +581,63 @@ public class ExecutingRestAPI implements RestAPI {
     public RequestResult batch(Collection<Map<String, Object>> batchRequestData) {
         return restRequest.post("batch",batchRequestData);
     }
+
+    /**
+     * Streams the recorded operations as /batch request.
+     */
+    public RequestResult batch(BatchRequestEntity batchRequest) {
+        return restRequest.post("batch", batchRequest);
+    }
+
+    public AsyncRestRequest getAsyncRestRequest() {
+        return new AsyncRestRequest(restRequest, getAsyncExecutor());
+    }
+
+    protected synchronized ExecutorService getAsyncExecutor() {
+        if (asyncExecutor==null) {
+            asyncExecutor = Executors.newFixedThreadPool(Config.getAsyncThreads(), new DaemonThreadFactory("neo4j-rest-async"));
+        }
+        return asyncExecutor;
+    }
+
+    protected <T> Future<T> submit(Callable<T> callable) {
+        return getAsyncExecutor().submit(Deadline.bind(callable));
+    }
+
+    @Override
+    public Future<RestNode> createNodeAsync(final Map<String, Object> props) {
+        return submit(new Callable<RestNode>() {
+            public RestNode call() throws Exception {
+                return createNode(props);
+            }
+        });
+    }
+
+    @Override
+    public Future<RestNode> getNodeByIdAsync(final long id) {
+        return submit(new Callable<RestNode>() {
+            public RestNode call() throws Exception {
+                return getNodeById(id);
+            }
+        });
+    }
+
+    @Override
+    public Future<QueryResult<Map<String, Object>>> queryAsync(final String statement, final Map<String, Object> params, final ResultConverter resultConverter) {
+        return submit(new Callable<QueryResult<Map<String, Object>>>() {
+            public QueryResult<Map<String, Object>> call() throws Exception {
+                return query(statement, params, resultConverter);
+            }
+        });
+    }
+
+    @Override
+    public <T extends PropertyContainer> Future<Void> addToIndexAsync(final T entity, final RestIndex index, final String key, final Object value) {
+        return submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                addToIndex(entity, index, key, value);
+                return null;
+            }
+        });
+    }
 }
@@ -27,11 +27,17 @@ import java.util.Map;
 import java.util.regex.Pattern;
 
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.sun.jersey.api.client.filter.LoggingFilter;
+import com.sun.jersey.client.apache.ApacheHttpClient;
+import com.sun.jersey.client.apache.ApacheHttpClientHandler;
+import org.apache.commons.httpclient.HttpClient;
 import org.neo4j.helpers.collection.MapUtil;
 import org.neo4j.rest.graphdb.util.Config;
-import org.neo4j.rest.graphdb.util.JsonHelper;
+import org.neo4j.rest.graphdb.util.JsonCodec;
+import org.neo4j.rest.graphdb.util.JsonCodecs;
+import org.neo4j.rest.graphdb.util.JsonEntity;
 
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
@@ -47,6 +53,9 @@ public class ExecutingRestRequest implements RestRequest {
     private final String baseUri;
     private final UserAgent userAgent = new UserAgent();
     private final Client client;
+    private PooledConnectionManager connectionManager;
+    private CompressionFilter compressionFilter;
+    private final JsonCodec codec;
 
     private static final Pattern pattern = Pattern.compile("^https?://.*");
 
@@ -55,7 +64,12 @@ public class ExecutingRestRequest implements RestRequest {
     }
 
     public ExecutingRestRequest( String baseUri, String username, String password ) {
+        this( baseUri, username, password, JsonCodecs.getDefault() );
+    }
+
+    public ExecutingRestRequest( String baseUri, String username, String password, JsonCodec codec ) {
         this.baseUri = uriWithoutSlash( baseUri );
+        this.codec = codec;
         client = createClient();
         addAuthFilter(username, password);
 
@@ -67,20 +81,36 @@ public class ExecutingRestRequest implements RestRequest {
     }
 
     protected Client createClient() {
-        Client client = Client.create();
+        Client client = Config.usePooledConnections() ? createPooledClient() : Client.create();
         client.setConnectTimeout(Config.getConnectTimeout());
         client.setReadTimeout(Config.getReadTimeout());
-        client.setChunkedEncodingSize(8*1024);
+        client.addFilter(new DeadlineFilter(connectionManager));
+        if (connectionManager == null) {
+            // the apache connector writes the headers upfront in chunked mode, request compression needs them open
+            client.setChunkedEncodingSize(8*1024);
+        }
         userAgent.install(client);
+        if (Config.useCompression() || Config.getCompressRequestsAbove() >= 0) {
+            compressionFilter = new CompressionFilter(Config.useCompression(), Config.getCompressRequestsAbove());
+            client.addFilter(compressionFilter);
+        }
         if (Config.useLoggingFilter()) {
             client.addFilter(new LoggingFilter());
         }
         return client;
     }
 
-    private ExecutingRestRequest( String uri, Client client ) {
+    protected Client createPooledClient() {
+        connectionManager = new PooledConnectionManager();
+        return new ApacheHttpClient(new ApacheHttpClientHandler(new HttpClient(connectionManager)));
+    }
+
+    private ExecutingRestRequest( String uri, ExecutingRestRequest parent ) {
         this.baseUri = uriWithoutSlash( uri );
-        this.client = client;
+        this.client = parent.client;
+        this.connectionManager = parent.connectionManager;
+        this.compressionFilter = parent.compressionFilter;
+        this.codec = parent.codec;
     }
 
     protected String uriWithoutSlash( String uri ) {
@@ -113,7 +143,7 @@ public class ExecutingRestRequest implements RestRequest {
  
     @Override
     public RequestResult get( String path ) {
-        return RequestResult.extractFrom(builder(path).get(ClientResponse.class));
+        return RequestResult.extractFrom(builder(path).get(ClientResponse.class), codec);
     }
 
  
@@ -121,15 +151,15 @@ public class ExecutingRestRequest implements RestRequest {
     public RequestResult get( String path, Object data ) {
         Builder builder = builder(path);
         if ( data != null ) {
-            builder = builder.entity( JsonHelper.createJsonFrom( data ), APPLICATION_JSON_TYPE );
+            builder = builder.entity( new JsonEntity( data, codec ), APPLICATION_JSON_TYPE );
         }
-        return RequestResult.extractFrom(builder.get(ClientResponse.class));
+        return RequestResult.extractFrom(builder.get(ClientResponse.class), codec);
     }
 
   
     @Override
     public RequestResult delete(String path) {
-        return RequestResult.extractFrom(builder(path).delete(ClientResponse.class));
+        return RequestResult.extractFrom(builder(path).delete(ClientResponse.class), codec);
     }
 
 
@@ -137,24 +167,24 @@ public class ExecutingRestRequest implements RestRequest {
     public RequestResult post( String path, Object data ) {
         Builder builder = builder( path );
         if ( data != null ) {
-            Object payload = data instanceof InputStream ? data : JsonHelper.createJsonFrom(data);
+            Object payload = data instanceof InputStream || data instanceof StreamingOutput ? data : new JsonEntity(data, codec);
             builder = builder.entity( payload , APPLICATION_JSON_TYPE );
         }
-        return RequestResult.extractFrom(builder.post(ClientResponse.class));
+        return RequestResult.extractFrom(builder.post(ClientResponse.class), codec);
     }
 
     @Override
     public RequestResult put( String path, Object data ) {
         Builder builder = builder( path );
         if ( data != null ) {
-            builder = builder.entity( JsonHelper.createJsonFrom( data ), APPLICATION_JSON_TYPE );
+            builder = builder.entity( new JsonEntity( data, codec ), APPLICATION_JSON_TYPE );
         }
-        return RequestResult.extractFrom(builder.put(ClientResponse.class));
+        return RequestResult.extractFrom(builder.put(ClientResponse.class), codec);
     }
 
     @Override
     public RestRequest with( String uri ) {
-        return new ExecutingRestRequest(uri, client);
+        return new ExecutingRestRequest(uri, this);
     }
 
     private URI uri( String uri ) {
@@ -176,7 +206,27 @@ public class ExecutingRestRequest implements RestRequest {
 	   return requestResult.toMap();
 	}
 
+    /**
+     * @return the connection pool of the pooled connector or null if {@link Config#CONFIG_POOLED_CONNECTIONS} is not enabled
+     */
+    public PooledConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    public JsonCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return the request and response byte counts or null if neither {@link Config#CONFIG_COMPRESSION} nor
+     * {@link Config#CONFIG_COMPRESS_REQUESTS_ABOVE} is enabled
+     */
+    public CompressionFilter getCompressionFilter() {
+        return compressionFilter;
+    }
+
     public void close() {
         client.destroy();
+        if (connectionManager != null) connectionManager.shutdown();
     }
 }
@@ -0,0 +1,329 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.rest.graphdb.util.Config;
+import org.neo4j.rest.graphdb.util.DaemonThreadFactory;
+
+/**
+ * Sends a second, hedged request for reads (GET and read only POSTs) that did not answer within a percentile of
+ * the recently observed response times. The first response wins, the other request is cancelled and its
+ * connection aborted via its {@link Deadline}. On a {@link ClusterRestRequest} the hedge goes to the least loaded
+ * replica, otherwise it uses another connection to the same server. The requests run on a bounded pool, while all
+ * its threads are busy reads are sent without a hedge instead of waiting for a thread.
+ */
+public class HedgingRestRequest implements RestRequest {
+    private static final int MIN_SAMPLES = 20;
+
+    private final RestRequest restRequest;
+    private final LatencyRecorder latencies;
+    private final ExecutorService executor;
+    private final long minDelayMicros;
+    private final AtomicLong requests;
+    private final AtomicLong hedged;
+    private final AtomicLong hedgeWins;
+
+    public HedgingRestRequest(RestRequest restRequest) {
+        this(restRequest, Config.getHedgePercentile(), Config.getHedgeMinDelayMillis(), Config.getHedgeThreads());
+    }
+
+    public HedgingRestRequest(RestRequest restRequest, double percentile, long minDelayMillis) {
+        this(restRequest, percentile, minDelayMillis, Config.getHedgeThreads());
+    }
+
+    /**
+     * @param percentile of the recent response times after which a hedged request is sent, e.g. 95
+     * @param threads for the requests and their hedges, each hedged read takes two
+     */
+    public HedgingRestRequest(RestRequest restRequest, double percentile, long minDelayMillis, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Threads must be positive " + threads);
+        this.restRequest = restRequest;
+        this.latencies = new LatencyRecorder(1024, percentile);
+        // no queue, a request that finds all threads busy is rejected and sent without a hedge
+        this.executor = new ThreadPoolExecutor(0, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new DaemonThreadFactory("neo4j-rest-hedge"));
+        this.minDelayMicros = TimeUnit.MILLISECONDS.toMicros(minDelayMillis);
+        this.requests = new AtomicLong();
+        this.hedged = new AtomicLong();
+        this.hedgeWins = new AtomicLong();
+    }
+
+    private HedgingRestRequest(RestRequest restRequest, HedgingRestRequest parent) {
+        this.restRequest = restRequest;
+        this.latencies = parent.latencies;
+        this.executor = parent.executor;
+        this.minDelayMicros = parent.minDelayMicros;
+        this.requests = parent.requests;
+        this.hedged = parent.hedged;
+        this.hedgeWins = parent.hedgeWins;
+    }
+
+    @Override
+    public RequestResult get(String path) {
+        return hedge(RequestMethod.GET, path, null);
+    }
+
+    @Override
+    public RequestResult get(String path, Object data) {
+        return hedge(RequestMethod.GET, path, data);
+    }
+
+    @Override
+    public RequestResult post(String path, Object data) {
+        if (!ReadOnlyRequests.isReadOnlyPost(path, data)) return restRequest.post(path, data);
+        return hedge(RequestMethod.POST, path, data);
+    }
+
+    @Override
+    public RequestResult delete(String path) {
+        return restRequest.delete(path);
+    }
+
+    @Override
+    public RequestResult put(String path, Object data) {
+        return restRequest.put(path, data);
+    }
+
+    private RequestResult hedge(RequestMethod method, String path, Object data) {
+        if (ReadOnlyRequests.isPaged(path)) return method.execute(restRequest, path, data);
+        requests.incrementAndGet();
+        final long start = System.nanoTime();
+        final long delay = latencies.getPercentile();
+        if (delay < 0) return execute(method, path, data, start);
+        final CompletionService<RequestResult> completion = new ExecutorCompletionService<RequestResult>(executor);
+        final Attempt first = new Attempt(method, path, data);
+        final Attempt second = new Attempt(method, path, data);
+        final Deadline outer = Deadline.current();
+        final Deadline.Registration registration = outer == null ? null : outer.onExpiry(new Runnable() {
+            public void run() {
+                first.lose();
+                second.lose();
+            }
+        });
+        try {
+            try {
+                first.future = completion.submit(first);
+            } catch (RejectedExecutionException e) {
+                return execute(method, path, data, start);
+            }
+            Future<RequestResult> done = completion.poll(Math.max(delay, minDelayMicros), TimeUnit.MICROSECONDS);
+            int pending = 1;
+            if (done == null) {
+                try {
+                    second.future = completion.submit(second);
+                    hedged.incrementAndGet();
+                    pending++;
+                } catch (RejectedExecutionException e) {
+                    // saturated, wait for the first request only
+                }
+            }
+            while (true) {
+                if (done == null) done = completion.take();
+                pending--;
+                final Attempt winner = done == first.future ? first : second;
+                try {
+                    final RequestResult result = done.get();
+                    latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    if (winner == second) hedgeWins.incrementAndGet();
+                    (winner == first ? second : first).lose();
+                    return result;
+                } catch (ExecutionException e) {
+                    if (pending == 0) throw unwrap(e);
+                }
+                done = null;
+            }
+        } catch (InterruptedException e) {
+            first.lose();
+            second.lose();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for request", e);
+        } finally {
+            if (registration != null) registration.remove();
+        }
+    }
+
+    /**
+     * Sends the request on the calling thread without a hedge.
+     */
+    private RequestResult execute(RequestMethod method, String path, Object data, long start) {
+        final RequestResult result = method.execute(restRequest, path, data);
+        latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return result;
+    }
+
+    private RuntimeException unwrap(ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) return (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        return new RuntimeException(cause);
+    }
+
+    /**
+     * One of the competing requests, runs with its own deadline so that it can be aborted when it lost.
+     */
+    private class Attempt implements Callable<RequestResult> {
+        private final RequestMethod method;
+        private final String path;
+        private final Object data;
+        private final Deadline deadline;
+        private volatile Future<RequestResult> future;
+        private volatile RequestResult result;
+        private volatile boolean lost;
+
+        Attempt(RequestMethod method, String path, Object data) {
+            this.method = method;
+            this.path = path;
+            this.data = data;
+            final Deadline outer = Deadline.current();
+            this.deadline = Deadline.after(outer != null ? outer.remainingMillis() : Config.getConnectTimeout() + Config.getReadTimeout(), TimeUnit.MILLISECONDS);
+        }
+
+        public RequestResult call() {
+            if (lost) throw new DeadlineExceededException("Request cancelled");
+            final Deadline.Scope scope = deadline.enter();
+            try {
+                result = method.execute(restRequest, path, data);
+            } finally {
+                scope.exit();
+            }
+            if (lost) result.abort();
+            return result;
+        }
+
+        /**
+         * Aborts the request without reading its response, never throws so that the winner's result is returned.
+         */
+        void lose() {
+            lost = true;
+            try {
+                deadline.cancel();
+            } catch (RuntimeException e) {
+                // the connection is released by abort() below
+            }
+            final Future<RequestResult> future = this.future;
+            if (future != null) future.cancel(false);
+            final RequestResult result = this.result;
+            if (result != null) result.abort();
+        }
+    }
+
+    @Override
+    public RestRequest with(String uri) {
+        return new HedgingRestRequest(restRequest.with(uri), this);
+    }
+
+    @Override
+    public String getUri() {
+        return restRequest.getUri();
+    }
+
+    @Override
+    public Map<?, ?> toMap(RequestResult requestResult) {
+        return restRequest.toMap(requestResult);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        restRequest.close();
+    }
+
+    public RestRequest getRestRequest() {
+        return restRequest;
+    }
+
+    /**
+     * @return number of reads that could have been hedged
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of hedged requests sent
+     */
+    public long getHedged() {
+        return hedged.get();
+    }
+
+    /**
+     * @return number of hedged requests that answered first
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * @return the current hedging delay or -1 while too few response times were recorded
+     */
+    public long getHedgeDelayMicros() {
+        final long delay = latencies.getPercentile();
+        return delay < 0 ? delay : Math.max(delay, minDelayMicros);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HedgingRestRequest{requests=%d, hedged=%d, hedgeWins=%d, delay=%dus}", getRequests(), getHedged(), getHedgeWins(), getHedgeDelayMicros());
+    }
+
+    /**
+     * Ring buffer of the latest response times, the percentile is recomputed every few samples.
+     */
+    static class LatencyRecorder {
+        private final long[] samples;
+        private final double percentile;
+        private int count;
+        private int next;
+        private long cached = -1;
+
+        LatencyRecorder(int size, double percentile) {
+            this.samples = new long[size];
+            this.percentile = percentile;
+        }
+
+        synchronized void record(long micros) {
+            samples[next] = micros;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+            if (count >= MIN_SAMPLES && (cached < 0 || next % 16 == 0)) {
+                final long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                cached = sorted[Math.min(count - 1, (int) Math.ceil(percentile / 100 * count) - 1)];
+            }
+        }
+
+        synchronized long getPercentile() {
+            return cached;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
+import org.neo4j.rest.graphdb.util.Config;
+
+/**
+ * Keep-alive connection pool for the pooled {@link ExecutingRestRequest} connector.
+ * Idle connections are evicted in the background, connections that were idle for longer
+ * than the validation interval are checked for staleness before they are reused.
+ */
+public class PooledConnectionManager extends MultiThreadedHttpConnectionManager {
+
+    private final long idleTimeout;
+    private final long validateAfterInactivity;
+    private final Map<HttpConnectionParams, Long> lastReleased = Collections.synchronizedMap(new WeakHashMap<HttpConnectionParams, Long>());
+    private final Timer evictor;
+
+    private final AtomicLong leased = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong validated = new AtomicLong();
+    private final AtomicLong evictionRuns = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+    private final ThreadLocal<Lease> leaseCapture = new ThreadLocal<Lease>();
+    // keyed by the params, which the pool's connection adapters share with the pooled connection
+    private final Map<HttpConnectionParams, Lease> leases = new ConcurrentHashMap<HttpConnectionParams, Lease>();
+
+    public PooledConnectionManager() {
+        this(Config.getMaxConnectionsPerHost(), Config.getMaxTotalConnections(), Config.getIdleConnectionTimeout(), Config.getValidateAfterInactivity());
+    }
+
+    public PooledConnectionManager(int maxConnectionsPerHost, int maxTotalConnections, long idleTimeout, long validateAfterInactivity) {
+        this.idleTimeout = idleTimeout;
+        this.validateAfterInactivity = validateAfterInactivity;
+        final HttpConnectionManagerParams params = getParams();
+        params.setDefaultMaxConnectionsPerHost(maxConnectionsPerHost);
+        params.setMaxTotalConnections(maxTotalConnections);
+        params.setConnectionTimeout(Config.getConnectTimeout());
+        params.setSoTimeout(Config.getReadTimeout());
+        params.setStaleCheckingEnabled(false);
+        this.evictor = startEvictor();
+    }
+
+    private Timer startEvictor() {
+        if (idleTimeout <= 0) return null;
+        final Timer timer = new Timer("neo4j-rest-idle-connection-evictor", true);
+        final long period = Math.max(1000, idleTimeout / 2);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                closeIdleConnections(idleTimeout);
+                evictionRuns.incrementAndGet();
+            }
+        }, period, period);
+        return timer;
+    }
+
+    @Override
+    public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration, long timeout) throws ConnectionPoolTimeoutException {
+        final HttpConnection connection = super.getConnectionWithTimeout(hostConfiguration, timeout);
+        final Long releasedAt = lastReleased.remove(connection.getParams());
+        final boolean validate = releasedAt != null && System.currentTimeMillis() - releasedAt > validateAfterInactivity;
+        connection.getParams().setStaleCheckingEnabled(validate);
+        if (validate) validated.incrementAndGet();
+        leased.incrementAndGet();
+        final Lease capture = leaseCapture.get();
+        if (capture != null) {
+            capture.hold(connection);
+            leases.put(connection.getParams(), capture);
+        }
+        return connection;
+    }
+
+    /**
+     * Records the connections the current thread leases in the lease until called with null.
+     */
+    void captureLeases(Lease lease) {
+        if (lease == null) leaseCapture.remove();
+        else leaseCapture.set(lease);
+    }
+
+    /**
+     * Closes the connection of the lease if it is still held, a read blocked on it fails immediately. A connection
+     * that was already released (and may be used by another request now) is left alone.
+     */
+    public void abort(Lease lease) {
+        if (lease.abort()) aborted.incrementAndGet();
+    }
+
+    @Override
+    public void releaseConnection(HttpConnection connection) {
+        final Lease lease = leases.remove(connection.getParams());
+        if (lease != null) lease.release(connection.getParams());
+        lastReleased.put(connection.getParams(), System.currentTimeMillis());
+        released.incrementAndGet();
+        super.releaseConnection(connection);
+    }
+
+    @Override
+    public void shutdown() {
+        if (evictor != null) evictor.cancel();
+        super.shutdown();
+    }
+
+    public long getLeasedConnections() {
+        return leased.get();
+    }
+
+    public long getConnectionsInUse() {
+        return leased.get() - released.get();
+    }
+
+    public long getValidatedConnections() {
+        return validated.get();
+    }
+
+    public long getEvictionRuns() {
+        return evictionRuns.get();
+    }
+
+    public long getAbortedConnections() {
+        return aborted.get();
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return getParams().getDefaultMaxConnectionsPerHost();
+    }
+
+    /**
+     * The connection a request holds, released and aborted under the same lock so that an abort never closes
+     * a connection that went back to the pool.
+     */
+    public static class Lease {
+        private HttpConnection connection;
+        private HttpConnectionParams params;
+
+        synchronized void hold(HttpConnection connection) {
+            this.connection = connection;
+            this.params = connection.getParams();
+        }
+
+        synchronized void release(HttpConnectionParams params) {
+            if (this.params != params) return;
+            this.connection = null;
+            this.params = null;
+        }
+
+        synchronized boolean abort() {
+            if (connection == null) return false;
+            connection.close();
+            return true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PooledConnectionManager{pooled=%d, inUse=%d, leased=%d, validated=%d, aborted=%d, evictionRuns=%d}",
+                getConnectionsInPool(), getConnectionsInUse(), getLeasedConnections(), getValidatedConnections(), getAbortedConnections(), getEvictionRuns());
+    }
+}
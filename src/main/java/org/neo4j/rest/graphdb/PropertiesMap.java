@@ -26,7 +26,6 @@ package org.neo4j.rest.graphdb;
 
 import org.neo4j.graphdb.PropertyContainer;
 
-import java.lang.reflect.Array;
 import java.util.*;
 
 public class PropertiesMap {
@@ -107,50 +106,70 @@ public class PropertiesMap {
         return type.isPrimitive() || String.class.isAssignableFrom(type) || Number.class.isAssignableFrom(type) || Boolean.class.isAssignableFrom(type);
     }
 
-    private static Boolean[] booleanArray( List<Boolean> list ) {
-        return list.toArray( new Boolean[list.size()] );
+    private static boolean[] booleanArray( List<Boolean> list ) {
+        final boolean[] result = new boolean[list.size()];
+        int i = 0;
+        for ( Boolean value : list ) {
+            result[i++] = value;
+        }
+        return result;
     }
 
-    private static Number[] numberArray( List<Number> numbers ) {
-        Number[] internal = new Number[numbers.size()];
-        for ( int i = 0; i < internal.length; i++ ) {
-            Number number = numbers.get( i );
-            if ( number instanceof Float || number instanceof Double ) {
-                number = number.doubleValue();
-            } else {
-                number = number.longValue();
+    private static Object numberArray( List<Number> numbers ) {
+        if ( hasFloatingPoint( numbers ) ) {
+            final double[] result = new double[numbers.size()];
+            int i = 0;
+            for ( Number number : numbers ) {
+                result[i++] = number.doubleValue();
             }
-            internal[i] = number;
+            return result;
         }
-        final Number[] result;
-        if ( internal[0] instanceof Double ) {
-            result = new Double[internal.length];
-        } else {
-            result = new Long[internal.length];
+        final long[] result = new long[numbers.size()];
+        int i = 0;
+        for ( Number number : numbers ) {
+            result[i++] = number.longValue();
         }
-        System.arraycopy( internal, 0, result, 0, internal.length );
         return result;
     }
 
+    private static boolean hasFloatingPoint( List<Number> numbers ) {
+        for ( Number number : numbers ) {
+            if ( number instanceof Float || number instanceof Double ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static String[] stringArray( List<String> strings ) {
         return strings.toArray( new String[strings.size()] );
     }
 
+    /**
+     * Primitive arrays are written as JSON arrays by the codecs as they are, only byte[] (which Jackson would
+     * write as base64) and char[] (written as a string) are converted.
+     */
     private Object toSerializedType( Object value ) {
-        if ( value.getClass().isArray() ) {
-            if ( value.getClass().getComponentType().isPrimitive() ) {
-                int size = Array.getLength( value );
-                List<Object> result = new ArrayList<Object>();
-                for ( int i = 0; i < size; i++ ) {
-                    result.add( Array.get( value, i ) );
-                }
-                return result;
-            } else {
-                return Arrays.asList( (Object[]) value );
+        if ( value instanceof byte[] ) {
+            final byte[] bytes = (byte[]) value;
+            final int[] result = new int[bytes.length];
+            for ( int i = 0; i < bytes.length; i++ ) {
+                result[i] = bytes[i];
             }
-        } else {
-            return value;
+            return result;
+        }
+        if ( value instanceof char[] ) {
+            final char[] chars = (char[]) value;
+            final String[] result = new String[chars.length];
+            for ( int i = 0; i < chars.length; i++ ) {
+                result[i] = String.valueOf( chars[i] );
+            }
+            return result;
+        }
+        if ( value instanceof Object[] ) {
+            return Arrays.asList( (Object[]) value );
         }
+        return value;
     }
 
     public boolean isEmpty() {
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.regex.Pattern;
+
+import org.neo4j.rest.graphdb.query.CypherQueries;
+
+/**
+ * Classifies POST requests that only read, so they can be sent to replicas or repeated safely.
+ */
+public class ReadOnlyRequests {
+    private static final Pattern READ_ONLY_POST = Pattern.compile("(^|/)(traverse/\\w+|paths?)$");
+    private static final Pattern PAGED = Pattern.compile("(^|/)paged/");
+
+    private ReadOnlyRequests() {
+    }
+
+    /**
+     * @return true for traversals, path finding and read only cypher queries
+     */
+    public static boolean isReadOnlyPost(String path, Object data) {
+        if (isPaged(path)) return false;
+        return READ_ONLY_POST.matcher(path).find()
+                || path.endsWith("cypher") && CypherQueries.isReadOnlyRequest(data);
+    }
+
+    /**
+     * @return true for paged traversals, which keep their traverser on the server that created it
+     */
+    public static boolean isPaged(String path) {
+        return PAGED.matcher(path).find();
+    }
+}
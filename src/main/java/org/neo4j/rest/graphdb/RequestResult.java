@@ -28,10 +28,13 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.StatusType;
 
 import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation;
+import org.neo4j.rest.graphdb.converter.ResultDecoder;
+import org.neo4j.rest.graphdb.util.Config;
+import org.neo4j.rest.graphdb.util.JsonCodec;
+import org.neo4j.rest.graphdb.util.JsonCodecs;
 import org.neo4j.rest.graphdb.util.JsonHelper;
 
 import com.sun.jersey.api.client.ClientResponse;
-import org.neo4j.rest.graphdb.util.StreamJsonHelper;
 
 
 /**
@@ -47,6 +50,7 @@ public class RequestResult {
     private InputStream stream;
     private long batchId;
     private boolean batchResult = false;
+    private JsonCodec codec = JsonCodecs.getDefault();
 
     
     RequestResult(int status, String location, String string) {
@@ -75,20 +79,29 @@ public class RequestResult {
     }
 
     public static RequestResult extractFrom(ClientResponse clientResponse) {
+        return extractFrom(clientResponse, JsonCodecs.getDefault());
+    }
+
+    public static RequestResult extractFrom(ClientResponse clientResponse, JsonCodec codec) {
+        final RequestResult result = extract(clientResponse);
+        result.codec = codec;
+        return result;
+    }
+
+    private static RequestResult extract(ClientResponse clientResponse) {
         final int status = clientResponse.getStatus();
         final URI location = clientResponse.getLocation();
-        // final InputStream data;
         if (status == Response.Status.NO_CONTENT.getStatusCode()) {
-        //    data = null;
             clientResponse.close();
             return new RequestResult(status, uriString(location), null,clientResponse);
-        } else {
-        //    data = clientResponse.getEntityInputStream();
-            RequestResult result = new RequestResult(status, uriString(location), clientResponse.getEntity(String.class));
-            clientResponse.close();
-            return result;
         }
-        //return new RequestResult(status, uriString(location), data,clientResponse);
+        if (Config.streamResults() && status == Response.Status.OK.getStatusCode()) {
+            // the connection is released when the entity has been read by toEntity(), getText() or close()
+            return new RequestResult(status, uriString(location), clientResponse.getEntityInputStream(), clientResponse);
+        }
+        RequestResult result = new RequestResult(status, uriString(location), clientResponse.getEntity(String.class));
+        clientResponse.close();
+        return result;
     }
 
     private static String uriString(URI location) {
@@ -104,18 +117,41 @@ public class RequestResult {
         return location;
     }
 
-    public Object toEntity() {
+    public synchronized Object toEntity() {
         if (entity!=null) return entity;
         if (stream != null) {
-            entity = StreamJsonHelper.jsonToSingleValue(stream);
-            closeStream();
+            try {
+                entity = codec.decode(stream);
+            } finally {
+                closeStream();
+            }
         }
         else {
-            entity = JsonHelper.jsonToSingleValue(string);
+            entity = codec.decode(string);
         }
         return entity;
     }
 
+    /**
+     * Decodes the result (e.g. into entities) without building the generic representation first, a streamed result
+     * is decoded directly from the connection and can only be read once.
+     */
+    public synchronized <T> T decode(ResultDecoder<T> decoder) {
+        if (entity!=null) return decoder.convert(entity);
+        if (stream != null) {
+            try {
+                return decoder.decode(stream);
+            } finally {
+                closeStream();
+            }
+        }
+        return decoder.decode(string);
+    }
+
+    public boolean isStreaming() {
+        return stream != null;
+    }
+
     public boolean isMap() {
         return toEntity() instanceof Map;
     }
@@ -140,31 +176,79 @@ public class RequestResult {
     }
 
     public static RequestResult extractFrom(Map<String, Object> batchResult) {
-        return new RequestResult(200, (String) batchResult.get("location"),JsonHelper.createJsonFrom(batchResult.get("body")));
+        return extractFrom(batchResult, JsonCodecs.getDefault());
+    }
+
+    /**
+     * A result whose body was already decoded, e.g. an entry of a batch response.
+     */
+    public static RequestResult decoded(int status, String location, Object entity) {
+        final RequestResult result = new RequestResult(status, location, entity == null ? "null" : null);
+        result.entity = entity;
+        return result;
     }
 
-    public String getText() {
+    public static RequestResult extractFrom(Map<String, Object> batchResult, JsonCodec codec) {
+        final RequestResult result = new RequestResult(200, (String) batchResult.get("location"), codec.encode(batchResult.get("body")));
+        result.codec = codec;
+        return result;
+    }
+
+    public synchronized String getText() {
         if (string==null && stream!=null) {
-            string = JsonHelper.readString(stream);
-            closeStream();
+            try {
+                string = JsonHelper.readString(stream);
+            } finally {
+                closeStream();
+            }
         }
         return string;
     }
 
-    private void closeStream() {
-        if (stream!=null) readFully(stream);
+    /**
+     * Releases the underlying connection of a streamed result that was not read.
+     */
+    public synchronized void close() {
+        closeStream();
+    }
+
+    /**
+     * Releases the underlying connection of a streamed result without reading the rest of the body, for results
+     * that are not needed any more, e.g. of a cancelled request.
+     */
+    public synchronized void abort() {
         stream = null;
-        if (response!=null) {
+        releaseResponse();
+    }
+
+    private void closeStream() {
+        try {
+            if (stream!=null) readFully(stream);
+        } finally {
+            stream = null;
+            releaseResponse();
+        }
+    }
+
+    private void releaseResponse() {
+        if (response==null) return;
+        try {
             response.close();
+        } catch (RuntimeException e) {
+            // the connection failed or was aborted, there is nothing left to release
+        } finally {
             response = null;
         }
     }
 
     private void readFully(InputStream stream) {
         try {
-            while (stream.read()!=-1);
+            final byte[] buffer = new byte[8192];
+            while (stream.read(buffer)!=-1);
         } catch (IOException e) {
             // ignore
+        } catch (RuntimeException e) {
+            // e.g. the deadline of the request expired, the response is released anyway
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import org.neo4j.rest.graphdb.util.Config;
+
+/**
+ * Retries idempotent requests (GET, PUT, DELETE and POSTs that only read or are marked safe) that failed with a
+ * connection error or a 502/503/504 status, with exponential backoff and full jitter. Other POSTs are never repeated.
+ * <p/>
+ * Each endpoint (scheme, host and port) has a {@link CircuitBreaker}, while it is open requests fail fast with a
+ * {@link CircuitOpenException} instead of adding load to the struggling server.
+ */
+public class ResilientRestRequest implements RestRequest {
+    private static final Pattern ABSOLUTE = Pattern.compile("^https?://.*");
+
+    private final RestRequest restRequest;
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int failureThreshold;
+    private final long resetTimeoutMillis;
+    private final List<Pattern> safePosts;
+    private final ConcurrentMap<String, CircuitBreaker> breakers;
+    private final AtomicLong retries;
+    private final AtomicLong exhausted;
+    private final Random random;
+
+    public ResilientRestRequest(RestRequest restRequest) {
+        this(restRequest, Config.getRetries(), Config.getRetryBackoffMillis(), Config.getRetryMaxBackoffMillis(),
+                Config.getCircuitBreakerFailures(), Config.getCircuitBreakerResetTimeout());
+        if (Config.getSafePostPattern() != null) markSafe(Pattern.compile(Config.getSafePostPattern()));
+    }
+
+    /**
+     * @param failureThreshold consecutive failures that open the circuit breaker of an endpoint, 0 disables the breakers
+     */
+    public ResilientRestRequest(RestRequest restRequest, int maxRetries, long initialBackoffMillis, long maxBackoffMillis,
+                                int failureThreshold, long resetTimeoutMillis) {
+        this.restRequest = restRequest;
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.failureThreshold = failureThreshold;
+        this.resetTimeoutMillis = resetTimeoutMillis;
+        this.safePosts = new CopyOnWriteArrayList<Pattern>();
+        this.breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+        this.retries = new AtomicLong();
+        this.exhausted = new AtomicLong();
+        this.random = new Random();
+    }
+
+    private ResilientRestRequest(RestRequest restRequest, ResilientRestRequest parent) {
+        this.restRequest = restRequest;
+        this.maxRetries = parent.maxRetries;
+        this.initialBackoffMillis = parent.initialBackoffMillis;
+        this.maxBackoffMillis = parent.maxBackoffMillis;
+        this.failureThreshold = parent.failureThreshold;
+        this.resetTimeoutMillis = parent.resetTimeoutMillis;
+        this.safePosts = parent.safePosts;
+        this.breakers = parent.breakers;
+        this.retries = parent.retries;
+        this.exhausted = parent.exhausted;
+        this.random = parent.random;
+    }
+
+    /**
+     * POSTs to paths matching the pattern are retried like idempotent requests, e.g. for server plugins that only read.
+     */
+    public ResilientRestRequest markSafe(Pattern pathPattern) {
+        safePosts.add(pathPattern);
+        return this;
+    }
+
+    @Override
+    public RequestResult get(String path) {
+        return execute(RequestMethod.GET, path, null, true);
+    }
+
+    @Override
+    public RequestResult get(String path, Object data) {
+        return execute(RequestMethod.GET, path, data, true);
+    }
+
+    @Override
+    public RequestResult delete(String path) {
+        return execute(RequestMethod.DELETE, path, null, true);
+    }
+
+    @Override
+    public RequestResult post(String path, Object data) {
+        return execute(RequestMethod.POST, path, data, isSafePost(path, data));
+    }
+
+    @Override
+    public RequestResult put(String path, Object data) {
+        return execute(RequestMethod.PUT, path, data, true);
+    }
+
+    private boolean isSafePost(String path, Object data) {
+        if (ReadOnlyRequests.isReadOnlyPost(path, data)) return true;
+        for (Pattern safePost : safePosts) {
+            if (safePost.matcher(path).find()) return true;
+        }
+        return false;
+    }
+
+    private RequestResult execute(RequestMethod method, String path, Object data, boolean idempotent) {
+        final CircuitBreaker breaker = breakerFor(path);
+        for (int attempt = 0; ; attempt++) {
+            if (breaker != null && !breaker.allowRequest()) {
+                throw new CircuitOpenException(breaker.getEndpoint());
+            }
+            final boolean retry = idempotent && attempt < maxRetries;
+            try {
+                final RequestResult result = method.execute(restRequest, path, data);
+                if (!isUnavailable(result.getStatus())) {
+                    if (breaker != null) breaker.recordSuccess();
+                    return result;
+                }
+                if (breaker != null) breaker.recordFailure();
+                if (!retry) {
+                    if (idempotent) exhausted.incrementAndGet();
+                    return result;
+                }
+                result.close();
+            } catch (DeadlineExceededException e) {
+                // the caller ran out of time, the endpoint is not to blame and there is no time left to retry
+                if (breaker != null) breaker.release();
+                throw e;
+            } catch (ClientHandlerException e) {
+                if (breaker != null) breaker.recordFailure();
+                if (!retry) {
+                    if (idempotent) exhausted.incrementAndGet();
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                // not a connection problem, the endpoint is not to blame
+                if (breaker != null) breaker.release();
+                throw e;
+            }
+            retries.incrementAndGet();
+            backoff(attempt);
+        }
+    }
+
+    private boolean isUnavailable(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 30));
+        final Deadline deadline = Deadline.current();
+        if (deadline != null) ceiling = Math.min(ceiling, deadline.remainingMillis());
+        if (ceiling <= 0) return;
+        try {
+            Thread.sleep((long) (random.nextDouble() * ceiling));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientHandlerException("Interrupted while waiting to retry request", e);
+        }
+    }
+
+    private CircuitBreaker breakerFor(String path) {
+        if (failureThreshold <= 0) return null;
+        final String endpoint = endpoint(ABSOLUTE.matcher(path).matches() ? path : restRequest.getUri());
+        CircuitBreaker breaker = breakers.get(endpoint);
+        if (breaker == null) {
+            final CircuitBreaker created = new CircuitBreaker(endpoint, failureThreshold, resetTimeoutMillis);
+            breaker = breakers.putIfAbsent(endpoint, created);
+            if (breaker == null) breaker = created;
+        }
+        return breaker;
+    }
+
+    private String endpoint(String uri) {
+        try {
+            final URI parsed = new URI(uri);
+            if (parsed.getHost() == null) return uri;
+            return parsed.getScheme() + "://" + parsed.getHost() + (parsed.getPort() == -1 ? "" : ":" + parsed.getPort());
+        } catch (Exception e) {
+            return uri;
+        }
+    }
+
+    @Override
+    public RestRequest with(String uri) {
+        return new ResilientRestRequest(restRequest.with(uri), this);
+    }
+
+    @Override
+    public String getUri() {
+        return restRequest.getUri();
+    }
+
+    @Override
+    public Map<?, ?> toMap(RequestResult requestResult) {
+        return restRequest.toMap(requestResult);
+    }
+
+    @Override
+    public void close() {
+        restRequest.close();
+    }
+
+    public RestRequest getRestRequest() {
+        return restRequest;
+    }
+
+    /**
+     * @return number of requests that were repeated
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return number of idempotent requests that still failed after all retries
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(breakers);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResilientRestRequest{retries=%d, exhausted=%d, breakers=%s}", getRetries(), getExhausted(), breakers.values());
+    }
+}
@@ -32,11 +32,13 @@ import org.neo4j.rest.graphdb.index.RestIndex;
 import org.neo4j.rest.graphdb.index.RestIndexManager;
 import org.neo4j.rest.graphdb.services.RequestType;
 import org.neo4j.rest.graphdb.traversal.RestTraverser;
+import org.neo4j.rest.graphdb.query.ColumnarResult;
 import org.neo4j.rest.graphdb.util.QueryResult;
 import org.neo4j.rest.graphdb.util.ResultConverter;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 /**
  * @author mh
@@ -121,6 +123,11 @@ public interface RestAPI {
 
     QueryResult<Map<String, Object>> query(String statement, Map<String, Object> params, ResultConverter resultConverter);
 
+    /**
+     * Runs the query and decodes its result column by column, without materializing rows.
+     */
+    ColumnarResult queryColumnar(String statement, Map<String, Object> params);
+
     QueryResult<Object> run(String statement, Map<String, Object> params, ResultConverter resultConverter);
 
     RestEntityExtractor createExtractor();
@@ -141,4 +148,12 @@ public interface RestAPI {
     void startAutoIndexingProperty(Class forClass, String s);
 
     void stopAutoIndexingProperty(Class forClass, String s);
+
+    Future<RestNode> createNodeAsync(Map<String, Object> props);
+
+    Future<RestNode> getNodeByIdAsync(long id);
+
+    Future<QueryResult<Map<String, Object>>> queryAsync(String statement, Map<String, Object> params, ResultConverter resultConverter);
+
+    <T extends PropertyContainer> Future<Void> addToIndexAsync(T entity, RestIndex index, String key, Object value);
 }
@@ -35,11 +35,15 @@ import org.neo4j.rest.graphdb.services.RequestType;
 import org.neo4j.rest.graphdb.transaction.NullTransaction;
 import org.neo4j.rest.graphdb.traversal.RestTraverser;
 import org.neo4j.rest.graphdb.util.Config;
+import org.neo4j.rest.graphdb.util.JsonCodec;
+import org.neo4j.rest.graphdb.util.JsonCodecs;
+import org.neo4j.rest.graphdb.query.ColumnarResult;
 import org.neo4j.rest.graphdb.util.QueryResult;
 import org.neo4j.rest.graphdb.util.ResultConverter;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 /**
  * @author mh
@@ -233,6 +237,11 @@ public class RestAPIFacade implements RestAPI {
         return current().query(statement, params, resultConverter);
     }
 
+    @Override
+    public ColumnarResult queryColumnar(String statement, Map<String, Object> params) {
+        return current().queryColumnar(statement, params);
+    }
+
     @Override
     public QueryResult<Object> run(String statement, Map<String, Object> params, ResultConverter resultConverter) {
         return current().run(statement, params, resultConverter);
@@ -284,6 +293,26 @@ public class RestAPIFacade implements RestAPI {
         current().stopAutoIndexingProperty(forClass, s);
     }
 
+    @Override
+    public Future<RestNode> createNodeAsync(Map<String, Object> props) {
+        return current().createNodeAsync(props);
+    }
+
+    @Override
+    public Future<RestNode> getNodeByIdAsync(long id) {
+        return current().getNodeByIdAsync(id);
+    }
+
+    @Override
+    public Future<QueryResult<Map<String, Object>>> queryAsync(String statement, Map<String, Object> params, ResultConverter resultConverter) {
+        return current().queryAsync(statement, params, resultConverter);
+    }
+
+    @Override
+    public <T extends PropertyContainer> Future<Void> addToIndexAsync(T entity, RestIndex index, String key, Object value) {
+        return current().addToIndexAsync(entity, index, key, value);
+    }
+
     private final ExecutingRestAPI direct;
 
     private RestAPIFacade(ExecutingRestAPI direct) {
@@ -298,10 +327,29 @@ public class RestAPIFacade implements RestAPI {
         this.direct = new ExecutingRestAPI(uri, user, password, this);
     }
 
+    /**
+     * @param codec encodes the requests and decodes the responses, e.g. one of the {@link JsonCodecs}
+     */
+    public RestAPIFacade(String uri, String user, String password, JsonCodec codec) {
+        this.direct = new ExecutingRestAPI(uri, user, password, this, codec);
+    }
+
+    /**
+     * @param restRequest e.g. a {@link ClusterRestRequest} to spread the requests over several servers,
+     * its ExecutingRestRequests determine the json codec used
+     */
+    public RestAPIFacade(RestRequest restRequest) {
+        this.direct = new ExecutingRestAPI(restRequest, this);
+    }
+
     public ExecutingRestAPI getDirect() {
         return direct;
     }
 
+    public JsonCodec getCodec() {
+        return direct.getCodec();
+    }
+
     public <T> T executeBatch(BatchCallback<T> batchCallback) {
         final BatchTransaction transaction = BatchTransaction.begin(this);
         try {
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation.Methods;
+import org.neo4j.rest.graphdb.converter.RestEntityPropertyRefresher;
+
+/**
+ * Removes recorded operations whose effect is covered by other operations of the same batch:
+ * <ul>
+ * <li>properties set on a node or relationship created in the batch are added to the properties it is created with</li>
+ * <li>of several writes of the same property of an entity only the last one is sent</li>
+ * <li>property writes and index entries of entities that are deleted later in the batch are dropped</li>
+ * <li>an entity is added to an index with the same key and value only once</li>
+ * </ul>
+ * Only operations without result object or with a property write's entity as result are removed, they are marked
+ * as compacted and still update their entity after the batch was executed. Reads, queries, other deletes and other
+ * requests end the range of operations that are combined, so they see the same state as without compaction.
+ */
+public class BatchCompactor {
+    private static final String PROPERTIES = "properties/";
+
+    private final Map<String, RestOperation> creates = new HashMap<String, RestOperation>();
+    private final Set<RestOperation> copied = new HashSet<RestOperation>();
+    private final Map<String, RestOperation> propertyWrites = new HashMap<String, RestOperation>();
+    private final Map<String, List<RestOperation>> entityWrites = new HashMap<String, List<RestOperation>>();
+    private final Set<List<Object>> indexEntries = new HashSet<List<Object>>();
+    private int compacted;
+
+    /**
+     * @return number of removed operations
+     */
+    public int compact(RestOperations operations) {
+        compacted = 0;
+        for (RestOperation operation : operations.getRecordedRequests().values()) {
+            if (!operation.isCompacted()) add(operation);
+        }
+        clear();
+        operations.countCompacted(compacted);
+        return compacted;
+    }
+
+    private void add(RestOperation operation) {
+        final Methods method = operation.getMethod();
+        final String uri = operation.getUri();
+        final String base = operation.getBaseUri();
+        if (method == Methods.PUT && uri.startsWith(PROPERTIES) && isRemovable(operation)) {
+            final String key = uri.substring(PROPERTIES.length());
+            final RestOperation create = creates.get(base);
+            if (create != null && fold(create, key, operation.getData())) {
+                remove(operation);
+                return;
+            }
+            final RestOperation previous = propertyWrites.put(base + "/" + key, operation);
+            if (previous != null) remove(previous);
+            entityWrites(base).add(operation);
+        } else if (method == Methods.DELETE && uri.startsWith(PROPERTIES)) {
+            propertyWrites.remove(base + "/" + uri.substring(PROPERTIES.length()));
+            creates.remove(base);
+            entityWrites(base).add(operation);
+        } else if (method == Methods.DELETE && uri.length() == 0) {
+            final List<RestOperation> writes = entityWrites.remove(base);
+            if (writes != null) {
+                for (RestOperation write : writes) {
+                    if (isRemovable(write)) remove(write);
+                }
+            }
+            creates.remove(base);
+        } else if (method == Methods.POST && isIndexEntry(operation)) {
+            final Map<?, ?> data = (Map<?, ?>) operation.getData();
+            if (!indexEntries.add(Arrays.asList(uri, data.get("key"), data.get("value"), data.get("uri")))) {
+                remove(operation);
+                return;
+            }
+            entityWrites(String.valueOf(data.get("uri"))).add(operation);
+        } else if (method == Methods.POST && (isNodeCreation(operation) || isRelationshipCreation(operation))) {
+            creates.put("{" + operation.getBatchId() + "}", operation);
+        } else {
+            clear();
+        }
+    }
+
+    private void clear() {
+        creates.clear();
+        copied.clear();
+        propertyWrites.clear();
+        entityWrites.clear();
+        indexEntries.clear();
+    }
+
+    private List<RestOperation> entityWrites(String base) {
+        List<RestOperation> writes = entityWrites.get(base);
+        if (writes == null) {
+            writes = new ArrayList<RestOperation>();
+            entityWrites.put(base, writes);
+        }
+        return writes;
+    }
+
+    private void remove(RestOperation operation) {
+        if (operation.isCompacted()) return;
+        operation.compact();
+        compacted++;
+    }
+
+    private boolean isRemovable(RestOperation operation) {
+        return operation.getEntity() == null || operation.getResultConverter() instanceof RestEntityPropertyRefresher;
+    }
+
+    private boolean isIndexEntry(RestOperation operation) {
+        if (!operation.getUri().startsWith("index/") || operation.getUri().contains("?")) return false;
+        if (operation.getEntity() != null || !(operation.getData() instanceof Map)) return false;
+        final Map<?, ?> data = (Map<?, ?>) operation.getData();
+        return data.containsKey("uri") && data.containsKey("key") && data.containsKey("value");
+    }
+
+    private boolean isNodeCreation(RestOperation operation) {
+        return operation.getUri().equals("node") && (operation.getData() == null || operation.getData() instanceof Map);
+    }
+
+    private boolean isRelationshipCreation(RestOperation operation) {
+        return operation.getUri().equals("relationships") && operation.getData() instanceof Map;
+    }
+
+    /**
+     * adds the property to a copy of the properties the entity is created with
+     */
+    @SuppressWarnings("unchecked")
+    private boolean fold(RestOperation create, String key, Object value) {
+        final boolean relationship = isRelationshipCreation(create);
+        if (!copied.contains(create)) {
+            final Map<String, Object> body = copy(create.getData());
+            if (body == null) return false;
+            if (relationship) {
+                final Map<String, Object> properties = copy(body.get("data"));
+                if (properties == null) return false;
+                body.put("data", properties);
+            }
+            create.setData(body);
+            copied.add(create);
+        }
+        final Map<String, Object> body = (Map<String, Object>) create.getData();
+        final Map<String, Object> properties = relationship ? (Map<String, Object>) body.get("data") : body;
+        properties.put(key, value);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> copy(Object data) {
+        if (data == null) return new LinkedHashMap<String, Object>();
+        if (!(data instanceof Map)) return null;
+        return new LinkedHashMap<String, Object>((Map<String, Object>) data);
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation.Methods;
+
+/**
+ * Splits the recorded operations of a batch into independent partitions that can be sent as concurrent /batch
+ * requests. Operations are connected (with union-find) if one references the {id} placeholder of the other in its
+ * uri or body, or if they touch the same existing node, relationship or unique index entry, connected operations
+ * stay in one partition in their recorded order. The connected groups are distributed over the partitions by
+ * size. A batch containing an operation that is not attributable to entities (reads, queries, index removals, deletions of existing entities, ...)
+ * is not split.
+ */
+public class BatchPartitioner {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\d+)\\}");
+    private static final Pattern ENTITY = Pattern.compile("^https?://.*/(node|relationship)/\\d+");
+
+    private final String baseUri;
+
+    public BatchPartitioner(String baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * @return at most the given number of partitions, a single one if the operations can't be split
+     */
+    public List<List<RestOperation>> partition(RestOperations operations, int partitions) {
+        final List<RestOperation> pending = new ArrayList<RestOperation>();
+        for (RestOperation operation : operations.getRecordedRequests().values()) {
+            if (!operation.isCompacted()) pending.add(operation);
+        }
+        if (partitions < 2 || pending.size() < 2) return Collections.singletonList(pending);
+
+        final int size = pending.size();
+        final int[] parents = new int[size];
+        final Map<Long, Integer> indexes = new HashMap<Long, Integer>(size * 4 / 3 + 1);
+        final Map<String, Integer> entities = new HashMap<String, Integer>();
+        for (int i = 0; i < size; i++) {
+            parents[i] = i;
+            indexes.put(pending.get(i).getBatchId(), i);
+        }
+        for (int i = 0; i < size; i++) {
+            final RestOperation operation = pending.get(i);
+            if (!isEntityOperation(operation)) return Collections.singletonList(pending);
+            final List<String> references = new ArrayList<String>();
+            references.add(operation.getBaseUri());
+            references.add(operation.getUri());
+            collectStrings(operation.getData(), references);
+            if (operation.getUri().endsWith("?unique") && operation.getData() instanceof Map) {
+                final Map<?, ?> data = (Map<?, ?>) operation.getData();
+                references.add(operation.getUri() + "|" + data.get("key") + "|" + data.get("value"));
+            }
+            for (String reference : references) {
+                final Matcher placeholder = PLACEHOLDER.matcher(reference);
+                while (placeholder.find()) {
+                    final Integer other = indexes.get(Long.parseLong(placeholder.group(1)));
+                    if (other != null) union(parents, i, other);
+                }
+                final String entity = entityKey(reference);
+                if (entity == null) continue;
+                final Integer other = entities.get(entity);
+                if (other == null) entities.put(entity, i);
+                else union(parents, i, other);
+            }
+        }
+        return distribute(pending, parents, partitions);
+    }
+
+    /**
+     * entity and index writes, which the dependency analysis can attribute to the entities they touch
+     */
+    private boolean isEntityOperation(RestOperation operation) {
+        final String uri = operation.getUri();
+        if (!operation.isSameUri(baseUri)) {
+            // a deleted existing relationship is not connected to its deleted nodes, which must be deleted after it
+            if (operation.getMethod() == Methods.DELETE && uri.length() == 0 && entityKey(operation.getBaseUri()) != null) return false;
+            return entityKey(operation.getBaseUri()) != null || PLACEHOLDER.matcher(operation.getBaseUri()).lookingAt();
+        }
+        if (operation.getMethod() != Methods.POST) return false;
+        if (uri.equals("node")) return true;
+        if (!uri.startsWith("index/") || !(operation.getData() instanceof Map)) return false;
+        return uri.endsWith("?unique") || ((Map<?, ?>) operation.getData()).containsKey("uri");
+    }
+
+    /**
+     * the uri of the existing node or relationship the reference points to, or the unique index entry
+     */
+    private String entityKey(String reference) {
+        if (reference.contains("?unique|")) return reference;
+        final Matcher entity = ENTITY.matcher(reference);
+        return entity.lookingAt() ? entity.group() : null;
+    }
+
+    private void collectStrings(Object value, List<String> strings) {
+        if (value instanceof String) {
+            strings.add((String) value);
+        } else if (value instanceof Map) {
+            for (Object element : ((Map<?, ?>) value).values()) {
+                collectStrings(element, strings);
+            }
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                collectStrings(element, strings);
+            }
+        } else if (value instanceof Object[]) {
+            for (Object element : (Object[]) value) {
+                collectStrings(element, strings);
+            }
+        }
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int a, int b) {
+        final int rootA = find(parents, a);
+        final int rootB = find(parents, b);
+        if (rootA == rootB) return;
+        // the smaller index stays the root, so a group is identified by its first operation
+        if (rootA < rootB) parents[rootB] = rootA;
+        else parents[rootA] = rootB;
+    }
+
+    /**
+     * assigns each group as a whole to the partition with the fewest operations, the partitions keep the recorded order
+     */
+    private List<List<RestOperation>> distribute(List<RestOperation> pending, int[] parents, int partitions) {
+        final int size = pending.size();
+        final int[] groupSizes = new int[size];
+        for (int i = 0; i < size; i++) {
+            groupSizes[find(parents, i)]++;
+        }
+        final List<Integer> roots = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            if (groupSizes[i] > 0) roots.add(i);
+        }
+        if (roots.size() < 2) return Collections.singletonList(pending);
+        Collections.sort(roots, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return groupSizes[b] - groupSizes[a];
+            }
+        });
+        final int count = Math.min(partitions, roots.size());
+        final int[] loads = new int[count];
+        final int[] assigned = new int[size];
+        for (Integer root : roots) {
+            int lightest = 0;
+            for (int p = 1; p < count; p++) {
+                if (loads[p] < loads[lightest]) lightest = p;
+            }
+            assigned[root] = lightest;
+            loads[lightest] += groupSizes[root];
+        }
+        final List<List<RestOperation>> result = new ArrayList<List<RestOperation>>(count);
+        for (int p = 0; p < count; p++) {
+            result.add(new ArrayList<RestOperation>(loads[p]));
+        }
+        for (int i = 0; i < size; i++) {
+            result.get(assigned[find(parents, i)]).add(pending.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.UpdatableRestResult;
+import org.neo4j.rest.graphdb.util.ConvertedResult;
+import org.neo4j.rest.graphdb.util.Handler;
+import org.neo4j.rest.graphdb.util.QueryResult;
+import org.neo4j.rest.graphdb.util.ResultConverter;
+
+/**
+ * Result of a cypher query recorded in a batch, the rows are filled in when the batch is executed.
+ */
+public class BatchQueryResult implements QueryResult<Map<String, Object>>, UpdatableRestResult<QueryResult<Map<String, Object>>> {
+    private QueryResult<Map<String, Object>> result;
+
+    @Override
+    public void updateFrom(QueryResult<Map<String, Object>> newValue, RestAPI restApi) {
+        this.result = newValue;
+    }
+
+    private QueryResult<Map<String, Object>> getResult() {
+        if (result==null) throw new IllegalStateException("Rest Batch Request has not been executed, results only available after successful execution.");
+        return result;
+    }
+
+    @Override
+    public <R> ConvertedResult<R> to(Class<R> type) {
+        return getResult().to(type);
+    }
+
+    @Override
+    public <R> ConvertedResult<R> to(Class<R> type, ResultConverter<Map<String, Object>, R> resultConverter) {
+        return getResult().to(type, resultConverter);
+    }
+
+    @Override
+    public void handle(Handler<Map<String, Object>> handler) {
+        getResult().handle(handler);
+    }
+
+    @Override
+    public Iterator<Map<String, Object>> iterator() {
+        return getResult().iterator();
+    }
+}
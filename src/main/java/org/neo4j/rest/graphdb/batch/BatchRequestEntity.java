@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.codehaus.jackson.io.JsonStringEncoder;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation;
+import org.neo4j.rest.graphdb.util.JsonCodec;
+
+/**
+ * Writes the recorded operations as the body of a /batch request directly onto the connection output stream,
+ * without building a list of maps and a String of the whole batch first. Only the bodies of the operations are
+ * encoded by the codec, the rest of the envelope is written as is.
+ */
+public class BatchRequestEntity implements StreamingOutput {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final byte[] METHOD = ascii("{\"method\":\"");
+    private static final byte[] TO = ascii("\",\"to\":\"");
+    private static final byte[] BODY = ascii("\",\"body\":");
+    private static final byte[] ID = ascii(",\"id\":");
+    private static final byte[] QUOTED_ID = ascii("\",\"id\":");
+
+    private final Collection<RestOperation> operations;
+    private final String baseUri;
+    private final JsonCodec codec;
+
+    public BatchRequestEntity(RestOperations operations, String baseUri, JsonCodec codec) {
+        this(operations.getRecordedRequests().values(), baseUri, codec);
+    }
+
+    public BatchRequestEntity(Collection<RestOperation> operations, String baseUri, JsonCodec codec) {
+        this.operations = operations;
+        this.baseUri = baseUri;
+        this.codec = codec;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(ASCII);
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        final OutputStream out = new BufferedOutputStream(output, 8192);
+        final JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        out.write('[');
+        boolean first = true;
+        for (RestOperation operation : operations) {
+            if (operation.isCompacted()) continue;
+            if (!first) out.write(',');
+            first = false;
+            out.write(METHOD);
+            out.write(ascii(operation.getMethod().name()));
+            out.write(TO);
+            out.write(encoder.quoteAsUTF8(operation.getTarget(baseUri)));
+            if (operation.getData() != null) {
+                out.write(BODY);
+                codec.encode(operation.getData(), out);
+                out.write(ID);
+            } else {
+                out.write(QUOTED_ID);
+            }
+            out.write(ascii(Long.toString(operation.getBatchId())));
+            out.write('}');
+        }
+        out.write(']');
+        out.flush();
+    }
+
+    @Override
+    public String toString() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(bytes);
+            return bytes.toString("UTF-8");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
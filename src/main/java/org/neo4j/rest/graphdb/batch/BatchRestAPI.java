@@ -21,9 +21,14 @@ package org.neo4j.rest.graphdb.batch;
 
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.graphdb.Relationship;
@@ -35,23 +40,35 @@ import org.neo4j.rest.graphdb.converter.RelationshipIterableConverter;
 import org.neo4j.rest.graphdb.converter.RestEntityExtractor;
 import org.neo4j.rest.graphdb.converter.RestEntityPropertyRefresher;
 import org.neo4j.rest.graphdb.converter.RestIndexHitsConverter;
+import org.neo4j.rest.graphdb.converter.RestQueryResultConverter;
 import org.neo4j.rest.graphdb.entity.RestEntity;
 import org.neo4j.rest.graphdb.entity.RestNode;
 import org.neo4j.rest.graphdb.entity.RestRelationship;
 import org.neo4j.rest.graphdb.index.IndexInfo;
 import org.neo4j.rest.graphdb.index.RestIndex;
 import org.neo4j.rest.graphdb.index.SimpleIndexHits;
+import org.neo4j.rest.graphdb.query.ColumnarResult;
 import org.neo4j.rest.graphdb.services.RequestType;
+import org.neo4j.rest.graphdb.util.Config;
 import org.neo4j.rest.graphdb.util.JsonHelper;
+import org.neo4j.rest.graphdb.util.QueryResult;
+import org.neo4j.rest.graphdb.util.ResultConverter;
 
 public class BatchRestAPI extends ExecutingRestAPI {
 
     private final ExecutingRestAPI executingRestApi;
+    private final boolean compaction = Config.compactBatches();
+    private final int parallelism = Config.getBatchParallelism();
 
     public BatchRestAPI(String baseUri, RestAPIFacade facade) {
-        super(baseUri,facade);
+        super(baseUri, null, null, facade, facade.getCodec());
         executingRestApi = facade.getDirect();
-        this.restRequest =  new RecordingRestRequest(new RestOperations(), baseUri);
+        final RestOperations operations = new RestOperations(Config.getBatchMaxOperations(), Config.getBatchMaxBytes(), new RestOperations.Flusher() {
+            public void flush(RestOperations operations) {
+                sendBatch(operations);
+            }
+        });
+        this.restRequest =  new RecordingRestRequest(operations, baseUri);
     }
 
     @Override
@@ -111,6 +128,28 @@ public class BatchRestAPI extends ExecutingRestAPI {
         return result;
     }    
 
+    /**
+     * The query is sent with the batch, its rows are only available after the batch was executed.
+     */
+    @Override
+    public QueryResult<Map<String, Object>> query(String statement, Map<String, Object> params, ResultConverter resultConverter) {
+        params =  (params==null) ? Collections.<String,Object>emptyMap() : params;
+        final RequestResult response = restRequest.post("cypher", MapUtil.map("query", statement, "params", params));
+        final BatchQueryResult result = new BatchQueryResult();
+        getRecordingRequest().getOperations().addToRestOperation(response.getBatchId(), result, new RestQueryResultConverter(facade, resultConverter));
+        return result;
+    }
+
+    @Override
+    public Map<?, ?> query(String statement, Map<String, Object> params) {
+        throw new UnsupportedOperationException("Raw query results are not available in a batch, use query(statement, params, resultConverter)");
+    }
+
+    @Override
+    public ColumnarResult queryColumnar(String statement, Map<String, Object> params) {
+        throw new UnsupportedOperationException("Columnar results are not available in a batch");
+    }
+
     @Override
     public void setPropertyOnEntity( RestEntity entity, String key, Object value ) {       
         RequestResult response = getRestRequest().with(entity.getUri()).put("properties/" + key, value);
@@ -129,87 +168,105 @@ public class BatchRestAPI extends ExecutingRestAPI {
         restRequest.post(index.indexPath(), data);
     }
 
+    /**
+     * Operations are recorded on the calling thread, their results are filled in when the batch is executed.
+     */
+    @Override
+    protected <T> Future<T> submit(Callable<T> callable) {
+        final FutureTask<T> task = new FutureTask<T>(callable);
+        task.run();
+        return task;
+    }
+
+    /**
+     * Sends the operations that were not flushed yet, see {@link Config#getBatchMaxOperations()}.
+     */
     public void executeBatchRequest() {
         stop();
-        RestOperations operations = getRecordedOperations();
-        RequestResult response = executingRestApi.batch(createBatchRequestData(operations));
-        Map<Long, Object> mappedObjects = convertRequestResultToEntities(operations, response);
-        updateRestOperations(operations, mappedObjects);
+        getRecordedOperations().flush();
     }
 
-    protected void updateRestOperations(RestOperations operations, Map<Long, Object> mappedObjects) {
-        for (RestOperations.RestOperation operation : operations.getRecordedRequests().values()) {
-            operation.updateEntity(mappedObjects.get(operation.getBatchId()), executingRestApi);
+    protected void sendBatch(RestOperations operations) {
+        if (compaction) new BatchCompactor().compact(operations);
+        final String baseUri = executingRestApi.getBaseUri();
+        final List<List<RestOperations.RestOperation>> partitions = parallelism > 1 ? new BatchPartitioner(baseUri).partition(operations, parallelism) : null;
+        Map<Long, Object> mappedObjects;
+        if (partitions == null || partitions.size() == 1) {
+            RequestResult response = executingRestApi.batch(new BatchRequestEntity(operations, baseUri, getCodec()));
+            mappedObjects = response.decode(new BatchResultDecoder(operations));
+        } else {
+            mappedObjects = sendPartitions(operations, partitions);
         }
+        updateRestOperations(operations, mappedObjects);
     }
 
-    @Override
-    protected <T extends PropertyContainer> String indexPath(String indexPath, T entity) {
-        RestEntity restEntity = (RestEntity) entity;
-        if (isNewEntity(restEntity)) throw new UnsupportedOperationException("Cannot delete newly created entities from index " + entity);
-        return super.indexPath(indexPath, restEntity);
-    }
-
-    private boolean isNewEntity(RestEntity restEntity) {
-        return restEntity.getUri().startsWith("{");
-    }
-
-    @SuppressWarnings("unchecked")
-    protected Map<Long, Object> convertRequestResultToEntities(RestOperations operations, RequestResult response) {
-        Object result = response.toEntity();
-        if (RestResultException.isExceptionResult(result)) {
-            throw new RestResultException(result);
+    /**
+     * Sends the independent partitions as concurrent /batch requests, each of them commits on its own. If a partition
+     * fails, the entities of the committed partitions are updated before the failure is rethrown.
+     */
+    private Map<Long, Object> sendPartitions(RestOperations operations, List<List<RestOperations.RestOperation>> partitions) {
+        final AsyncRestRequest request = executingRestApi.getAsyncRestRequest();
+        final List<Future<RequestResult>> responses = new ArrayList<Future<RequestResult>>(partitions.size());
+        for (List<RestOperations.RestOperation> partition : partitions) {
+            responses.add(request.post("batch", new BatchRequestEntity(partition, executingRestApi.getBaseUri(), getCodec())));
         }
-        Collection<Map<String, Object>> responseCollection = (Collection<Map<String, Object>>) result;
-        Map<Long, Object> mappedObjects = new HashMap<Long, Object>(responseCollection.size());
-        for (Map<String, Object> entry : responseCollection) {
-            if (RestResultException.isExceptionResult(entry)) {
-                throw new RestResultException(entry);
+        final Map<Long, Object> mappedObjects = new HashMap<Long, Object>();
+        final List<Integer> failed = new ArrayList<Integer>();
+        Throwable failure = null;
+        for (int i = 0; i < responses.size(); i++) {
+            try {
+                mappedObjects.putAll(responses.get(i).get().decode(new BatchResultDecoder(operations)));
+                continue;
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+            } catch (ExecutionException e) {
+                if (failure == null) failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) failure = e;
             }
-            final Long batchId = getBatchId(entry);
-            final RequestResult subResult = RequestResult.extractFrom(entry);
-            RestOperations.RestOperation restOperation = operations.getOperation(batchId);
-            if (restOperation.getEntity() != null){
-                Object entity = restOperation.getResultConverter().convertFromRepresentation(subResult);
-                mappedObjects.put(batchId, entity);
+            failed.add(i);
+        }
+        if (failed.isEmpty()) return mappedObjects;
+        final StringBuilder message = new StringBuilder("Batch partitions failed, the other partitions were committed:");
+        for (int i = 0; i < partitions.size(); i++) {
+            final List<RestOperations.RestOperation> partition = partitions.get(i);
+            if (failed.contains(i)) {
+                message.append(" partition ").append(i).append(" with operations ").append(batchIds(partition));
+                continue;
+            }
+            for (RestOperations.RestOperation operation : partition) {
+                operation.updateEntity(mappedObjects.get(operation.getBatchId()), executingRestApi);
             }
-
         }
-        return mappedObjects;
+        throw new RuntimeException(message.toString(), failure);
     }
 
-
-    private Long getBatchId(Map<String, Object> entry) {
-        return ((Number) entry.get("id")).longValue();
+    private static List<Long> batchIds(List<RestOperations.RestOperation> partition) {
+        final List<Long> batchIds = new ArrayList<Long>(partition.size());
+        for (RestOperations.RestOperation operation : partition) {
+            batchIds.add(operation.getBatchId());
+        }
+        return batchIds;
     }
 
-    protected Collection<Map<String, Object>> createBatchRequestData(RestOperations operations) {
-        Collection<Map<String, Object>> batch = new ArrayList<Map<String, Object>>();
-        final String baseUri = executingRestApi.getBaseUri();
+    protected void updateRestOperations(RestOperations operations, Map<Long, Object> mappedObjects) {
         for (RestOperations.RestOperation operation : operations.getRecordedRequests().values()) {
-            Map<String, Object> params = new HashMap<String, Object>();
-            params.put("method", operation.getMethod());
-            if (operation.isSameUri(baseUri)) {
-                params.put("to", operation.getUri());
-            } else {
-                params.put("to",createOperationUri(operation));
-            }
-            if (operation.getData() != null) {
-                params.put("body", operation.getData());
-            }
-            params.put("id", operation.getBatchId());
-            batch.add(params);
+            // a compacted property write refreshes its entity as the executed one would have
+            final Object result = operation.isCompacted() ? operation.getEntity() : mappedObjects.get(operation.getBatchId());
+            operation.updateEntity(result, executingRestApi);
         }
-        return batch;
     }
 
-    private String createOperationUri(RestOperations.RestOperation operation){
-        String uri =  operation.getBaseUri();
-        String suffix = operation.getUri();
-        if (suffix.startsWith("/")){
-            return uri + suffix;
-        }
-        return uri + "/" + suffix;
+    @Override
+    protected <T extends PropertyContainer> String indexPath(String indexPath, T entity) {
+        RestEntity restEntity = (RestEntity) entity;
+        if (isNewEntity(restEntity)) throw new UnsupportedOperationException("Cannot delete newly created entities from index " + entity);
+        return super.indexPath(indexPath, restEntity);
+    }
+
+    private boolean isNewEntity(RestEntity restEntity) {
+        return restEntity.getUri().startsWith("{");
     }
 
 
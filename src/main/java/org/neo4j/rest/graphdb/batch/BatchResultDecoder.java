@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.neo4j.rest.graphdb.RequestResult;
+import org.neo4j.rest.graphdb.RestResultException;
+import org.neo4j.rest.graphdb.converter.ResultDecoder;
+import org.neo4j.rest.graphdb.util.StreamingJsonCodec;
+
+/**
+ * Reads the response of a /batch request entry by entry. The body of each entry is decoded once and handed to
+ * the {@link org.neo4j.rest.graphdb.converter.RestResultConverter} of its operation as an already decoded
+ * {@link RequestResult}, the result maps the batch ids to the converted objects.
+ */
+public class BatchResultDecoder implements ResultDecoder<Map<Long, Object>> {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final RestOperations operations;
+
+    public BatchResultDecoder(RestOperations operations) {
+        this.operations = operations;
+    }
+
+    @Override
+    public Map<Long, Object> decode(String json) {
+        try {
+            return decodeDocument(JSON_FACTORY.createJsonParser(json));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading batch result from '" + json + "'", e);
+        }
+    }
+
+    @Override
+    public Map<Long, Object> decode(InputStream stream) {
+        try {
+            return decodeDocument(JSON_FACTORY.createJsonParser(stream));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading batch result from stream", e);
+        }
+    }
+
+    private Map<Long, Object> decodeDocument(JsonParser parser) throws IOException {
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new RestResultException(parser.getCurrentToken() == null ? null : StreamingJsonCodec.decodeValue(parser));
+            }
+            final Map<Long, Object> mappedObjects = new HashMap<Long, Object>();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                final Map<String, Object> entry = new LinkedHashMap<String, Object>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+                    entry.put(name, StreamingJsonCodec.decodeValue(parser));
+                }
+                add(entry, mappedObjects);
+            }
+            return mappedObjects;
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Object> convert(Object value) {
+        if (RestResultException.isExceptionResult(value)) {
+            throw new RestResultException(value);
+        }
+        final Collection<Map<String, Object>> entries = (Collection<Map<String, Object>>) value;
+        final Map<Long, Object> mappedObjects = new HashMap<Long, Object>(entries.size());
+        for (Map<String, Object> entry : entries) {
+            add(entry, mappedObjects);
+        }
+        return mappedObjects;
+    }
+
+    private void add(Map<String, Object> entry, Map<Long, Object> mappedObjects) {
+        if (RestResultException.isExceptionResult(entry)) {
+            throw new RestResultException(entry);
+        }
+        final long batchId = ((Number) entry.get("id")).longValue();
+        final String location = (String) entry.get("location");
+        operations.addLocation(batchId, location);
+        final RestOperations.RestOperation operation = operations.getOperation(batchId);
+        if (operation != null && operation.getEntity() != null) {
+            final RequestResult subResult = RequestResult.decoded(200, location, entry.get("body"));
+            mappedObjects.put(batchId, operation.getResultConverter().convertFromRepresentation(subResult));
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.PropertyContainer;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.entity.RestEntity;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.entity.RestRelationship;
+import org.neo4j.rest.graphdb.index.RestIndex;
+import org.neo4j.rest.graphdb.util.Config;
+import org.neo4j.rest.graphdb.util.DaemonThreadFactory;
+
+/**
+ * Group commit for writes of many threads. Writes are queued and executed by worker threads, each of which takes
+ * the writes that arrive within a short window (up to a maximum number) and sends them as one batch transaction.
+ * The futures returned for the writes complete when their batch was executed; if the batch fails, all of its writes
+ * fail. Submitting blocks while the queue is full.
+ * <p/>
+ * Writes of one group are independent of each other, a write that needs the entity of another one has to wait for its future.
+ */
+public class BatchWriter {
+    private static final long POLL_MILLIS = 100;
+
+    private final RestAPIFacade facade;
+    private final BlockingQueue<Write<?>> queue;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final ExecutorService workers;
+    private volatile boolean closed;
+
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong maxBatch = new AtomicLong();
+    private final AtomicLong queueNanos = new AtomicLong();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    public BatchWriter(RestAPIFacade facade) {
+        this(facade, Config.getWriterThreads(), Config.getWriteBatchSize(), Config.getWriteBatchWindowMillis(), Config.getWriteQueueSize());
+    }
+
+    /**
+     * @param threads worker threads, each sends one batch at a time
+     * @param maxBatchSize writes per batch
+     * @param windowMillis time a worker waits for more writes after it took the first one of a batch
+     * @param queueSize writes waiting for a worker before submitting blocks
+     */
+    public BatchWriter(RestAPIFacade facade, int threads, int maxBatchSize, long windowMillis, int queueSize) {
+        this.facade = facade;
+        this.queue = new ArrayBlockingQueue<Write<?>>(queueSize);
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.workers = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("neo4j-rest-writer"));
+        for (int i = 0; i < threads; i++) {
+            workers.execute(new Runnable() {
+                public void run() {
+                    work();
+                }
+            });
+        }
+    }
+
+    /**
+     * Queues a write, the callback records it against the batch api of the worker.
+     */
+    public <T> Future<T> submit(BatchCallback<T> callback) {
+        if (closed) throw new RejectedExecutionException("BatchWriter is closed");
+        final Write<T> write = new Write<T>(callback);
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for space in the write queue", e);
+        }
+        return write;
+    }
+
+    public Future<RestNode> createNode(final Map<String, Object> props) {
+        return submit(new BatchCallback<RestNode>() {
+            public RestNode recordBatch(RestAPI restApi) {
+                return restApi.createNode(props);
+            }
+        });
+    }
+
+    public Future<RestRelationship> createRelationship(final Node startNode, final Node endNode, final RelationshipType type, final Map<String, Object> props) {
+        return submit(new BatchCallback<RestRelationship>() {
+            public RestRelationship recordBatch(RestAPI restApi) {
+                return restApi.createRelationship(startNode, endNode, type, props);
+            }
+        });
+    }
+
+    public Future<Void> setProperty(final RestEntity entity, final String key, final Object value) {
+        return submit(new BatchCallback<Void>() {
+            public Void recordBatch(RestAPI restApi) {
+                restApi.setPropertyOnEntity(entity, key, value);
+                return null;
+            }
+        });
+    }
+
+    public <T extends PropertyContainer> Future<Void> addToIndex(final T entity, final RestIndex index, final String key, final Object value) {
+        return submit(new BatchCallback<Void>() {
+            public Void recordBatch(RestAPI restApi) {
+                restApi.addToIndex(entity, index, key, value);
+                return null;
+            }
+        });
+    }
+
+    private void work() {
+        final List<Write<?>> group = new ArrayList<Write<?>>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                collect(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (group.isEmpty()) continue;
+            execute(group);
+            group.clear();
+        }
+    }
+
+    private void collect(List<Write<?>> group) throws InterruptedException {
+        final Write<?> first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        group.add(first);
+        final long deadline = System.nanoTime() + windowNanos;
+        while (group.size() < maxBatchSize) {
+            queue.drainTo(group, maxBatchSize - group.size());
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || group.size() >= maxBatchSize) return;
+            final Write<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            group.add(next);
+        }
+    }
+
+    private void execute(final List<Write<?>> group) {
+        final long started = System.nanoTime();
+        for (Write<?> write : group) {
+            recordLatency(started - write.queued);
+        }
+        try {
+            facade.executeBatch(new BatchCallback<Void>() {
+                public Void recordBatch(RestAPI restApi) {
+                    for (Write<?> write : group) {
+                        if (!write.isCancelled()) write.record(restApi);
+                    }
+                    return null;
+                }
+            });
+            for (Write<?> write : group) {
+                write.complete();
+            }
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            for (Write<?> write : group) {
+                write.fail(e);
+            }
+        }
+        writes.addAndGet(group.size());
+        batches.incrementAndGet();
+        updateMax(maxBatch, group.size());
+    }
+
+    private void recordLatency(long nanos) {
+        queueNanos.addAndGet(nanos);
+        updateMax(maxQueueNanos, nanos);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while ((current = max.get()) < value && !max.compareAndSet(current, value)) ;
+    }
+
+    /**
+     * Executes the queued writes and stops the workers, writes submitted afterwards are rejected.
+     */
+    public void close() {
+        closed = true;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(Config.getReadTimeout() + POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for (Write<?> write; (write = queue.poll()) != null; ) {
+            write.fail(new RejectedExecutionException("BatchWriter was closed before the write was executed"));
+        }
+    }
+
+    /**
+     * @return number of writes waiting for a worker
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getWrites() {
+        return writes.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public double getAverageBatchSize() {
+        final long batches = getBatches();
+        return batches == 0 ? 0 : (double) getWrites() / batches;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatch.get();
+    }
+
+    /**
+     * @return average time the writes waited in the queue before their batch was sent
+     */
+    public double getAverageQueueLatencyMicros() {
+        final long writes = getWrites();
+        return writes == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(queueNanos.get()) / (double) writes;
+    }
+
+    public long getMaxQueueLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxQueueNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchWriter{writes=%d, batches=%d, failed=%d, batchSize=%.1f (max %d), queueLatency=%.0fus (max %dus), queued=%d}",
+                getWrites(), getBatches(), getFailedBatches(), getAverageBatchSize(), getMaxBatchSize(),
+                getAverageQueueLatencyMicros(), getMaxQueueLatencyMicros(), getQueueSize());
+    }
+
+    private static class Write<T> extends FutureTask<T> {
+        private static final Runnable NOTHING = new Runnable() {
+            public void run() {
+            }
+        };
+        private final BatchCallback<T> callback;
+        private final long queued = System.nanoTime();
+        private T result;
+        private RuntimeException failure;
+
+        Write(BatchCallback<T> callback) {
+            super(NOTHING, null);
+            this.callback = callback;
+        }
+
+        /**
+         * a write that fails while being recorded fails alone, the others of the group are still sent
+         */
+        void record(RestAPI restApi) {
+            try {
+                result = callback.recordBatch(restApi);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        void complete() {
+            if (failure != null) setException(failure);
+            else set(result);
+        }
+
+        void fail(Throwable t) {
+            setException(t);
+        }
+    }
+}
@@ -0,0 +1,610 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.core.MediaType;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.neo4j.rest.graphdb.ExecutingRestAPI;
+import org.neo4j.rest.graphdb.RequestResult;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.RestResultException;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation.Methods;
+import org.neo4j.rest.graphdb.converter.ResultDecoder;
+import org.neo4j.rest.graphdb.util.Config;
+import org.neo4j.rest.graphdb.util.DaemonThreadFactory;
+import org.neo4j.rest.graphdb.util.LongLongHashMap;
+import org.neo4j.rest.graphdb.util.StreamingJsonCodec;
+
+/**
+ * Loads large numbers of nodes and relationships. The records are sent in chunks, each chunk is one /batch request
+ * that commits on its own. Several chunks are in flight at once, while the server commits one chunk the next ones
+ * are already encoded and sent. The external keys of the nodes are mapped to their node ids, relationship records
+ * refer to their nodes by these keys, so all nodes have to be loaded before their relationships.
+ * <p/>
+ * The {@link ProgressListener} is told after each chunk which rows are committed: all rows up to the first chunk
+ * that is not committed yet, and the rows of the chunks committed after it. Loading again from that
+ * {@link Checkpoint} (and the key map, see {@link LongLongHashMap#writeTo}) resumes an interrupted load, the
+ * committed rows are skipped. Nodes whose key is already mapped are not created again either.
+ */
+public class BulkLoader {
+    public enum Phase { NODES, RELATIONSHIPS }
+
+    public interface ProgressListener {
+        /**
+         * @param checkpoint the committed rows (including skipped rows), the load resumes from it
+         */
+        void acknowledged(Phase phase, Checkpoint checkpoint, double rowsPerSecond);
+    }
+
+    private final ExecutingRestAPI restApi;
+    private final String baseUri;
+    private final int chunkSize;
+    private final int threads;
+    private final LongLongHashMap nodeIds;
+    private volatile ProgressListener listener;
+
+    public BulkLoader(RestAPIFacade facade) {
+        this(facade, Config.getBulkChunkSize(), Config.getBulkThreads(), new LongLongHashMap());
+    }
+
+    public BulkLoader(RestAPIFacade facade, int chunkSize, int threads, LongLongHashMap nodeIds) {
+        if (chunkSize < 1) throw new IllegalArgumentException("Chunk size must be positive " + chunkSize);
+        if (threads < 1) throw new IllegalArgumentException("Threads must be positive " + threads);
+        this.restApi = facade.getDirect();
+        this.baseUri = restApi.getBaseUri();
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+        this.nodeIds = nodeIds;
+    }
+
+    public BulkLoader withListener(ProgressListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public Stats loadNodes(Iterator<NodeRecord> records) {
+        return loadNodes(records, 0);
+    }
+
+    public Stats loadNodes(Iterator<NodeRecord> records, long skipRows) {
+        return loadNodes(records, new Checkpoint(skipRows));
+    }
+
+    public Stats loadNodes(Iterator<NodeRecord> records, Checkpoint checkpoint) {
+        return load(Phase.NODES, records, checkpoint, new RecordWriter<NodeRecord>() {
+            public RestOperation operation(long batchId, NodeRecord record) {
+                synchronized (nodeIds) {
+                    if (nodeIds.containsKey(record.getKey())) return null;
+                }
+                return new RestOperation(batchId, Methods.POST, "node", MediaType.APPLICATION_JSON_TYPE, MediaType.APPLICATION_JSON_TYPE, record.getProperties(), baseUri);
+            }
+
+            public void created(NodeRecord record, long id) {
+                synchronized (nodeIds) {
+                    nodeIds.put(record.getKey(), id);
+                }
+            }
+        });
+    }
+
+    public Stats loadRelationships(Iterator<RelationshipRecord> records) {
+        return loadRelationships(records, 0);
+    }
+
+    public Stats loadRelationships(Iterator<RelationshipRecord> records, long skipRows) {
+        return loadRelationships(records, new Checkpoint(skipRows));
+    }
+
+    public Stats loadRelationships(Iterator<RelationshipRecord> records, Checkpoint checkpoint) {
+        return load(Phase.RELATIONSHIPS, records, checkpoint, new RecordWriter<RelationshipRecord>() {
+            public RestOperation operation(long batchId, RelationshipRecord record) {
+                final Map<String, Object> data = new LinkedHashMap<String, Object>(4);
+                data.put("to", baseUri + "/node/" + getNodeId(record.getEndKey()));
+                data.put("type", record.getType());
+                if (record.getProperties() != null && !record.getProperties().isEmpty()) {
+                    data.put("data", record.getProperties());
+                }
+                return new RestOperation(batchId, Methods.POST, "node/" + getNodeId(record.getStartKey()) + "/relationships", MediaType.APPLICATION_JSON_TYPE, MediaType.APPLICATION_JSON_TYPE, data, baseUri);
+            }
+
+            public void created(RelationshipRecord record, long id) {
+            }
+        });
+    }
+
+    /**
+     * @return the id of the node loaded for the key
+     * @throws IllegalArgumentException if no node was loaded for the key
+     */
+    public long getNodeId(long key) {
+        final long id;
+        synchronized (nodeIds) {
+            id = nodeIds.get(key);
+        }
+        if (id == LongLongHashMap.MISSING) throw new IllegalArgumentException("No node loaded for key " + key);
+        return id;
+    }
+
+    /**
+     * @return the map from the external keys to the node ids, synchronize on it while nodes are loaded
+     */
+    public LongLongHashMap getNodeIds() {
+        return nodeIds;
+    }
+
+    private <R> Stats load(Phase phase, Iterator<R> records, Checkpoint checkpoint, final RecordWriter<R> writer) {
+        final Stats stats = new Stats(phase, checkpoint);
+        long row = 0;
+        while (row < checkpoint.getAcknowledgedRows() && records.hasNext()) {
+            records.next();
+            row++;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("neo4j-rest-bulk"));
+        // two chunks per thread, one being sent and one waiting, bounds the memory of records read ahead
+        final int maxInFlight = threads * 2;
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+        try {
+            try {
+                readChunks(records, row, checkpoint, writer, stats, executor, inFlight, failure);
+            } catch (RuntimeException e) {
+                // e.g. an invalid record, the chunks before it are still sent
+                failure.compareAndSet(null, e);
+            }
+            inFlight.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, new RuntimeException("Interrupted while loading " + phase, e));
+        } finally {
+            executor.shutdown();
+        }
+        stats.finish();
+        if (failure.get() != null) {
+            throw new RuntimeException("Loading " + phase + " failed, committed " + stats.getCheckpoint(), failure.get());
+        }
+        return stats;
+    }
+
+    private <R> void readChunks(Iterator<R> records, long row, Checkpoint checkpoint, final RecordWriter<R> writer, final Stats stats, ExecutorService executor,
+                                final Semaphore inFlight, final AtomicReference<RuntimeException> failure) throws InterruptedException {
+        while (failure.get() == null && records.hasNext()) {
+            final Chunk<R> chunk = new Chunk<R>(row, chunkSize);
+            while (chunk.rows < chunkSize && records.hasNext()) {
+                final R record = records.next();
+                if (checkpoint.isCommitted(row + chunk.rows++)) continue;
+                final RestOperation operation = writer.operation(chunk.operations.size(), record);
+                if (operation != null) chunk.add(record, operation);
+            }
+            chunk.endRow = row += chunk.rows;
+            inFlight.acquire();
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        if (failure.get() == null) send(chunk, writer, stats);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        }
+    }
+
+    private <R> void send(Chunk<R> chunk, RecordWriter<R> writer, Stats stats) {
+        if (!chunk.operations.isEmpty()) {
+            final RequestResult result = restApi.batch(new BatchRequestEntity(chunk.operations, baseUri, restApi.getCodec()));
+            final long[] ids = result.decode(new CreatedIdsDecoder(chunk.operations.size()));
+            for (int i = 0; i < ids.length; i++) {
+                writer.created(chunk.records.get(i), ids[i]);
+            }
+        }
+        stats.acknowledge(chunk);
+    }
+
+    private interface RecordWriter<R> {
+        /**
+         * @return the operation that creates the record, null if it was already created
+         */
+        RestOperation operation(long batchId, R record);
+
+        void created(R record, long id);
+    }
+
+    private static class Chunk<R> {
+        final long startRow;
+        final List<R> records;
+        final List<RestOperation> operations;
+        int rows;
+        long endRow;
+
+        Chunk(long startRow, int size) {
+            this.startRow = startRow;
+            this.records = new ArrayList<R>(size);
+            this.operations = new ArrayList<RestOperation>(size);
+        }
+
+        void add(R record, RestOperation operation) {
+            records.add(record);
+            operations.add(operation);
+        }
+    }
+
+    public class Stats {
+        private final Phase phase;
+        private final long start = System.nanoTime();
+        // start row to end row of the committed rows after the acknowledged rows
+        private final TreeMap<Long, Long> committed = new TreeMap<Long, Long>();
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private volatile long acknowledgedRows;
+        private volatile long end;
+
+        Stats(Phase phase, Checkpoint checkpoint) {
+            this.phase = phase;
+            this.acknowledgedRows = checkpoint.acknowledgedRows;
+            for (int i = 0; i < checkpoint.committed.length; i += 2) {
+                committed.put(checkpoint.committed[i], checkpoint.committed[i + 1]);
+            }
+        }
+
+        /**
+         * chunks complete out of order, the acknowledged rows only advance over consecutive committed rows
+         */
+        synchronized void acknowledge(Chunk<?> chunk) {
+            created.addAndGet(chunk.operations.size());
+            chunks.incrementAndGet();
+            committed.put(chunk.startRow, chunk.endRow);
+            while (!committed.isEmpty() && committed.firstKey() <= acknowledgedRows) {
+                acknowledgedRows = Math.max(acknowledgedRows, committed.pollFirstEntry().getValue());
+            }
+            final ProgressListener listener = BulkLoader.this.listener;
+            if (listener != null) listener.acknowledged(phase, getCheckpoint(), getRowsPerSecond());
+        }
+
+        void finish() {
+            end = System.nanoTime();
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        /**
+         * @return rows (including skipped rows) before which all chunks are committed
+         */
+        public long getAcknowledgedRows() {
+            return acknowledgedRows;
+        }
+
+        /**
+         * @return the committed rows, to resume the load from
+         */
+        public synchronized Checkpoint getCheckpoint() {
+            final long[] ranges = new long[committed.size() * 2];
+            int size = 0;
+            for (Map.Entry<Long, Long> range : committed.entrySet()) {
+                if (size > 0 && ranges[size - 1] == range.getKey()) {
+                    ranges[size - 1] = range.getValue();
+                } else {
+                    ranges[size++] = range.getKey();
+                    ranges[size++] = range.getValue();
+                }
+            }
+            return new Checkpoint(acknowledgedRows, Arrays.copyOf(ranges, size));
+        }
+
+        /**
+         * @return nodes or relationships created in this run
+         */
+        public long getCreated() {
+            return created.get();
+        }
+
+        public long getChunks() {
+            return chunks.get();
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis((end != 0 ? end : System.nanoTime()) - start);
+        }
+
+        /**
+         * @return created entities per second over the whole run, including reading the records
+         */
+        public double getRowsPerSecond() {
+            final long nanos = (end != 0 ? end : System.nanoTime()) - start;
+            return nanos == 0 ? 0 : created.get() * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{created=%d, chunks=%d, acknowledgedRows=%d, elapsed=%dms, rows/s=%.0f}", phase, getCreated(), getChunks(), getAcknowledgedRows(), getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+
+    /**
+     * The rows of a load that are committed: all rows before the acknowledged rows and the ranges of rows committed
+     * after them, by chunks that completed before an earlier chunk.
+     */
+    public static class Checkpoint {
+        private final long acknowledgedRows;
+        // ascending start (inclusive) and end (exclusive) rows of the committed ranges after the acknowledged rows
+        private final long[] committed;
+
+        public Checkpoint(long acknowledgedRows) {
+            this(acknowledgedRows, new long[0]);
+        }
+
+        Checkpoint(long acknowledgedRows, long[] committed) {
+            this.acknowledgedRows = acknowledgedRows;
+            this.committed = committed;
+        }
+
+        public long getAcknowledgedRows() {
+            return acknowledgedRows;
+        }
+
+        /**
+         * @return the number of committed rows, the acknowledged rows and the ones committed after them
+         */
+        public long getCommittedRows() {
+            long rows = acknowledgedRows;
+            for (int i = 0; i < committed.length; i += 2) {
+                rows += committed[i + 1] - committed[i];
+            }
+            return rows;
+        }
+
+        public boolean isCommitted(long row) {
+            if (row < acknowledgedRows) return true;
+            for (int i = 0; i < committed.length && committed[i] <= row; i += 2) {
+                if (row < committed[i + 1]) return true;
+            }
+            return false;
+        }
+
+        public void writeTo(DataOutput output) throws IOException {
+            output.writeLong(acknowledgedRows);
+            output.writeInt(committed.length / 2);
+            for (long row : committed) {
+                output.writeLong(row);
+            }
+        }
+
+        public static Checkpoint readFrom(DataInput input) throws IOException {
+            final long acknowledgedRows = input.readLong();
+            final long[] committed = new long[input.readInt() * 2];
+            for (int i = 0; i < committed.length; i++) {
+                committed[i] = input.readLong();
+            }
+            return new Checkpoint(acknowledgedRows, committed);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder result = new StringBuilder("rows before ").append(acknowledgedRows);
+            for (int i = 0; i < committed.length; i += 2) {
+                result.append(", ").append(committed[i]).append('-').append(committed[i + 1]);
+            }
+            return result.toString();
+        }
+    }
+
+    public static class NodeRecord {
+        private final long key;
+        private final Map<String, Object> properties;
+
+        public NodeRecord(long key, Map<String, Object> properties) {
+            this.key = key;
+            this.properties = properties;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public Map<String, Object> getProperties() {
+            return properties;
+        }
+    }
+
+    public static class RelationshipRecord {
+        private final long startKey;
+        private final long endKey;
+        private final String type;
+        private final Map<String, Object> properties;
+
+        public RelationshipRecord(long startKey, long endKey, String type, Map<String, Object> properties) {
+            this.startKey = startKey;
+            this.endKey = endKey;
+            this.type = type;
+            this.properties = properties;
+        }
+
+        public long getStartKey() {
+            return startKey;
+        }
+
+        public long getEndKey() {
+            return endKey;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Map<String, Object> getProperties() {
+            return properties;
+        }
+    }
+
+    /**
+     * Node records from rows, e.g. of a {@link CsvReader}, the key column is removed from the properties.
+     */
+    public static Iterator<NodeRecord> nodes(final Iterator<Map<String, Object>> rows, final String keyColumn) {
+        return new RowIterator<NodeRecord>(rows) {
+            NodeRecord convert(Map<String, Object> row) {
+                return new NodeRecord(key(row, keyColumn), row);
+            }
+        };
+    }
+
+    /**
+     * Relationship records from rows, e.g. of a {@link CsvReader}, the key and type columns are removed from the properties.
+     */
+    public static Iterator<RelationshipRecord> relationships(final Iterator<Map<String, Object>> rows, final String startColumn, final String endColumn, final String typeColumn) {
+        return new RowIterator<RelationshipRecord>(rows) {
+            RelationshipRecord convert(Map<String, Object> row) {
+                final Object type = row.remove(typeColumn);
+                if (type == null) throw new IllegalArgumentException("Row without " + typeColumn + ": " + row);
+                return new RelationshipRecord(key(row, startColumn), key(row, endColumn), type.toString(), row);
+            }
+        };
+    }
+
+    private static long key(Map<String, Object> row, String column) {
+        final Object key = row.remove(column);
+        if (key instanceof Number) return ((Number) key).longValue();
+        if (key == null) throw new IllegalArgumentException("Row without " + column + ": " + row);
+        return Long.parseLong(key.toString().trim());
+    }
+
+    private abstract static class RowIterator<T> implements Iterator<T> {
+        private final Iterator<Map<String, Object>> rows;
+
+        RowIterator(Iterator<Map<String, Object>> rows) {
+            this.rows = rows;
+        }
+
+        abstract T convert(Map<String, Object> row);
+
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        public T next() {
+            return convert(rows.next());
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Reads only the ids and locations of a batch response, the bodies of the created entities are skipped.
+     */
+    static class CreatedIdsDecoder implements ResultDecoder<long[]> {
+        private static final JsonFactory JSON_FACTORY = new JsonFactory();
+        private final long[] ids;
+
+        CreatedIdsDecoder(int operations) {
+            this.ids = new long[operations];
+        }
+
+        @Override
+        public long[] decode(String json) {
+            try {
+                return decodeDocument(JSON_FACTORY.createJsonParser(json));
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading batch result from '" + json + "'", e);
+            }
+        }
+
+        @Override
+        public long[] decode(InputStream stream) {
+            try {
+                return decodeDocument(JSON_FACTORY.createJsonParser(stream));
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading batch result from stream", e);
+            }
+        }
+
+        private long[] decodeDocument(JsonParser parser) throws IOException {
+            try {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new RestResultException(parser.getCurrentToken() == null ? null : StreamingJsonCodec.decodeValue(parser));
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    long id = -1;
+                    String location = null;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        final String name = parser.getCurrentName();
+                        parser.nextToken();
+                        if (name.equals("id")) {
+                            id = parser.getLongValue();
+                        } else if (name.equals("location")) {
+                            location = parser.getText();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    add(id, location);
+                }
+                return ids;
+            } finally {
+                parser.close();
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public long[] convert(Object value) {
+            if (RestResultException.isExceptionResult(value)) {
+                throw new RestResultException(value);
+            }
+            for (Map<String, Object> entry : (Iterable<Map<String, Object>>) value) {
+                if (RestResultException.isExceptionResult(entry)) throw new RestResultException(entry);
+                add(((Number) entry.get("id")).longValue(), (String) entry.get("location"));
+            }
+            return ids;
+        }
+
+        private void add(long batchId, String location) {
+            if (batchId < 0 || batchId >= ids.length || location == null) {
+                throw new RestResultException("Unexpected batch result " + batchId + " " + location);
+            }
+            ids[(int) batchId] = Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the rows of a CSV file with a header line as maps from column name to value, one row at a time. A column
+ * can declare the type of its values as <code>name:type</code> with the types int, long, float, double, boolean
+ * and string (the default). Fields can be quoted, quotes within a quoted field are doubled. Empty fields are left out.
+ */
+public class CsvReader implements Iterator<Map<String, Object>>, Closeable {
+    private final BufferedReader reader;
+    private final char separator;
+    private final String[] columns;
+    private final String[] types;
+    private final StringBuilder field = new StringBuilder();
+    private List<String> next;
+    private long line = 1;
+
+    public CsvReader(Reader reader) {
+        this(reader, ',');
+    }
+
+    public CsvReader(Reader reader, char separator) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader, 65536);
+        this.separator = separator;
+        final List<String> header = readRow();
+        if (header == null) throw new IllegalArgumentException("CSV without header line");
+        this.columns = new String[header.size()];
+        this.types = new String[header.size()];
+        for (int i = 0; i < columns.length; i++) {
+            final String column = header.get(i).trim();
+            final int colon = column.lastIndexOf(':');
+            columns[i] = colon == -1 ? column : column.substring(0, colon);
+            types[i] = colon == -1 ? "string" : column.substring(colon + 1).toLowerCase();
+        }
+        this.next = readRow();
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * @return the line of the input that was read last, 1 is the header
+     */
+    public long getLine() {
+        return line;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Map<String, Object> next() {
+        if (next == null) throw new NoSuchElementException();
+        final List<String> row = next;
+        final long rowLine = line;
+        next = readRow();
+        if (row.size() > columns.length) {
+            throw new IllegalArgumentException("Line " + rowLine + " has " + row.size() + " fields, but there are only " + columns.length + " columns");
+        }
+        final Map<String, Object> values = new LinkedHashMap<String, Object>(columns.length * 2);
+        for (int i = 0; i < row.size(); i++) {
+            final String value = row.get(i);
+            if (value.length() == 0) continue;
+            try {
+                values.put(columns[i], convert(types[i], value));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + rowLine + ": invalid " + types[i] + " '" + value + "' in column " + columns[i], e);
+            }
+        }
+        return values;
+    }
+
+    private static Object convert(String type, String value) {
+        if (type.equals("string")) return value;
+        if (type.equals("long")) return Long.parseLong(value.trim());
+        if (type.equals("int")) return Integer.parseInt(value.trim());
+        if (type.equals("double")) return Double.parseDouble(value.trim());
+        if (type.equals("float")) return Float.parseFloat(value.trim());
+        if (type.equals("boolean")) return Boolean.parseBoolean(value.trim());
+        throw new IllegalArgumentException("Unknown column type " + type);
+    }
+
+    private List<String> readRow() {
+        try {
+            int c = reader.read();
+            while (c == '\n' || c == '\r') {
+                if (c == '\n') line++;
+                c = reader.read();
+            }
+            if (c == -1) return null;
+            final List<String> row = new ArrayList<String>(columns == null ? 16 : columns.length);
+            boolean quoted = false;
+            field.setLength(0);
+            while (true) {
+                if (quoted) {
+                    if (c == -1) throw new IllegalArgumentException("Unterminated quoted field at line " + line);
+                    if (c == '"') {
+                        c = reader.read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                } else if (c == separator) {
+                    row.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r' || c == -1) {
+                    row.add(field.toString());
+                    return row;
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading CSV at line " + line, e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
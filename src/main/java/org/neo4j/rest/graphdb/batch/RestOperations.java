@@ -19,7 +19,12 @@
  */
 package org.neo4j.rest.graphdb.batch;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -33,15 +38,48 @@ import org.neo4j.rest.graphdb.UpdatableRestResult;
 import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation.Methods;
 import org.neo4j.rest.graphdb.converter.RestResultConverter;
 
+/**
+ * Records the operations of a batch. With a limit for the number of operations or their estimated payload the
+ * recorded operations are handed to the {@link Flusher} as soon as the next one would exceed it, so that a large
+ * batch is sent as consecutive /batch requests. Placeholders ({id}) of operations of already flushed chunks are
+ * replaced by the locations of the created entities when later operations are recorded.
+ */
 public class RestOperations {
+    private static final int OPERATION_OVERHEAD = 40;
+
     private AtomicLong currentBatchId = new AtomicLong(0);
     private Map<Long, RestOperation> operations = new LinkedHashMap<Long, RestOperation>();
     private MediaType contentType;
     private MediaType acceptHeader; 
-    
+    private final int maxOperations;
+    private final long maxBytes;
+    private final Flusher flusher;
+    private final Map<Long, String> locations = new HashMap<Long, String>();
+    private long estimatedBytes;
+    private int flushes;
+    private int compacted;
+
+    /**
+     * Sends the recorded operations, e.g. as one /batch request.
+     */
+    public interface Flusher {
+        void flush(RestOperations operations);
+    }
+
     public RestOperations(){
+        this(0, 0, null);
+    }
+
+    /**
+     * @param maxOperations operations per chunk, 0 for no limit
+     * @param maxBytes estimated payload bytes per chunk, 0 for no limit
+     */
+    public RestOperations(int maxOperations, long maxBytes, Flusher flusher){
         this.contentType = MediaType.APPLICATION_JSON_TYPE;
         this.acceptHeader = MediaType.APPLICATION_JSON_TYPE;
+        this.maxOperations = maxOperations;
+        this.maxBytes = maxBytes;
+        this.flusher = flusher;
     }
 
     public RestOperation getOperation(Long batchId) {
@@ -66,6 +104,7 @@ public class RestOperations {
         private MediaType acceptHeader;
         private Object entity;
         private RestResultConverter resultConverter;
+        private boolean compacted;
 
        
 
@@ -106,6 +145,21 @@ public class RestOperations {
             return data;
         }
 
+        void setData(Object data) {
+            this.data = data;
+        }
+
+        /**
+         * @return true if the operation is covered by others and not sent, see {@link BatchCompactor}
+         */
+        public boolean isCompacted() {
+            return compacted;
+        }
+
+        void compact() {
+            this.compacted = true;
+        }
+
         public long getBatchId() {
             return batchId;
         }
@@ -128,6 +182,14 @@ public class RestOperations {
         public boolean isSameUri(String baseUri) {
             return this.baseUri.equals(baseUri);
         }
+
+        /**
+         * @return the uri relative to the base uri of the batch request, or the absolute one for other base uris
+         */
+        public String getTarget(String batchBaseUri) {
+            if (isSameUri(batchBaseUri)) return uri;
+            return uri.startsWith("/") ? baseUri + uri : baseUri + "/" + uri;
+        }
     }
     
     public Map<Long,RestOperation> getRecordedRequests(){
@@ -135,13 +197,151 @@ public class RestOperations {
     }
     
     public RequestResult record(Methods method, String path, Object data, String baseUri){
+        final long size = OPERATION_OVERHEAD + estimateSize(baseUri) + estimateSize(path) + estimateSize(data);
+        if (exceedsLimit(size)) flush();
+        if (!locations.isEmpty()) {
+            path = resolve(path);
+            baseUri = resolve(baseUri);
+            data = resolve(data);
+        }
         long batchId = this.currentBatchId.incrementAndGet();
         RestOperation r = new RestOperation(batchId,method,path,this.contentType,this.acceptHeader,data,baseUri);
         operations.put(batchId,r);
+        estimatedBytes += size;
         return RequestResult.batchResult(r);
     }
     
     public void addToRestOperation(long batchId, Object entity, final RestResultConverter resultConverter){
         this.operations.get(batchId).setEntity(entity, resultConverter);
     }
+
+    private boolean exceedsLimit(long size) {
+        if (flusher == null || operations.isEmpty()) return false;
+        if (maxOperations > 0 && operations.size() >= maxOperations) return true;
+        return maxBytes > 0 && estimatedBytes + size > maxBytes;
+    }
+
+    private boolean isBounded() {
+        return maxOperations > 0 || maxBytes > 0;
+    }
+
+    /**
+     * Hands the recorded operations to the flusher and forgets them, the batch ids keep counting.
+     */
+    public void flush() {
+        if (flusher == null || operations.isEmpty()) return;
+        flusher.flush(this);
+        operations.clear();
+        estimatedBytes = 0;
+        flushes++;
+    }
+
+    /**
+     * Remembers where the operation created its entity, to resolve its placeholder in operations of later chunks.
+     */
+    public void addLocation(long batchId, String location) {
+        if (isBounded() && location != null) locations.put(batchId, location);
+    }
+
+    private Object resolve(Object value) {
+        if (value instanceof String) return resolve((String) value);
+        if (value instanceof Map) {
+            Map<Object, Object> result = null;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                final Object resolved = resolve(entry.getValue());
+                if (resolved == entry.getValue()) continue;
+                if (result == null) result = new LinkedHashMap<Object, Object>((Map<?, ?>) value);
+                result.put(entry.getKey(), resolved);
+            }
+            return result == null ? value : result;
+        }
+        if (value instanceof Collection) {
+            final List<Object> result = new ArrayList<Object>(((Collection<?>) value).size());
+            boolean changed = false;
+            for (Object element : (Collection<?>) value) {
+                final Object resolved = resolve(element);
+                changed |= resolved != element;
+                result.add(resolved);
+            }
+            return changed ? result : value;
+        }
+        return value;
+    }
+
+    private String resolve(String value) {
+        if (value == null || value.length() < 3 || value.charAt(0) != '{') return value;
+        final int end = value.indexOf('}');
+        if (end < 2) return value;
+        final long batchId;
+        try {
+            batchId = Long.parseLong(value.substring(1, end));
+        } catch (NumberFormatException e) {
+            return value;
+        }
+        final String location = locations.get(batchId);
+        return location == null ? value : location + value.substring(end + 1);
+    }
+
+    /**
+     * rough size of the JSON representation, exact for strings without escapes
+     */
+    static long estimateSize(Object value) {
+        if (value == null) return 4;
+        if (value instanceof String) return ((String) value).length() + 2;
+        if (value instanceof Map) {
+            long size = 1;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += estimateSize(String.valueOf(entry.getKey())) + estimateSize(entry.getValue()) + 2;
+            }
+            return Math.max(size, 2);
+        }
+        if (value instanceof Collection) {
+            long size = 1;
+            for (Object element : (Collection<?>) value) {
+                size += estimateSize(element) + 1;
+            }
+            return Math.max(size, 2);
+        }
+        if (value instanceof Object[]) {
+            long size = 1;
+            for (Object element : (Object[]) value) {
+                size += estimateSize(element) + 1;
+            }
+            return Math.max(size, 2);
+        }
+        if (value.getClass().isArray()) {
+            final int length = Array.getLength(value);
+            return length == 0 ? 2 : 1 + length * (estimateSize(Array.get(value, 0)) + 1);
+        }
+        return value.toString().length();
+    }
+
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * @return estimated payload of the operations recorded since the last flush
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    void countCompacted(int operations) {
+        compacted += operations;
+    }
+
+    /**
+     * @return number of operations that were not sent because other operations covered them
+     */
+    public int getCompacted() {
+        return compacted;
+    }
+
+    /**
+     * @return number of chunks handed to the flusher
+     */
+    public int getFlushes() {
+        return flushes;
+    }
 }
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.converter;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.neo4j.rest.graphdb.util.StreamingJsonCodec;
+
+/**
+ * Property map of an entity that keeps the JSON of its "data" object as compact UTF-8 bytes and decodes a
+ * property only when it is read. The keys are read without decoding the values, iterating over the entries
+ * or modifying the map decodes all properties once and drops the bytes. Arrays are decoded into primitive arrays,
+ * see {@link StreamingJsonCodec#decodePropertyValue}.
+ */
+class LazyPropertyMap extends AbstractMap<String, Object> {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private byte[] json;
+    private List<String> keys;
+    private Map<String, Object> values;
+
+    LazyPropertyMap(byte[] json) {
+        this.json = json;
+    }
+
+    @Override
+    public synchronized Object get(Object key) {
+        if (json == null) return values.get(key);
+        if (values != null && values.containsKey(key)) return values.get(key);
+        if (!(key instanceof String) || (keys != null && !keys.contains(key))) return null;
+        return decodeProperty((String) key);
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        if (json == null) return values.containsKey(key);
+        return keys().contains(key);
+    }
+
+    @Override
+    public synchronized int size() {
+        if (json == null) return values.size();
+        return keys().size();
+    }
+
+    @Override
+    public synchronized Set<String> keySet() {
+        if (json == null) return values.keySet();
+        return Collections.unmodifiableSet(new LinkedHashSet<String>(keys()));
+    }
+
+    @Override
+    public synchronized Collection<Object> values() {
+        return materialize().values();
+    }
+
+    @Override
+    public synchronized Set<Entry<String, Object>> entrySet() {
+        return materialize().entrySet();
+    }
+
+    /**
+     * Replacing the value of an existing property (e.g. with its converted array) keeps the map lazy.
+     */
+    @Override
+    public synchronized Object put(String key, Object value) {
+        if (json != null && keys().contains(key)) {
+            final Object old = get(key);
+            cache().put(key, value);
+            return old;
+        }
+        return materialize().put(key, value);
+    }
+
+    @Override
+    public synchronized Object remove(Object key) {
+        return materialize().remove(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        materialize().clear();
+    }
+
+    synchronized boolean isMaterialized() {
+        return json == null;
+    }
+
+    private Map<String, Object> cache() {
+        if (values == null) values = new HashMap<String, Object>();
+        return values;
+    }
+
+    private List<String> keys() {
+        if (keys != null) return keys;
+        final List<String> result = new ArrayList<String>();
+        try {
+            final JsonParser parser = createParser();
+            try {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    result.add(parser.getCurrentName());
+                    parser.nextToken();
+                    parser.skipChildren();
+                }
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading property keys", e);
+        }
+        keys = result;
+        return result;
+    }
+
+    private Object decodeProperty(String key) {
+        try {
+            final JsonParser parser = createParser();
+            try {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+                    if (name.equals(key)) {
+                        final Object value = StreamingJsonCodec.decodePropertyValue(parser);
+                        cache().put(key, value);
+                        return value;
+                    }
+                    parser.skipChildren();
+                }
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading property " + key, e);
+        }
+        return null;
+    }
+
+    private Map<String, Object> materialize() {
+        if (json == null) return values;
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        try {
+            final JsonParser parser = createParser();
+            try {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+                    result.put(name, StreamingJsonCodec.decodePropertyValue(parser));
+                }
+            } finally {
+                parser.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading properties", e);
+        }
+        if (values != null) result.putAll(values);
+        values = result;
+        json = null;
+        keys = null;
+        return result;
+    }
+
+    /**
+     * @return parser positioned at the start of the object
+     */
+    private JsonParser createParser() throws IOException {
+        final JsonParser parser = JSON_FACTORY.createJsonParser(json);
+        parser.nextToken();
+        return parser;
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.util.ByteArrayBuilder;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.entity.RestEntity;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.entity.RestRelationship;
+import org.neo4j.rest.graphdb.util.StringCanonicalizer;
+
+/**
+ * Decodes JSON responses directly from the parser's token stream, node and relationship representations
+ * (at any depth) become {@link RestNode}s and {@link RestRelationship}s. Of a representation only self, data, type,
+ * start and end are kept, the links to other resources (traverse, outgoing_relationships, ...) that follow the self
+ * uri are skipped without being materialized. The properties of an entity are kept as compact JSON and only decoded when read, see
+ * {@link LazyPropertyMap}. Relationship types are shared through the {@link StringCanonicalizer}. Other values are decoded like Jackson's untyped mapping (LinkedHashMap, ArrayList, Integer, ...).
+ */
+public class RestEntityDecoder implements ResultDecoder<Object> {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Set<String> LINKS = new HashSet<String>(Arrays.asList(
+            "outgoing_relationships", "incoming_relationships", "all_relationships",
+            "outgoing_typed_relationships", "incoming_typed_relationships", "all_typed_relationships",
+            "create_relationship", "traverse", "paged_traverse", "properties", "property", "extensions",
+            "labels", "metadata"));
+
+    private final RestAPI restApi;
+
+    public RestEntityDecoder(RestAPI restApi) {
+        this.restApi = restApi;
+    }
+
+    @Override
+    public Object decode(String json) {
+        try {
+            return decodeDocument(JSON_FACTORY.createJsonParser(json));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading as JSON '" + json + "'", e);
+        }
+    }
+
+    @Override
+    public Object decode(InputStream stream) {
+        try {
+            return decodeDocument(JSON_FACTORY.createJsonParser(stream));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading JSON from stream", e);
+        }
+    }
+
+    private Object decodeDocument(JsonParser parser) throws IOException {
+        try {
+            if (parser.nextToken() == null) return null;
+            return decode(parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Decodes the value at the current token of the parser, leaves the parser at its last token.
+     */
+    public Object decode(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case START_OBJECT:
+                return decodeObject(parser);
+            case START_ARRAY:
+                final List<Object> list = new ArrayList<Object>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(decode(parser));
+                }
+                return list;
+            default:
+                return decodeScalar(parser);
+        }
+    }
+
+    /**
+     * The links, the shared type and the lazy data only apply once a self uri marked the object as a node or
+     * relationship, fields before it are kept, so any other object decodes to the same map as with {@link #convert(Object)}.
+     */
+    private Object decodeObject(JsonParser parser) throws IOException {
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        boolean entity = false;
+        byte[] data = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if (entity && LINKS.contains(name) && (token == JsonToken.VALUE_STRING || token == JsonToken.START_OBJECT)) {
+                parser.skipChildren();
+                continue;
+            }
+            if (entity && name.equals("type") && token == JsonToken.VALUE_STRING) {
+                map.put(name, StringCanonicalizer.getShared().canonicalize(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                continue;
+            }
+            if (name.equals("data") && token == JsonToken.START_OBJECT) {
+                data = compactCopy(parser);
+                map.put(name, null);
+                continue;
+            }
+            final Object value = decode(parser);
+            if (name.equals("self") && value instanceof String) {
+                entity = isEntityUri((String) value);
+            }
+            map.put(name, value);
+        }
+        if (data != null) {
+            map.put("data", entity ? new LazyPropertyMap(data) : decodeDocument(JSON_FACTORY.createJsonParser(data)));
+        }
+        return entity ? toEntity(map) : map;
+    }
+
+    /**
+     * Copies the object into compact UTF-8 bytes, strings and numbers are copied without being materialized.
+     */
+    private byte[] compactCopy(JsonParser parser) throws IOException {
+        final ByteArrayBuilder bytes = new ByteArrayBuilder(256);
+        final JsonGenerator generator = JSON_FACTORY.createJsonGenerator(bytes, JsonEncoding.UTF8);
+        generator.copyCurrentStructure(parser);
+        generator.close();
+        return bytes.toByteArray();
+    }
+
+    private Object decodeScalar(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IOException("Unexpected token " + parser.getCurrentToken() + " at " + parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Converts an already parsed value the same way as {@link #decode(JsonParser)}.
+     */
+    @Override
+    public Object convert(Object value) {
+        if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            final RestEntity entity = toEntity(map);
+            if (entity != null) return entity;
+            final Map<Object, Object> result = new LinkedHashMap<Object, Object>(map.size() * 4 / 3 + 1);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                result.put(entry.getKey(), convert(entry.getValue()));
+            }
+            return result;
+        }
+        if (value instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) value;
+            final List<Object> result = new ArrayList<Object>(collection.size());
+            for (Object element : collection) {
+                result.add(convert(element));
+            }
+            return result;
+        }
+        return value;
+    }
+
+    /**
+     * @return the node or relationship for the representation or null if it is none
+     */
+    public RestEntity toEntity(Map<?, ?> representation) {
+        final Object self = representation.get("self");
+        if (!(self instanceof String)) return null;
+        final String uri = (String) self;
+        if (uri.contains("/node/")) {
+            return new RestNode(representation, restApi);
+        }
+        if (uri.contains("/relationship/")) {
+            return new RestRelationship(representation, restApi);
+        }
+        return null;
+    }
+
+    private static boolean isEntityUri(String uri) {
+        return uri.contains("/node/") || uri.contains("/relationship/");
+    }
+}
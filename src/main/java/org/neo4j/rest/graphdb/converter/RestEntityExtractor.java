@@ -24,19 +24,17 @@ import java.util.Map;
 import org.neo4j.rest.graphdb.RequestResult;
 import org.neo4j.rest.graphdb.RestAPI;
 import org.neo4j.rest.graphdb.entity.RestEntity;
-import org.neo4j.rest.graphdb.entity.RestNode;
-import org.neo4j.rest.graphdb.entity.RestRelationship;
 
 
 public class RestEntityExtractor implements RestResultConverter {
-    private final RestAPI restApi;
+    private final RestEntityDecoder decoder;
 
     public RestEntityExtractor(RestAPI restApi) {
-        this.restApi = restApi;
+        this.decoder = new RestEntityDecoder(restApi);
     }
 
     public Object convertFromRepresentation(RequestResult requestResult) {
-        return convertFromRepresentation(requestResult.toMap());
+        return requestResult.decode(decoder);
     }
 
     public Object convertFromRepresentation(Object value) {
@@ -48,15 +46,7 @@ public class RestEntityExtractor implements RestResultConverter {
     }
 
     RestEntity createRestEntity(Map data) {
-        final String uri = (String) data.get("self");        
-        if (uri == null || uri.isEmpty()) return null;
-        if (uri.contains("/node/")) {            
-            return new RestNode(data, restApi);
-        }
-        if (uri.contains("/relationship/")) {
-            return new RestRelationship(data, restApi);
-        }
-        return null;
+        return decoder.toEntity(data);
     }
 
     public boolean canHandle(Object value) {
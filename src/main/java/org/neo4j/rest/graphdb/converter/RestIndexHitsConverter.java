@@ -35,14 +35,16 @@ import org.neo4j.rest.graphdb.index.SimpleIndexHits;
 public class RestIndexHitsConverter<S extends PropertyContainer> implements RestResultConverter {
     private final RestAPI restAPI;
     private final Class<S> entityType;
+    private final RestEntityDecoder decoder;
 
     public RestIndexHitsConverter(RestAPI restAPI,Class<S> entityType) {
         this.restAPI = restAPI;
         this.entityType = entityType;
+        this.decoder = new RestEntityDecoder(restAPI);
     }
 
     public IndexHits<S> convertFromRepresentation(RequestResult response) {
-        Collection hits = (Collection) response.toEntity();
+        Collection hits = (Collection) response.decode(decoder);
         return new SimpleIndexHits<S>(hits, hits.size(), entityType, restAPI);
     }
 
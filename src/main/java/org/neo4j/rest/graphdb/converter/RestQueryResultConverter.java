@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.converter;
+
+import java.util.Map;
+
+import org.neo4j.rest.graphdb.RequestResult;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.query.RestQueryResult;
+import org.neo4j.rest.graphdb.util.ResultConverter;
+
+/**
+ * Converts the result of a cypher request of a batch into a {@link RestQueryResult}.
+ */
+public class RestQueryResultConverter implements RestResultConverter {
+    private final RestAPI restAPI;
+    private final ResultConverter resultConverter;
+    private final RestEntityDecoder decoder;
+
+    public RestQueryResultConverter(RestAPI restAPI, ResultConverter resultConverter) {
+        this.restAPI = restAPI;
+        this.resultConverter = resultConverter;
+        this.decoder = new RestEntityDecoder(restAPI);
+    }
+
+    @Override
+    public RestQueryResult convertFromRepresentation(RequestResult response) {
+        return new RestQueryResult((Map<?, ?>) response.decode(decoder), restAPI, resultConverter);
+    }
+}
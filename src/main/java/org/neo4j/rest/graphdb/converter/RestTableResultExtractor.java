@@ -20,12 +20,12 @@
 package org.neo4j.rest.graphdb.converter;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.neo4j.rest.graphdb.RequestResult;
 import org.neo4j.rest.graphdb.util.JsonHelper;
+import org.neo4j.rest.graphdb.util.StringCanonicalizer;
 
 public class RestTableResultExtractor implements RestResultConverter{
 
@@ -37,27 +37,36 @@ public class RestTableResultExtractor implements RestResultConverter{
 
 
     public List<Map<String, Object>> extract(Map<?, ?> restResult) {
-        List<String> columns = (List<String>) restResult.get("columns");
+        List<String> columns = canonicalize((List<String>) restResult.get("columns"));
         return extractData(restResult, columns);
     }
 
+    private List<String> canonicalize(List<String> columns) {
+        final StringCanonicalizer canonicalizer = StringCanonicalizer.getShared();
+        final List<String> result = new ArrayList<String>(columns.size());
+        for (String column : columns) {
+            result.add(canonicalizer.canonicalize(column));
+        }
+        return result;
+    }
+
     private List<Map<String, Object>> extractData(Map<?, ?> restResult, List<String> columns) {
         List<List<?>> rows = (List<List<?>>) restResult.get("data");
         List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(rows.size());
+        final RowMap.Columns sharedColumns = new RowMap.Columns(columns);
         for (List<?> row : rows) {
-            result.add(mapRow(columns, row));
+            result.add(mapRow(sharedColumns, row));
         }
         return result;
     }
 
-    private Map<String, Object> mapRow(List<String> columns, List<?> row) {
+    private Map<String, Object> mapRow(RowMap.Columns columns, List<?> row) {
         int columnCount = columns.size();
-        Map<String, Object> newRow = new HashMap<String, Object>(columnCount);
+        final Object[] values = new Object[columnCount];
         for (int i = 0; i < columnCount; i++) {
-            final Object value = row.get(i);
-            newRow.put(columns.get(i), restEntityExtractor.convertFromRepresentation(value));
+            values[i] = restEntityExtractor.convertFromRepresentation(row.get(i));
         }
-        return newRow;
+        return new RowMap(columns, values);
     }
 
     @Override
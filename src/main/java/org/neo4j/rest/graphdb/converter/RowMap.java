@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.converter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Row of a tabular result, the values are kept in an array and the column names and their index are shared by all
+ * rows of the result. The values of existing columns can be replaced, adding or removing columns is not supported.
+ */
+public class RowMap extends AbstractMap<String, Object> {
+    private final Columns columns;
+    private final Object[] values;
+
+    public RowMap(Columns columns, Object[] values) {
+        if (values.length != columns.size()) throw new IllegalArgumentException("Expected " + columns.size() + " values but got " + values.length);
+        this.columns = columns;
+        this.values = values;
+    }
+
+    @Override
+    public Object get(Object key) {
+        final int index = columns.indexOf(key);
+        return index == -1 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return columns.indexOf(key) != -1;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        final int index = columns.indexOf(key);
+        if (index == -1) throw new UnsupportedOperationException("Can't add column " + key + " to a row of " + columns);
+        final Object old = values[index];
+        values[index] = value;
+        return old;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return columns.keySet;
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int index;
+
+                    public boolean hasNext() {
+                        return index < values.length;
+                    }
+
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return new RowEntry(index++);
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+    private class RowEntry implements Entry<String, Object> {
+        private final int index;
+
+        RowEntry(int index) {
+            this.index = index;
+        }
+
+        public String getKey() {
+            return columns.names[index];
+        }
+
+        public Object getValue() {
+            return values[index];
+        }
+
+        public Object setValue(Object value) {
+            final Object old = values[index];
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) return false;
+            final Entry<?, ?> other = (Entry<?, ?>) o;
+            return getKey().equals(other.getKey()) && (getValue() == null ? other.getValue() == null : getValue().equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ (getValue() == null ? 0 : getValue().hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * The column names of a result and their index, shared by its rows.
+     */
+    public static class Columns {
+        // below this many columns a linear scan is faster than the lookup in the index
+        private static final int SCAN_COLUMNS = 8;
+
+        private final String[] names;
+        private final Map<String, Integer> index;
+        private final Set<String> keySet;
+
+        public Columns(List<String> names) {
+            this.names = names.toArray(new String[names.size()]);
+            if (this.names.length > SCAN_COLUMNS) {
+                this.index = new HashMap<String, Integer>(this.names.length * 2);
+                for (int i = 0; i < this.names.length; i++) {
+                    this.index.put(this.names[i], i);
+                }
+            } else {
+                this.index = null;
+            }
+            this.keySet = Collections.unmodifiableSet(new AbstractSet<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return Arrays.asList(Columns.this.names).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return Columns.this.names.length;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return indexOf(o) != -1;
+                }
+            });
+        }
+
+        public int indexOf(Object name) {
+            if (index != null) {
+                final Integer result = index.get(name);
+                return result == null ? -1 : result;
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] == name) return i;
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) return i;
+            }
+            return -1;
+        }
+
+        public int size() {
+            return names.length;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(names);
+        }
+    }
+}
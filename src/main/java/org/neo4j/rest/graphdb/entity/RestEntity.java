@@ -29,14 +29,21 @@ import org.neo4j.graphdb.PropertyContainer;
 import org.neo4j.helpers.collection.IterableWrapper;
 import org.neo4j.rest.graphdb.*;
 import org.neo4j.rest.graphdb.util.ArrayConverter;
+import org.neo4j.rest.graphdb.util.StringCanonicalizer;
 
+/**
+ * The identity of an entity is its id, parsed once. The uri is only kept if it can't be derived from the base uri
+ * of the RestAPI (e.g. batch placeholders or uris of another server), then its prefix is shared between entities.
+ */
 public class RestEntity implements PropertyContainer, UpdatableRestResult<RestEntity> {
-    private Map<?, ?> structuralData;
+    private static final ArrayConverter ARRAY_CONVERTER = new ArrayConverter();
+
     private Map<String, Object> propertyData;
     private long lastTimeFetchedPropertyData;
     protected RestAPI restApi;
 
-    private final ArrayConverter arrayConverter=new ArrayConverter();
+    private long id = -1;
+    // null if derivable, otherwise the shared prefix before the id or the whole uri if it has no id
     private String uri;
 
     public RestEntity( URI uri, RestAPI restApi ) {
@@ -44,37 +51,100 @@ public class RestEntity implements PropertyContainer, UpdatableRestResult<RestEn
     }    
 
     public RestEntity( String uri, RestAPI restApi ) {
-        this.uri = uri;
         this.restApi = restApi;
+        setUri( uri );
     }      
 
+    protected RestEntity( long id, RestAPI restApi ) {
+        this.restApi = restApi;
+        this.id = id;
+    }
+
     public RestEntity( Map<?, ?> data, RestAPI restApi ) {
-        this.structuralData = data;
         this.restApi = restApi;
         this.propertyData = (Map<String, Object>) data.get( "data" );
         this.lastTimeFetchedPropertyData = System.currentTimeMillis();
-        this.uri = (String) data.get( "self" );
+        setUri( (String) data.get( "self" ) );
+        updateStructure( data );
+    }
+
+    private void setUri( String uri ) {
+        this.id = parseId( uri );
+        this.uri = uriPrefix( uri, getUriSegment() );
+    }
+
+    /**
+     * @return null if the uri can be derived from its id, otherwise the canonical prefix before the id
+     * or the uri itself if it doesn't end with an id
+     */
+    protected String uriPrefix( String uri, String segment ) {
+        if ( uri == null || isDerivable( uri, segment ) ) return null;
+        if ( parseId( uri ) == -1 ) return uri;
+        return StringCanonicalizer.getShared().canonicalize( uri, 0, uri.lastIndexOf( '/' ) + 1 );
+    }
+
+    /**
+     * @return the uri from the prefix returned by {@link #uriPrefix(String, String)} and the id
+     */
+    protected String toUri( String prefix, String segment, long id ) {
+        if ( prefix == null ) return restApi.getBaseUri() + segment + id;
+        return id == -1 ? prefix : prefix + id;
+    }
+
+    /**
+     * @return the numeric id at the end of the uri or -1
+     */
+    protected static long parseId( String uri ) {
+        if ( uri == null ) return -1;
+        final int start = uri.lastIndexOf( '/' ) + 1;
+        if ( start == uri.length() || start + 18 < uri.length() ) return -1;
+        long id = 0;
+        for ( int i = start; i < uri.length(); i++ ) {
+            final char c = uri.charAt( i );
+            if ( c < '0' || c > '9' ) return -1;
+            id = id * 10 + ( c - '0' );
+        }
+        return id;
+    }
+
+    /**
+     * @return true if the uri is the base uri followed by the segment and a numeric id
+     */
+    protected boolean isDerivable( String uri, String segment ) {
+        if ( segment == null || restApi == null || parseId( uri ) == -1 ) return false;
+        final String baseUri = restApi.getBaseUri();
+        return baseUri != null && uri.startsWith( baseUri ) && uri.startsWith( segment, baseUri.length() )
+                && uri.lastIndexOf( '/' ) == baseUri.length() + segment.length() - 1;
+    }
+
+    /**
+     * @return the path segment between base uri and id, e.g. "/node/", or null if the uri can't be derived
+     */
+    protected String getUriSegment() {
+        return null;
+    }
+
+    /**
+     * takes the structural information (besides self and data) from the representation of the entity
+     */
+    protected void updateStructure( Map<?, ?> data ) {
     }
 
     public String getUri() {       
-        return uri;
+        return toUri( uri, getUriSegment(), id );
     }
     
     public void updateFrom(RestEntity updateEntity, RestAPI restApi){
         if (this == updateEntity){            
             this.lastTimeFetchedPropertyData = 0;
         }
-        this.uri = updateEntity.getUri();
-        this.structuralData = updateEntity.getStructuralData();
+        setUri( updateEntity.getUri() );
         this.propertyData = updateEntity.getPropertyData();    
         this.lastTimeFetchedPropertyData = System.currentTimeMillis();
     }    
 
     Map<?, ?> getStructuralData() {
-        if ( this.structuralData == null ) {
-            this.structuralData = restApi.getData(this);
-        }
-        return this.structuralData;
+        return restApi.getData(this);
     }    
    
     Map<String, Object> getPropertyData() {       
@@ -106,7 +176,7 @@ public class RestEntity implements PropertyContainer, UpdatableRestResult<RestEn
         if ( value instanceof Collection ) {
             Collection col= (Collection) value;
             if (col.isEmpty()) return new String[0]; // todo concrete value type ?
-            Object result = arrayConverter.toArray( col );
+            Object result = ARRAY_CONVERTER.toArray( col );
             if (result == null) throw new IllegalStateException( "Could not determine type of property "+key );
             properties.put(key,result);
             return result;
@@ -158,6 +228,7 @@ public class RestEntity implements PropertyContainer, UpdatableRestResult<RestEn
     }
 
     public long getId() {        
+        if ( id != -1 ) return id;
         return getEntityId( getUri() );
     }
 
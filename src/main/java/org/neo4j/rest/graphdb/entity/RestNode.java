@@ -39,6 +39,8 @@ import org.neo4j.rest.graphdb.RestAPI;
 import org.neo4j.rest.graphdb.traversal.RestDirection;
 
 public class RestNode extends RestEntity implements Node {
+    static final String URI_SEGMENT = "/node/";
+
     public RestNode( URI uri, RestAPI restApi ) {
         super( uri, restApi );
     }
@@ -50,6 +52,15 @@ public class RestNode extends RestEntity implements Node {
     public RestNode( Map<?, ?> data, RestAPI restApi ) {
         super( data, restApi );
     }    
+
+    public RestNode( long id, RestAPI restApi ) {
+        super( id, restApi );
+    }
+
+    @Override
+    protected String getUriSegment() {
+        return URI_SEGMENT;
+    }
   
     public Relationship createRelationshipTo( Node toNode, RelationshipType type ) {
     	 return this.restApi.createRelationship(this, toNode, type, null);
@@ -60,7 +71,7 @@ public class RestNode extends RestEntity implements Node {
     }
 
     public Iterable<Relationship> getRelationships( RelationshipType... types ) {
-        String path = getStructuralData().get( "all_relationships" ) + "/";
+        String path = "relationships/all/";
         int counter = 0;
         for ( RelationshipType type : types ) {
             if ( counter++ > 0 ) {
@@ -78,9 +89,7 @@ public class RestNode extends RestEntity implements Node {
 
     public Iterable<Relationship> getRelationships( RelationshipType type,
                                                     Direction direction ) {
-        String relationshipsKey = RestDirection.from( direction ).longName + "_relationships";
-        Object relationship = getStructuralData().get( relationshipsKey );
-        return restApi.getRelationships(this, relationship + "/" + type.name());
+        return restApi.getRelationships(this, "relationships/" + RestDirection.from( direction ).shortName + "/" + type.name());
     }
 
     public Relationship getSingleRelationship( RelationshipType type,
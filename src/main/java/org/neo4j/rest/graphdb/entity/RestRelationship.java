@@ -28,9 +28,19 @@ import org.neo4j.graphdb.NotFoundException;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.RelationshipType;
 import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.util.StringCanonicalizer;
 
 
 public class RestRelationship extends RestEntity implements Relationship {
+    static final String URI_SEGMENT = "/relationship/";
+
+    // the structure is loaded lazily when the relationship was created from its uri, of the node uris only
+    // the shared prefix is kept if they can't be derived from the base uri
+    private String type;
+    private long startId;
+    private long endId;
+    private String startUriPrefix;
+    private String endUriPrefix;
 
     RestRelationship( URI uri, RestAPI restApi ) {
         super( uri, restApi );
@@ -44,44 +54,89 @@ public class RestRelationship extends RestEntity implements Relationship {
         super( data, restApi );
     }
 
+    @Override
+    protected String getUriSegment() {
+        return URI_SEGMENT;
+    }
+
+    @Override
+    protected void updateStructure( Map<?, ?> data ) {
+        final String start = (String) data.get( "start" );
+        final String end = (String) data.get( "end" );
+        this.startId = parseId( start );
+        this.startUriPrefix = uriPrefix( start, RestNode.URI_SEGMENT );
+        this.endId = parseId( end );
+        this.endUriPrefix = uriPrefix( end, RestNode.URI_SEGMENT );
+        this.type = StringCanonicalizer.getShared().canonicalize( (String) data.get( "type" ) );
+    }
+
+    @Override
+    public void updateFrom( RestEntity updateEntity, RestAPI restApi ) {
+        super.updateFrom( updateEntity, restApi );
+        final RestRelationship relationship = (RestRelationship) updateEntity;
+        if ( relationship.type == null ) {
+            this.type = null;
+            return;
+        }
+        this.startId = relationship.startId;
+        this.startUriPrefix = relationship.startUriPrefix;
+        this.endId = relationship.endId;
+        this.endUriPrefix = relationship.endUriPrefix;
+        this.type = relationship.type;
+    }
+
+    private void loadStructure() {
+        if ( type == null ) {
+            updateStructure( getStructuralData() );
+        }
+    }
+
     public Node getEndNode() {
-        return node( (String) getStructuralData().get( "end" ) );
+        loadStructure();
+        return node( endId, endUriPrefix );
     }
 
     public Node[] getNodes() {
-        return new Node[]{
-                node( (String) getStructuralData().get( "start" ) ),
-                node( (String) getStructuralData().get( "end" ) )
-        };
+        return new Node[]{ getStartNode(), getEndNode() };
     }
 
     public Node getOtherNode( Node node ) {
+        loadStructure();
         long nodeId = node.getId();
-        String startNodeUri = (String) getStructuralData().get( "start" );
-        String endNodeUri = (String) getStructuralData().get( "end" );
-        if ( getEntityId( startNodeUri ) == nodeId ) {
-            return node( endNodeUri );
-        } else if ( getEntityId( endNodeUri ) == nodeId ) {
-            return node( startNodeUri );
+        if ( getStartNodeId() == nodeId ) {
+            return node( endId, endUriPrefix );
+        } else if ( getEndNodeId() == nodeId ) {
+            return node( startId, startUriPrefix );
         } else {
             throw new NotFoundException( node + " isn't one of start/end for " + this );
         }
     }
 
-    private RestNode node( String uri ) {
-        return new RestNode( uri, getRestApi() );
+    private long getStartNodeId() {
+        return startId != -1 || startUriPrefix == null ? startId : getEntityId( startUriPrefix );
+    }
+
+    private long getEndNodeId() {
+        return endId != -1 || endUriPrefix == null ? endId : getEntityId( endUriPrefix );
+    }
+
+    private RestNode node( long id, String uriPrefix ) {
+        return uriPrefix == null ? new RestNode( id, getRestApi() ) : new RestNode( toUri( uriPrefix, RestNode.URI_SEGMENT, id ), getRestApi() );
     }
 
     public Node getStartNode() {
-        return node( (String) getStructuralData().get( "start" ) );
+        loadStructure();
+        return node( startId, startUriPrefix );
     }
 
     public RelationshipType getType() {
-        return DynamicRelationshipType.withName( (String) getStructuralData().get( "type" ) );
+        loadStructure();
+        return DynamicRelationshipType.withName( type );
     }
 
     public boolean isType( RelationshipType type ) {
-        return type.name().equals( getStructuralData().get( "type" ) );
+        loadStructure();
+        return type.name().equals( this.type );
     }
     
     
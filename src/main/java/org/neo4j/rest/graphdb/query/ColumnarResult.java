@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a cypher query decoded column by column. Numbers and booleans are kept in primitive arrays, strings in
+ * a dictionary with a code per row, nodes and relationships as their ids. Values that are none of these (maps,
+ * collections, paths or columns of mixed types) are kept as objects. Null values are marked in a bitmap per column.
+ */
+public class ColumnarResult {
+    public enum Type { LONG, DOUBLE, BOOLEAN, STRING, NODE, RELATIONSHIP, OBJECT }
+
+    private final List<String> columnNames;
+    private final Column[] columns;
+    private final int rowCount;
+
+    ColumnarResult(List<String> columnNames, Column[] columns, int rowCount) {
+        this.columnNames = Collections.unmodifiableList(columnNames);
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public Column getColumn(int index) {
+        return columns[index];
+    }
+
+    public Column getColumn(String name) {
+        final int index = columnNames.indexOf(name);
+        if (index == -1) throw new IllegalArgumentException("No column " + name + " in " + columnNames);
+        return columns[index];
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarResult{columns=" + Arrays.toString(columns) + ", rows=" + rowCount + "}";
+    }
+
+    public static abstract class Column {
+        private final String name;
+        private final Type type;
+        private final long[] nulls;
+        private final int size;
+
+        Column(String name, Type type, long[] nulls, int size) {
+            this.name = name;
+            this.type = type;
+            this.nulls = nulls;
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isNull(int row) {
+            checkRow(row);
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        /**
+         * @return the boxed value of the row, use the typed accessors of the subclasses to avoid boxing
+         */
+        public abstract Object get(int row);
+
+        void checkRow(int row) {
+            if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + type;
+        }
+    }
+
+    /**
+     * Integers, the ids of nodes and relationships, null rows are 0.
+     */
+    public static class LongColumn extends Column {
+        private final long[] values;
+
+        LongColumn(String name, Type type, long[] nulls, long[] values, int size) {
+            super(name, type, nulls, size);
+            this.values = values;
+        }
+
+        public long getLong(int row) {
+            checkRow(row);
+            return values[row];
+        }
+
+        /**
+         * @return the values, the array may be longer than the column
+         */
+        public long[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object get(int row) {
+            return isNull(row) ? null : values[row];
+        }
+    }
+
+    public static class DoubleColumn extends Column {
+        private final double[] values;
+
+        DoubleColumn(String name, long[] nulls, double[] values, int size) {
+            super(name, Type.DOUBLE, nulls, size);
+            this.values = values;
+        }
+
+        public double getDouble(int row) {
+            checkRow(row);
+            return values[row];
+        }
+
+        /**
+         * @return the values, the array may be longer than the column
+         */
+        public double[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object get(int row) {
+            return isNull(row) ? null : values[row];
+        }
+    }
+
+    public static class BooleanColumn extends Column {
+        private final boolean[] values;
+
+        BooleanColumn(String name, long[] nulls, boolean[] values, int size) {
+            super(name, Type.BOOLEAN, nulls, size);
+            this.values = values;
+        }
+
+        public boolean getBoolean(int row) {
+            checkRow(row);
+            return values[row];
+        }
+
+        /**
+         * @return the values, the array may be longer than the column
+         */
+        public boolean[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object get(int row) {
+            return isNull(row) ? null : values[row];
+        }
+    }
+
+    /**
+     * Dictionary encoded strings, each distinct string is kept once, the rows hold its code (-1 for null).
+     */
+    public static class StringColumn extends Column {
+        private final String[] dictionary;
+        private final int[] codes;
+
+        StringColumn(String name, long[] nulls, String[] dictionary, int[] codes, int size) {
+            super(name, Type.STRING, nulls, size);
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+
+        public String getString(int row) {
+            checkRow(row);
+            final int code = codes[row];
+            return code == -1 ? null : dictionary[code];
+        }
+
+        public int getCode(int row) {
+            checkRow(row);
+            return codes[row];
+        }
+
+        public String[] getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * @return the codes, the array may be longer than the column
+         */
+        public int[] getCodes() {
+            return codes;
+        }
+
+        @Override
+        public Object get(int row) {
+            return getString(row);
+        }
+    }
+
+    public static class ObjectColumn extends Column {
+        private final Object[] values;
+
+        ObjectColumn(String name, long[] nulls, Object[] values, int size) {
+            super(name, Type.OBJECT, nulls, size);
+            this.values = values;
+        }
+
+        @Override
+        public Object get(int row) {
+            checkRow(row);
+            return values[row];
+        }
+    }
+}
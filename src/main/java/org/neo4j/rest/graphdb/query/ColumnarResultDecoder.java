@@ -0,0 +1,557 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.query;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.converter.RestEntityDecoder;
+import org.neo4j.rest.graphdb.converter.ResultDecoder;
+import org.neo4j.rest.graphdb.entity.RestEntity;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.entity.RestRelationship;
+import org.neo4j.rest.graphdb.query.ColumnarResult.Type;
+import org.neo4j.rest.graphdb.util.StringCanonicalizer;
+
+/**
+ * Decodes the rows of a cypher result directly from the parser into the columns of a {@link ColumnarResult}.
+ * The type of a column is taken from its first value that is not null, integers are widened to doubles if a
+ * floating point number follows, other conflicting values turn the column into an object column. Of nodes and
+ * relationships only the id in their self uri is read, the rest of the representation is skipped without being
+ * buffered. Maps and paths that follow nodes or relationships in a column turn it into an object column.
+ */
+public class ColumnarResultDecoder implements ResultDecoder<ColumnarResult> {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final Set<String> ENTITY_LINKS = new HashSet<String>(Arrays.asList(
+            "outgoing_relationships", "incoming_relationships", "all_relationships",
+            "outgoing_typed_relationships", "incoming_typed_relationships", "all_typed_relationships",
+            "create_relationship", "traverse", "paged_traverse", "properties", "property", "extensions",
+            "labels", "metadata"));
+    private static final Set<String> AMBIGUOUS_FIELDS = new HashSet<String>(Arrays.asList("start", "end", "type"));
+
+    private final RestAPI restApi;
+    private final RestEntityDecoder entityDecoder;
+
+    public ColumnarResultDecoder(RestAPI restApi) {
+        this.restApi = restApi;
+        this.entityDecoder = new RestEntityDecoder(restApi);
+    }
+
+    @Override
+    public ColumnarResult decode(String json) {
+        try {
+            return decodeDocument(JSON_FACTORY.createJsonParser(json));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading cypher result from '" + json + "'", e);
+        }
+    }
+
+    @Override
+    public ColumnarResult decode(InputStream stream) {
+        try {
+            return decodeDocument(JSON_FACTORY.createJsonParser(stream));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading cypher result from stream", e);
+        }
+    }
+
+    private ColumnarResult decodeDocument(JsonParser parser) throws IOException {
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) throw new IOException("Expected a cypher result at " + parser.getCurrentLocation());
+            final List<String> names = new ArrayList<String>();
+            final List<ColumnBuilder> builders = new ArrayList<ColumnBuilder>();
+            int rows = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                if (name.equals("columns") && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        names.add(StringCanonicalizer.getShared().canonicalize(parser.getText()));
+                    }
+                } else if (name.equals("data") && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_ARRAY) {
+                        int column = 0;
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            builder(builders, column++, rows).add(parser);
+                        }
+                        completeRow(builders, column);
+                        rows++;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return build(names, builders, rows);
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Override
+    public ColumnarResult convert(Object value) {
+        final Map<?, ?> result = (Map<?, ?>) value;
+        final List<String> names = new ArrayList<String>();
+        for (Object name : (Collection<?>) result.get("columns")) {
+            names.add(StringCanonicalizer.getShared().canonicalize((String) name));
+        }
+        final List<ColumnBuilder> builders = new ArrayList<ColumnBuilder>();
+        int rows = 0;
+        for (Object row : (Collection<?>) result.get("data")) {
+            int column = 0;
+            for (Object cell : (Collection<?>) row) {
+                builder(builders, column++, rows).add(cell);
+            }
+            completeRow(builders, column);
+            rows++;
+        }
+        return build(names, builders, rows);
+    }
+
+    private ColumnBuilder builder(List<ColumnBuilder> builders, int column, int rows) {
+        if (column < builders.size()) return builders.get(column);
+        final ColumnBuilder builder = new ColumnBuilder(rows);
+        builders.add(builder);
+        return builder;
+    }
+
+    private void completeRow(List<ColumnBuilder> builders, int columns) {
+        for (int column = columns; column < builders.size(); column++) {
+            builders.get(column).addNull();
+        }
+    }
+
+    private ColumnarResult build(List<String> names, List<ColumnBuilder> builders, int rows) {
+        final int count = Math.max(names.size(), builders.size());
+        final List<String> columnNames = new ArrayList<String>(count);
+        final ColumnarResult.Column[] columns = new ColumnarResult.Column[count];
+        for (int i = 0; i < count; i++) {
+            final String name = i < names.size() ? names.get(i) : "column" + i;
+            columnNames.add(name);
+            columns[i] = (i < builders.size() ? builders.get(i) : new ColumnBuilder(rows)).build(name);
+        }
+        return new ColumnarResult(columnNames, columns, rows);
+    }
+
+    private RestEntity entity(Type type, long id) {
+        if (type == Type.NODE) return new RestNode(id, restApi);
+        return new RestRelationship(restApi.getBaseUri() + "/relationship/" + id, restApi);
+    }
+
+    private final class ColumnBuilder {
+        private Type type; // null until the first value that is not null
+        private int size;
+        private long[] nulls = new long[INITIAL_CAPACITY >>> 6];
+        private long[] longs;
+        private double[] doubles;
+        private boolean[] booleans;
+        private int[] codes;
+        private Dictionary dictionary;
+        private Object[] objects;
+
+        ColumnBuilder(int nullRows) {
+            for (int i = 0; i < nullRows; i++) {
+                addNull();
+            }
+        }
+
+        void add(JsonParser parser) throws IOException {
+            switch (parser.getCurrentToken()) {
+                case VALUE_NULL:
+                    addNull();
+                    break;
+                case VALUE_NUMBER_INT:
+                    if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER || !isNumeric()) {
+                        addObject(parser.getNumberValue());
+                    } else if (type == Type.DOUBLE) {
+                        addDouble(parser.getDoubleValue());
+                    } else {
+                        addLong(parser.getLongValue());
+                    }
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    if (isNumeric()) {
+                        addDouble(parser.getDoubleValue());
+                    } else {
+                        addObject(parser.getNumberValue());
+                    }
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    addBoolean(parser.getCurrentToken() == JsonToken.VALUE_TRUE);
+                    break;
+                case VALUE_STRING:
+                    if (type == null || type == Type.STRING) {
+                        addString(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    } else {
+                        addObject(parser.getText());
+                    }
+                    break;
+                case START_OBJECT:
+                    if (type == Type.NODE || type == Type.RELATIONSHIP) {
+                        addEntityOrObject(parser);
+                    } else {
+                        add(entityDecoder.decode(parser));
+                    }
+                    break;
+                default:
+                    addObject(entityDecoder.decode(parser));
+            }
+        }
+
+        void add(Object value) {
+            if (value == null) {
+                addNull();
+            } else if ((value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) && isNumeric()) {
+                if (type == Type.DOUBLE) addDouble(((Number) value).doubleValue());
+                else addLong(((Number) value).longValue());
+            } else if ((value instanceof Double || value instanceof Float) && isNumeric()) {
+                addDouble(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                addBoolean((Boolean) value);
+            } else if (value instanceof String && (type == null || type == Type.STRING)) {
+                final String string = (String) value;
+                addString(string.toCharArray(), 0, string.length());
+            } else if (value instanceof RestNode && (type == null || type == Type.NODE)) {
+                addId(Type.NODE, ((RestNode) value).getId());
+            } else if (value instanceof RestRelationship && (type == null || type == Type.RELATIONSHIP)) {
+                addId(Type.RELATIONSHIP, ((RestRelationship) value).getId());
+            } else if (value instanceof Map || value instanceof Collection) {
+                final Object converted = entityDecoder.convert(value);
+                if (converted instanceof RestEntity) add(converted);
+                else addObject(converted);
+            } else {
+                addObject(value);
+            }
+        }
+
+        private boolean isNumeric() {
+            return type == null || type == Type.LONG || type == Type.DOUBLE;
+        }
+
+        /**
+         * Reads only the id from the self uri of a node or relationship, its links and data are skipped. Start, end
+         * and type may also be keys of a path or map, they are kept until a link, data or self shows that the
+         * object is an entity. Any other key before that turns the object into a map (e.g. a path), which becomes
+         * part of an object column.
+         */
+        private void addEntityOrObject(JsonParser parser) throws IOException {
+            Map<String, Object> fields = null;
+            boolean entity = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken token = parser.nextToken();
+                if (name.equals("self") && token == JsonToken.VALUE_STRING) {
+                    if (addEntity(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())) {
+                        skipFields(parser);
+                        return;
+                    }
+                    if (entity) break;
+                } else if (entity || isEntityField(name, token)) {
+                    entity = true;
+                    parser.skipChildren();
+                    continue;
+                } else if (AMBIGUOUS_FIELDS.contains(name) && token == JsonToken.VALUE_STRING) {
+                    if (fields == null) fields = new LinkedHashMap<String, Object>();
+                    fields.put(name, parser.getText());
+                    continue;
+                }
+                if (fields == null) fields = new LinkedHashMap<String, Object>();
+                fields.put(name, entityDecoder.decode(parser));
+                if (!name.equals("self")) {
+                    decodeFields(parser, fields);
+                    break;
+                }
+            }
+            if (entity) throw new IOException("Expected the self uri of a node or relationship at " + parser.getCurrentLocation());
+            add(fields != null ? fields : new LinkedHashMap<String, Object>());
+        }
+
+        private boolean isEntityField(String name, JsonToken token) {
+            if (name.equals("data")) return token == JsonToken.START_OBJECT;
+            return ENTITY_LINKS.contains(name) && (token == JsonToken.VALUE_STRING || token == JsonToken.START_OBJECT);
+        }
+
+        private void decodeFields(JsonParser parser, Map<String, Object> fields) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                parser.nextToken();
+                fields.put(name, entityDecoder.decode(parser));
+            }
+        }
+
+        private void skipFields(JsonParser parser) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                parser.nextToken();
+                parser.skipChildren();
+            }
+        }
+
+        /**
+         * @return false if the uri does not end with node/&lt;digits&gt; or relationship/&lt;digits&gt;
+         */
+        private boolean addEntity(char[] chars, int offset, int length) {
+            final int end = offset + length;
+            int slash = end - 1;
+            while (slash >= offset && chars[slash] != '/') slash--;
+            if (slash < offset || slash == end - 1 || end - slash > 19) return false;
+            long id = 0;
+            for (int i = slash + 1; i < end; i++) {
+                final char c = chars[i];
+                if (c < '0' || c > '9') return false;
+                id = id * 10 + (c - '0');
+            }
+            if (endsWith(chars, offset, slash, "node")) {
+                addId(Type.NODE, id);
+            } else if (endsWith(chars, offset, slash, "relationship")) {
+                addId(Type.RELATIONSHIP, id);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean endsWith(char[] chars, int offset, int end, String suffix) {
+            final int start = end - suffix.length();
+            if (start < offset) return false;
+            for (int i = 0; i < suffix.length(); i++) {
+                if (chars[start + i] != suffix.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        void addNull() {
+            ensureCapacity();
+            nulls[size >>> 6] |= 1L << size;
+            if (type == Type.STRING) codes[size] = -1;
+            size++;
+        }
+
+        private void addLong(long value) {
+            if (type == null) start(Type.LONG);
+            ensureCapacity();
+            longs[size++] = value;
+        }
+
+        private void addDouble(double value) {
+            if (type == null) start(Type.DOUBLE);
+            if (type == Type.LONG) {
+                doubles = new double[longs.length];
+                for (int i = 0; i < size; i++) {
+                    doubles[i] = longs[i];
+                }
+                longs = null;
+                type = Type.DOUBLE;
+            }
+            ensureCapacity();
+            doubles[size++] = value;
+        }
+
+        private void addBoolean(boolean value) {
+            if (type == null) start(Type.BOOLEAN);
+            if (type != Type.BOOLEAN) {
+                addObject(value);
+                return;
+            }
+            ensureCapacity();
+            booleans[size++] = value;
+        }
+
+        private void addString(char[] chars, int offset, int length) {
+            if (type == null) start(Type.STRING);
+            ensureCapacity();
+            codes[size++] = dictionary.code(chars, offset, length);
+        }
+
+        private void addId(Type kind, long id) {
+            if (type == null) start(kind);
+            if (type != kind) {
+                addObject(entity(kind, id));
+                return;
+            }
+            ensureCapacity();
+            longs[size++] = id;
+        }
+
+        private void addObject(Object value) {
+            if (type != Type.OBJECT) {
+                final Object[] values = new Object[Math.max(INITIAL_CAPACITY, size + 1)];
+                for (int i = 0; i < size; i++) {
+                    values[i] = isNull(i) ? null : boxed(i);
+                }
+                objects = values;
+                longs = null;
+                doubles = null;
+                booleans = null;
+                codes = null;
+                dictionary = null;
+                type = Type.OBJECT;
+            }
+            ensureCapacity();
+            objects[size++] = value;
+        }
+
+        private boolean isNull(int row) {
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        private Object boxed(int row) {
+            switch (type) {
+                case LONG:
+                    return longs[row];
+                case DOUBLE:
+                    return doubles[row];
+                case BOOLEAN:
+                    return booleans[row];
+                case STRING:
+                    return dictionary.get(codes[row]);
+                case NODE:
+                case RELATIONSHIP:
+                    return entity(type, longs[row]);
+                default:
+                    return null;
+            }
+        }
+
+        private void start(Type type) {
+            this.type = type;
+            final int capacity = Math.max(INITIAL_CAPACITY, size + 1);
+            switch (type) {
+                case DOUBLE:
+                    doubles = new double[capacity];
+                    break;
+                case BOOLEAN:
+                    booleans = new boolean[capacity];
+                    break;
+                case STRING:
+                    codes = new int[capacity];
+                    Arrays.fill(codes, 0, size, -1);
+                    dictionary = new Dictionary();
+                    break;
+                default:
+                    longs = new long[capacity];
+            }
+        }
+
+        private void ensureCapacity() {
+            if ((size >>> 6) >= nulls.length) nulls = Arrays.copyOf(nulls, nulls.length * 2);
+            if (type == null) return;
+            switch (type) {
+                case DOUBLE:
+                    if (size == doubles.length) doubles = Arrays.copyOf(doubles, size * 2);
+                    break;
+                case BOOLEAN:
+                    if (size == booleans.length) booleans = Arrays.copyOf(booleans, size * 2);
+                    break;
+                case STRING:
+                    if (size == codes.length) codes = Arrays.copyOf(codes, size * 2);
+                    break;
+                case OBJECT:
+                    if (size == objects.length) objects = Arrays.copyOf(objects, size * 2);
+                    break;
+                default:
+                    if (size == longs.length) longs = Arrays.copyOf(longs, size * 2);
+            }
+        }
+
+        ColumnarResult.Column build(String name) {
+            if (type == null) return new ColumnarResult.ObjectColumn(name, nulls, new Object[size], size);
+            switch (type) {
+                case DOUBLE:
+                    return new ColumnarResult.DoubleColumn(name, nulls, doubles, size);
+                case BOOLEAN:
+                    return new ColumnarResult.BooleanColumn(name, nulls, booleans, size);
+                case STRING:
+                    return new ColumnarResult.StringColumn(name, nulls, dictionary.toArray(), codes, size);
+                case OBJECT:
+                    return new ColumnarResult.ObjectColumn(name, nulls, objects, size);
+                default:
+                    return new ColumnarResult.LongColumn(name, type, nulls, longs, size);
+            }
+        }
+    }
+
+    /**
+     * Distinct strings of a column, looked up by their characters so that repeated strings are not allocated.
+     */
+    private static final class Dictionary {
+        private String[] strings = new String[16];
+        private int[] slots = new int[32]; // code + 1, 0 is empty
+        private int size;
+
+        int code(char[] chars, int offset, int length) {
+            int hash = 0;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + chars[i];
+            }
+            final int mask = slots.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (slots[slot] != 0) {
+                final String string = strings[slots[slot] - 1];
+                if (matches(string, chars, offset, length)) return slots[slot] - 1;
+                slot = (slot + 1) & mask;
+            }
+            if (size == strings.length) strings = Arrays.copyOf(strings, size * 2);
+            strings[size] = new String(chars, offset, length);
+            slots[slot] = ++size;
+            if (size * 2 > slots.length) rehash();
+            return size - 1;
+        }
+
+        private static boolean matches(String string, char[] chars, int offset, int length) {
+            if (string.length() != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (string.charAt(i) != chars[offset + i]) return false;
+            }
+            return true;
+        }
+
+        private void rehash() {
+            slots = new int[slots.length * 2];
+            final int mask = slots.length - 1;
+            for (int code = 0; code < size; code++) {
+                final int hash = strings[code].hashCode();
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (slots[slot] != 0) slot = (slot + 1) & mask;
+                slots[slot] = code + 1;
+            }
+        }
+
+        String get(int code) {
+            return code == -1 ? null : strings[code];
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(strings, size);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.query;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class CypherQueries {
+    private static final Pattern LITERALS = Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"|'(?:[^'\\\\]|\\\\.)*'|`[^`]*`");
+    private static final Pattern UPDATING_CLAUSE = Pattern.compile("\\b(CREATE|SET|DELETE|REMOVE|MERGE|FOREACH|RELATE)\\b", Pattern.CASE_INSENSITIVE);
+
+    private CypherQueries() {
+    }
+
+    /**
+     * @return true if the statement contains no updating clause, string literals and quoted identifiers are ignored
+     */
+    public static boolean isReadOnly(String statement) {
+        if (statement == null) return false;
+        return !UPDATING_CLAUSE.matcher(LITERALS.matcher(statement).replaceAll("\"\"")).find();
+    }
+
+    /**
+     * @return true if data is the payload of a cypher endpoint call with a read only query
+     */
+    public static boolean isReadOnlyRequest(Object data) {
+        if (!(data instanceof Map)) return false;
+        final Object query = ((Map) data).get("query");
+        return query instanceof String && isReadOnly((String) query);
+    }
+}
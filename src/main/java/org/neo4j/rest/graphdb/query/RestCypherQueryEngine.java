@@ -22,6 +22,7 @@ package org.neo4j.rest.graphdb.query;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.neo4j.rest.graphdb.*;
 import org.neo4j.rest.graphdb.converter.RestEntityExtractor;
@@ -49,4 +50,22 @@ public class RestCypherQueryEngine implements QueryEngine<Map<String,Object>> {
     public QueryResult<Map<String, Object>> query(String statement, Map<String, Object> params) {
         return restApi.query(statement, params, this.resultConverter);
     }
+
+    /**
+     * Runs the query and returns its result as primitive columns, see {@link ColumnarResult}.
+     */
+    public ColumnarResult queryColumnar(String statement, Map<String, Object> params) {
+        return restApi.queryColumnar(statement, params);
+    }
+
+    /**
+     * Runs the query with a {@link Deadline}, the request is aborted when it expires or is cancelled.
+     */
+    public QueryResult<Map<String, Object>> query(final String statement, final Map<String, Object> params, Deadline deadline) {
+        return deadline.call(new Callable<QueryResult<Map<String, Object>>>() {
+            public QueryResult<Map<String, Object>> call() {
+                return query(statement, params);
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ package org.neo4j.rest.graphdb.query;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.neo4j.helpers.collection.IterableWrapper;
 import org.neo4j.rest.graphdb.*;
@@ -55,4 +56,15 @@ public class RestGremlinQueryEngine implements QueryEngine<Object> {
     public QueryResult<Object> query(String statement, Map<String, Object> params) {
         return restApi.run(statement, params, resultConverter);
     }
+
+    /**
+     * Runs the script with a {@link Deadline}, the request is aborted when it expires or is cancelled.
+     */
+    public QueryResult<Object> query(final String statement, final Map<String, Object> params, Deadline deadline) {
+        return deadline.call(new Callable<QueryResult<Object>>() {
+            public QueryResult<Object> call() {
+                return query(statement, params);
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -20,7 +20,6 @@
 package org.neo4j.rest.graphdb.traversal;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
 
 import org.neo4j.graphdb.Node;
@@ -30,8 +29,10 @@ import org.neo4j.helpers.collection.IterableWrapper;
 import org.neo4j.helpers.collection.IteratorUtil;
 import org.neo4j.rest.graphdb.RequestResult;
 import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.converter.RestEntityDecoder;
 import org.neo4j.rest.graphdb.converter.RestResultConverter;
 import org.neo4j.rest.graphdb.converter.TypeInformation;
+import org.neo4j.rest.graphdb.entity.RestEntity;
 import org.neo4j.rest.graphdb.entity.RestNode;
 import org.neo4j.rest.graphdb.entity.RestRelationship;
 
@@ -65,38 +66,48 @@ public class RestPathParser implements RestResultConverter {
     }
 
     private  boolean isFullPath(TypeInformation typeInfo) {
-        return Map.class.isAssignableFrom(typeInfo.getGenericArguments()[0]);
+        final Class<?> type = typeInfo.getGenericArguments()[0];
+        return Map.class.isAssignableFrom(type) || RestEntity.class.isAssignableFrom(type);
     }
 
 
     private Path parseFullPath(Map path, final RestAPI restApi) {
-        final Collection<Map<?, ?>> nodesData = (Collection<Map<?, ?>>) path.get("nodes");
-        final Collection<Map<?, ?>> relationshipsData = (Collection<Map<?, ?>>) path.get("relationships");
-        final Map<?, ?> lastRelationshipData = lastElementMap(relationshipsData);
-        final Map<?, ?> startData = (Map<?, ?>) path.get("start");
-        final Map<?, ?> endData = (Map<?, ?>) path.get("end");
+        final Collection<Object> nodesData = (Collection<Object>) path.get("nodes");
+        final Collection<Object> relationshipsData = (Collection<Object>) path.get("relationships");
+        final Object lastRelationshipData = IteratorUtil.lastOrNull(relationshipsData);
         final Integer length = (Integer) path.get("length");
 
-        RestRelationship lastRelationship = lastRelationshipData == null ? null : new RestRelationship(lastRelationshipData, restApi);
+        RestRelationship lastRelationship = lastRelationshipData == null ? null : relationship(lastRelationshipData, restApi);
         return new SimplePath(
-                new RestNode(startData,restApi),
-                new RestNode(endData,restApi),
+                node(path.get("start"),restApi),
+                node(path.get("end"),restApi),
                 lastRelationship,
                 length,
-                new IterableWrapper<Node, Map<?,?>>(nodesData) {
+                new IterableWrapper<Node, Object>(nodesData) {
                     @Override
-                    protected Node underlyingObjectToObject(Map<?, ?> data) {
-                        return new RestNode(data,restApi);
+                    protected Node underlyingObjectToObject(Object data) {
+                        return node(data,restApi);
                     }
                 },
-                new IterableWrapper<Relationship, Map<?,?>>(relationshipsData) {
+                new IterableWrapper<Relationship, Object>(relationshipsData) {
                     @Override
-                    protected Relationship underlyingObjectToObject(Map<?, ?> data) {
-                        return new RestRelationship(data,restApi);
+                    protected Relationship underlyingObjectToObject(Object data) {
+                        return relationship(data,restApi);
                     }
                 });
     }
 
+    /**
+     * the path elements are either already decoded by the {@link RestEntityDecoder} or representation maps
+     */
+    private static RestNode node(Object data, RestAPI restApi) {
+        return data instanceof RestNode ? (RestNode) data : new RestNode((Map<?, ?>) data, restApi);
+    }
+
+    private static RestRelationship relationship(Object data, RestAPI restApi) {
+        return data instanceof RestRelationship ? (RestRelationship) data : new RestRelationship((Map<?, ?>) data, restApi);
+    }
+
     private Path parsePath(Map path, final RestAPI restApi){
         final Collection<String> nodesData = (Collection<String>) path.get("nodes");
         final Collection<String> relationshipsData = (Collection<String>) path.get("relationships");
@@ -128,21 +139,8 @@ public class RestPathParser implements RestResultConverter {
        return IteratorUtil.lastOrNull(collection);
     }
 
-    private Map<?, ?> lastElementMap(Collection<Map<?, ?>> collection) {
-        if (collection.isEmpty()) return null;
-        if (collection instanceof List) {
-            List<Map<?,?>> list = (List<Map<?,?>>) collection;
-            return list.get(list.size()-1);
-        }
-        Map<?, ?> result = null;
-        for (Map<?, ?> value : collection) {
-            result=value;
-        }
-        return result;
-    }
-
     @Override
     public Object convertFromRepresentation(RequestResult value) {
-        return parse(value.toMap(), this.restAPI);
+        return parse((Map) value.decode(new RestEntityDecoder(this.restAPI)), this.restAPI);
     }
 }
@@ -27,49 +27,77 @@ import java.util.Collection;
  * @since 02.02.11
  */
 public class ArrayConverter {
-        public Object toArray(Collection col) {
+    public Object toArray(Collection col) {
         Object entry = getNonNullEntry(col);
         if (entry==null) return null;
-        Class<? extends Object> elementClass = getArrayElementClass( entry );
-        Object array = Array.newInstance(elementClass, col.size());
-        if (Object.class.isAssignableFrom( elementClass)) {
-            col.toArray( (Object[])array );
-        } else {
-            int i=0;
+        final int size = col.size();
+        int i = 0;
+        if (entry instanceof Integer) {
+            final int[] array = new int[size];
             for ( Object value : col ) {
-                setArrayValue(array,i,value,elementClass);
-                i+=1;
+                if (value instanceof Number) array[i] = ((Number) value).intValue();
+                i++;
             }
+            return array;
         }
-        return array;
-    }
-
-    private void setArrayValue( Object array, int i, Object value, Class<? extends Object> type ) {
-        if (value==null) return;
-        if ( value instanceof Number ) {
-            Number number = (Number) value;
-            if (type.equals( int.class )) { Array.setInt( array, i, number.intValue()); return;}
-            if (type.equals( long.class )) { Array.setLong( array, i, number.longValue());  return;}
-            if (type.equals( double.class )) { Array.setDouble( array, i, number.doubleValue());  return;}
-            if (type.equals( float.class )) { Array.setFloat( array, i, number.floatValue()); return;}
-            if (type.equals( byte.class )) { Array.setByte( array, i, number.byteValue());  return;}
-            if (type.equals( short.class )) { Array.setShort( array, i, number.shortValue());  return;}
+        if (entry instanceof Long) {
+            final long[] array = new long[size];
+            for ( Object value : col ) {
+                if (value instanceof Number) array[i] = ((Number) value).longValue();
+                i++;
+            }
+            return array;
         }
-        if (type.equals( char.class )) { Array.setChar( array, i, (Character)value );  return;}
-        if (type.equals( boolean.class )) { Array.setBoolean( array, i, (Boolean) value );  return;}
-    }
-
-    private Class<? extends Object> getArrayElementClass( Object entry ) {
-        Class<? extends Object> type = entry.getClass();
-        if (type.equals( Integer.class )) return int.class;
-        if (type.equals( Long.class )) return long.class;
-        if (type.equals( Double.class )) return double.class;
-        if (type.equals( Float.class )) return float.class;
-        if (type.equals( Byte.class )) return byte.class;
-        if (type.equals( Short.class )) return short.class;
-        if (type.equals( Character.class )) return char.class;
-        if (type.equals( Boolean.class )) return boolean.class;
-        return type;
+        if (entry instanceof Double) {
+            final double[] array = new double[size];
+            for ( Object value : col ) {
+                if (value instanceof Number) array[i] = ((Number) value).doubleValue();
+                i++;
+            }
+            return array;
+        }
+        if (entry instanceof Float) {
+            final float[] array = new float[size];
+            for ( Object value : col ) {
+                if (value instanceof Number) array[i] = ((Number) value).floatValue();
+                i++;
+            }
+            return array;
+        }
+        if (entry instanceof Byte) {
+            final byte[] array = new byte[size];
+            for ( Object value : col ) {
+                if (value instanceof Number) array[i] = ((Number) value).byteValue();
+                i++;
+            }
+            return array;
+        }
+        if (entry instanceof Short) {
+            final short[] array = new short[size];
+            for ( Object value : col ) {
+                if (value instanceof Number) array[i] = ((Number) value).shortValue();
+                i++;
+            }
+            return array;
+        }
+        if (entry instanceof Character) {
+            final char[] array = new char[size];
+            for ( Object value : col ) {
+                if (value instanceof Character) array[i] = (Character) value;
+                i++;
+            }
+            return array;
+        }
+        if (entry instanceof Boolean) {
+            final boolean[] array = new boolean[size];
+            for ( Object value : col ) {
+                if (value instanceof Boolean) array[i] = (Boolean) value;
+                i++;
+            }
+            return array;
+        }
+        Object[] array = (Object[]) Array.newInstance(entry.getClass(), size);
+        return col.toArray( array );
     }
 
     private Object getNonNullEntry(Collection col) {
@@ -27,6 +27,14 @@ public class Config {
     public static final String CONFIG_BATCH_TRANSACTION = CONFIG_PREFIX+"batch_transaction";
     public static final String CONFIG_LOG_REQUESTS = CONFIG_PREFIX+"logging_filter";
     public static final String WRITE_THREADS = "write_threads";
+    public static final String CONFIG_POOLED_CONNECTIONS = CONFIG_PREFIX + "pooled_connections";
+    public static final String CONFIG_STREAM_RESULTS = CONFIG_PREFIX + "stream_results";
+    public static final String CONFIG_COALESCE_REQUESTS = CONFIG_PREFIX + "coalesce_requests";
+    public static final String CONFIG_COMPRESSION = CONFIG_PREFIX + "compression";
+    public static final String CONFIG_COMPRESS_REQUESTS_ABOVE = CONFIG_PREFIX + "compress_requests_above";
+    public static final String CONFIG_HEDGE_REQUESTS = CONFIG_PREFIX + "hedge_requests";
+    public static final String CONFIG_JSON_CODEC = CONFIG_PREFIX + "json_codec";
+    public static final String CONFIG_BATCH_COMPACTION = CONFIG_PREFIX + "batch_compaction";
 
     public static int getConnectTimeout() {
         return getTimeout("connect_timeout", 30);
@@ -40,6 +48,10 @@ public class Config {
         return Boolean.parseBoolean(System.getProperty(CONFIG_STREAM,"true"));
     }
 
+    public static boolean streamResults() {
+        return System.getProperty(CONFIG_STREAM_RESULTS,"false").equalsIgnoreCase("true");
+    }
+
     public static boolean useBatchTransactions() {
         return System.getProperty(CONFIG_BATCH_TRANSACTION,"false").equalsIgnoreCase("true");
     }
@@ -55,4 +67,165 @@ public class Config {
     public static int getWriterThreads() {
         return Integer.parseInt(System.getProperty(CONFIG_PREFIX + WRITE_THREADS, "" + 10));
     }
+
+    /**
+     * @return writes of a {@link org.neo4j.rest.graphdb.batch.BatchWriter} that are sent as one batch at most
+     */
+    public static int getWriteBatchSize() {
+        return getInt("write_batch_size", 500);
+    }
+
+    /**
+     * @return time a {@link org.neo4j.rest.graphdb.batch.BatchWriter} waits for more writes before it sends a batch
+     */
+    public static long getWriteBatchWindowMillis() {
+        return getInt("write_batch_window_millis", 10);
+    }
+
+    public static int getWriteQueueSize() {
+        return getInt("write_queue_size", 10000);
+    }
+
+    /**
+     * @return records a {@link org.neo4j.rest.graphdb.batch.BulkLoader} sends as one /batch request
+     */
+    public static int getBulkChunkSize() {
+        return getInt("bulk_chunk_size", 1000);
+    }
+
+    /**
+     * @return concurrent /batch requests of a {@link org.neo4j.rest.graphdb.batch.BulkLoader}
+     */
+    public static int getBulkThreads() {
+        return getInt("bulk_threads", 4);
+    }
+
+    public static int getAsyncThreads() {
+        return getInt("async_threads", 10);
+    }
+
+    public static boolean usePooledConnections() {
+        return System.getProperty(CONFIG_POOLED_CONNECTIONS,"false").equalsIgnoreCase("true");
+    }
+
+    public static int getMaxConnectionsPerHost() {
+        return getInt("max_connections_per_host", 20);
+    }
+
+    public static int getMaxTotalConnections() {
+        return getInt("max_total_connections", 200);
+    }
+
+    public static int getIdleConnectionTimeout() {
+        return getTimeout("idle_connection_timeout", 60);
+    }
+
+    public static int getValidateAfterInactivity() {
+        return getTimeout("validate_after_inactivity", 2);
+    }
+
+    public static boolean coalesceRequests() {
+        return System.getProperty(CONFIG_COALESCE_REQUESTS,"false").equalsIgnoreCase("true");
+    }
+
+    public static boolean useCompression() {
+        return System.getProperty(CONFIG_COMPRESSION,"false").equalsIgnoreCase("true");
+    }
+
+    /**
+     * @return request bodies larger than this many bytes are sent gzipped, -1 (default) never compresses requests
+     */
+    public static int getCompressRequestsAbove() {
+        return Integer.parseInt(System.getProperty(CONFIG_COMPRESS_REQUESTS_ABOVE, "-1"));
+    }
+
+    public static int getHealthCheckInterval() {
+        return getTimeout("health_check_interval", 5);
+    }
+
+    public static int getRetries() {
+        return getInt("retries", 0);
+    }
+
+    public static long getRetryBackoffMillis() {
+        return getInt("retry_backoff_millis", 100);
+    }
+
+    public static long getRetryMaxBackoffMillis() {
+        return getInt("retry_max_backoff_millis", 2000);
+    }
+
+    public static int getCircuitBreakerFailures() {
+        return getInt("circuit_breaker_failures", 0);
+    }
+
+    public static long getCircuitBreakerResetTimeout() {
+        return getTimeout("circuit_breaker_reset_timeout", 10);
+    }
+
+    public static boolean hedgeRequests() {
+        return System.getProperty(CONFIG_HEDGE_REQUESTS,"false").equalsIgnoreCase("true");
+    }
+
+    public static int getHedgePercentile() {
+        return getInt("hedge_percentile", 95);
+    }
+
+    public static long getHedgeMinDelayMillis() {
+        return getInt("hedge_min_delay_millis", 10);
+    }
+
+    public static int getHedgeThreads() {
+        return getInt("hedge_threads", 20);
+    }
+
+    /**
+     * @return tree (default), streaming or recycling, see {@link JsonCodecs}
+     */
+    public static String getJsonCodec() {
+        return System.getProperty(CONFIG_JSON_CODEC, "tree");
+    }
+
+    /**
+     * @return slots of the table of canonical relationship types, column names and uri prefixes, 0 disables it
+     */
+    public static int getCanonicalStrings() {
+        return getInt("canonical_strings", 4096);
+    }
+
+    /**
+     * @return true (default) to leave out operations of a batch that other operations cover, see {@link org.neo4j.rest.graphdb.batch.BatchCompactor}
+     */
+    public static boolean compactBatches() {
+        return System.getProperty(CONFIG_BATCH_COMPACTION,"true").equalsIgnoreCase("true");
+    }
+
+    /**
+     * @return concurrent /batch requests the independent operations of a batch are split into, 1 (default) does not split it
+     */
+    public static int getBatchParallelism() {
+        return getInt("batch_parallelism", 1);
+    }
+
+    /**
+     * @return operations per /batch request, a larger batch transaction is sent in chunks, 0 (default) sends it at once
+     */
+    public static int getBatchMaxOperations() {
+        return getInt("batch_max_operations", 0);
+    }
+
+    /**
+     * @return estimated payload bytes per /batch request, a larger batch transaction is sent in chunks, 0 (default) sends it at once
+     */
+    public static long getBatchMaxBytes() {
+        return Long.parseLong(System.getProperty(CONFIG_PREFIX + "batch_max_bytes", "0"));
+    }
+
+    public static String getSafePostPattern() {
+        return System.getProperty(CONFIG_PREFIX + "safe_post_pattern");
+    }
+
+    private static int getInt(final String param, final int defaultValue) {
+        return Integer.parseInt(System.getProperty(CONFIG_PREFIX + param, "" + defaultValue));
+    }
 }
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Encodes request bodies and decodes response bodies. Implementations are thread safe, a codec is chosen per
+ * {@link org.neo4j.rest.graphdb.RestAPIFacade}, the default one with the org.neo4j.rest.json_codec property.
+ *
+ * @see JsonCodecs
+ */
+public interface JsonCodec {
+
+    /**
+     * @return the decoded value as Map, List, String, Number, Boolean or null
+     */
+    Object decode(String json);
+
+    /**
+     * Decodes and closes the stream.
+     */
+    Object decode(InputStream stream);
+
+    String encode(Object data);
+
+    /**
+     * Writes the data as compact UTF-8 JSON, the stream is not closed.
+     */
+    void encode(Object data, OutputStream stream) throws IOException;
+}
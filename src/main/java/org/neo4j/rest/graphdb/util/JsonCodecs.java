@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+/**
+ * The shipped {@link JsonCodec}s.
+ */
+public class JsonCodecs {
+    /**
+     * Jackson data binding into Map/List trees, the default
+     */
+    public static final JsonCodec TREE = new TreeJsonCodec();
+    /**
+     * token level parsing and generation without data binding
+     */
+    public static final JsonCodec STREAMING = new StreamingJsonCodec();
+    /**
+     * reused ObjectReader/ObjectWriter, responses are read into recycled buffers first
+     */
+    public static final JsonCodec RECYCLING = new RecyclingJsonCodec();
+
+    public static JsonCodec getDefault() {
+        return forName(Config.getJsonCodec());
+    }
+
+    public static JsonCodec forName(String name) {
+        if (name.equalsIgnoreCase("tree")) return TREE;
+        if (name.equalsIgnoreCase("streaming")) return STREAMING;
+        if (name.equalsIgnoreCase("recycling")) return RECYCLING;
+        throw new IllegalArgumentException("Unknown json codec " + name + ", use tree, streaming or recycling");
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Request entity that serializes its payload as compact JSON directly onto the connection output stream,
+ * without building an intermediate String.
+ */
+public class JsonEntity implements StreamingOutput {
+    private final Object data;
+    private final JsonCodec codec;
+
+    public JsonEntity(Object data) {
+        this(data, JsonCodecs.getDefault());
+    }
+
+    public JsonEntity(Object data, JsonCodec codec) {
+        this.data = data;
+        this.codec = codec;
+    }
+
+    public Object getData() {
+        return data;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException, WebApplicationException {
+        codec.encode(data, output);
+    }
+
+    @Override
+    public String toString() {
+        return codec.encode(data);
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectReader;
+import org.codehaus.jackson.map.ObjectWriter;
+
+/**
+ * Uses one ObjectReader and ObjectWriter for all calls, which keeps the resolved (de)serializers. Response streams
+ * are read completely into a per thread recycled buffer and parsed from there, buffers up to 1MB are kept.
+ */
+public class RecyclingJsonCodec implements JsonCodec {
+    private static final int MAX_RECYCLED = 1024 * 1024;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader reader = mapper.reader(Object.class);
+    private final ObjectWriter writer = mapper.writer();
+    private final ThreadLocal<SoftReference<byte[]>> buffers = new ThreadLocal<SoftReference<byte[]>>();
+
+    @Override
+    public Object decode(String json) {
+        try {
+            return reader.readValue(json);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading as JSON '" + json + "'", e);
+        }
+    }
+
+    @Override
+    public Object decode(InputStream stream) {
+        try {
+            byte[] buffer = acquireBuffer();
+            int length = 0;
+            try {
+                int read;
+                while ((read = stream.read(buffer, length, buffer.length - length)) != -1) {
+                    length += read;
+                    if (length == buffer.length) {
+                        final byte[] grown = new byte[buffer.length * 2];
+                        System.arraycopy(buffer, 0, grown, 0, length);
+                        buffer = grown;
+                    }
+                }
+            } finally {
+                stream.close();
+            }
+            try {
+                return reader.readValue(buffer, 0, length);
+            } finally {
+                releaseBuffer(buffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading JSON from stream", e);
+        }
+    }
+
+    private byte[] acquireBuffer() {
+        final SoftReference<byte[]> reference = buffers.get();
+        final byte[] buffer = reference == null ? null : reference.get();
+        if (buffer == null) return new byte[8192];
+        buffers.remove();
+        return buffer;
+    }
+
+    private void releaseBuffer(byte[] buffer) {
+        if (buffer.length <= MAX_RECYCLED) buffers.set(new SoftReference<byte[]>(buffer));
+    }
+
+    @Override
+    public String encode(Object data) {
+        try {
+            return writer.writeValueAsString(data);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void encode(Object data, OutputStream stream) throws IOException {
+        final JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(stream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            writer.writeValue(generator, data);
+        } finally {
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.MappingJsonFactory;
+
+/**
+ * Walks the JSON tokens directly, without Jackson's data binding and its type lookups. Produces the same
+ * values as the {@link TreeJsonCodec}, values other than maps, collections, arrays, strings, numbers and
+ * booleans are handed to the data binding.
+ */
+public class StreamingJsonCodec implements JsonCodec {
+    private final MappingJsonFactory factory = new MappingJsonFactory();
+
+    @Override
+    public Object decode(String json) {
+        try {
+            return decodeDocument(factory.createJsonParser(json));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading as JSON '" + json + "'", e);
+        }
+    }
+
+    @Override
+    public Object decode(InputStream stream) {
+        try {
+            return decodeDocument(factory.createJsonParser(stream));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading JSON from stream", e);
+        }
+    }
+
+    private Object decodeDocument(JsonParser parser) throws IOException {
+        try {
+            if (parser.nextToken() == null) return null;
+            return decodeValue(parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Decodes the value at the current token of the parser, leaves the parser at its last token.
+     */
+    public static Object decodeValue(JsonParser parser) throws IOException {
+        switch (parser.getCurrentToken()) {
+            case START_OBJECT:
+                final Map<String, Object> map = new LinkedHashMap<String, Object>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.getCurrentName();
+                    parser.nextToken();
+                    map.put(name, decodeValue(parser));
+                }
+                return map;
+            case START_ARRAY:
+                final List<Object> list = new ArrayList<Object>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(decodeValue(parser));
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IOException("Unexpected token " + parser.getCurrentToken() + " at " + parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Decodes a property value, arrays of numbers, booleans or strings become an int[] (or long[] if an element
+     * doesn't fit into an int), double[] (if an element is a floating point number), boolean[] or String[] without
+     * boxing their elements. Null elements are left at the default value, an empty array becomes a String[].
+     * Other arrays are decoded like {@link #decodeValue(JsonParser)}.
+     */
+    public static Object decodePropertyValue(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) return decodeValue(parser);
+        final PropertyArray array = new PropertyArray();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (!array.add(parser, token)) {
+                final List<Object> list = array.toList();
+                list.add(decodeValue(parser));
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(decodeValue(parser));
+                }
+                return list;
+            }
+        }
+        return array.toArray();
+    }
+
+    private static class PropertyArray {
+        private JsonToken type; // VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT, VALUE_TRUE or VALUE_STRING
+        private boolean ints = true;
+        private int size;
+        private long[] longs;
+        private double[] doubles;
+        private boolean[] booleans;
+        private String[] strings;
+
+        /**
+         * @return false if the element can't be added to a primitive or String array
+         */
+        boolean add(JsonParser parser, JsonToken token) throws IOException {
+            switch (token) {
+                case VALUE_NULL:
+                    if (type != null) ensureCapacity();
+                    size++;
+                    return true;
+                case VALUE_NUMBER_INT:
+                    final JsonParser.NumberType numberType = parser.getNumberType();
+                    if (numberType == JsonParser.NumberType.BIG_INTEGER) return false;
+                    if (type == JsonToken.VALUE_NUMBER_FLOAT) {
+                        ensureCapacity();
+                        doubles[size++] = parser.getDoubleValue();
+                        return true;
+                    }
+                    if (!start(JsonToken.VALUE_NUMBER_INT)) return false;
+                    if (numberType != JsonParser.NumberType.INT) ints = false;
+                    ensureCapacity();
+                    longs[size++] = parser.getLongValue();
+                    return true;
+                case VALUE_NUMBER_FLOAT:
+                    if (type == JsonToken.VALUE_NUMBER_INT) {
+                        doubles = new double[longs.length];
+                        for (int i = 0; i < size; i++) {
+                            doubles[i] = longs[i];
+                        }
+                        longs = null;
+                        type = JsonToken.VALUE_NUMBER_FLOAT;
+                    }
+                    if (!start(JsonToken.VALUE_NUMBER_FLOAT)) return false;
+                    ensureCapacity();
+                    doubles[size++] = parser.getDoubleValue();
+                    return true;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    if (!start(JsonToken.VALUE_TRUE)) return false;
+                    ensureCapacity();
+                    booleans[size++] = token == JsonToken.VALUE_TRUE;
+                    return true;
+                case VALUE_STRING:
+                    if (!start(JsonToken.VALUE_STRING)) return false;
+                    ensureCapacity();
+                    strings[size++] = parser.getText();
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean start(JsonToken type) {
+            if (this.type != null) return this.type == type;
+            this.type = type;
+            final int capacity = Math.max(16, size * 2);
+            switch (type) {
+                case VALUE_NUMBER_INT:
+                    longs = new long[capacity];
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    doubles = new double[capacity];
+                    break;
+                case VALUE_TRUE:
+                    booleans = new boolean[capacity];
+                    break;
+                default:
+                    strings = new String[capacity];
+            }
+            return true;
+        }
+
+        private void ensureCapacity() {
+            switch (type) {
+                case VALUE_NUMBER_INT:
+                    if (size == longs.length) longs = Arrays.copyOf(longs, size * 2);
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    if (size == doubles.length) doubles = Arrays.copyOf(doubles, size * 2);
+                    break;
+                case VALUE_TRUE:
+                    if (size == booleans.length) booleans = Arrays.copyOf(booleans, size * 2);
+                    break;
+                default:
+                    if (size == strings.length) strings = Arrays.copyOf(strings, size * 2);
+            }
+        }
+
+        Object toArray() {
+            if (type == null) return new String[size];
+            switch (type) {
+                case VALUE_NUMBER_INT:
+                    if (!ints) return Arrays.copyOf(longs, size);
+                    final int[] result = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        result[i] = (int) longs[i];
+                    }
+                    return result;
+                case VALUE_NUMBER_FLOAT:
+                    return Arrays.copyOf(doubles, size);
+                case VALUE_TRUE:
+                    return Arrays.copyOf(booleans, size);
+                default:
+                    return Arrays.copyOf(strings, size);
+            }
+        }
+
+        /**
+         * the elements added so far, for arrays that can't be kept as primitive array
+         */
+        List<Object> toList() {
+            final List<Object> list = new ArrayList<Object>(size + 1);
+            for (int i = 0; i < size; i++) {
+                if (type == JsonToken.VALUE_NUMBER_INT) {
+                    list.add(ints ? (Object) (int) longs[i] : (Object) longs[i]);
+                } else if (type == JsonToken.VALUE_NUMBER_FLOAT) {
+                    list.add(doubles[i]);
+                } else if (type == JsonToken.VALUE_TRUE) {
+                    list.add(booleans[i]);
+                } else if (type == JsonToken.VALUE_STRING) {
+                    list.add(strings[i]);
+                } else {
+                    list.add(null);
+                }
+            }
+            return list;
+        }
+    }
+
+    @Override
+    public String encode(Object data) {
+        try {
+            final StringWriter writer = new StringWriter();
+            final JsonGenerator generator = factory.createJsonGenerator(writer);
+            encode(data, generator);
+            generator.close();
+            return writer.toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void encode(Object data, OutputStream stream) throws IOException {
+        final JsonGenerator generator = factory.createJsonGenerator(stream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            encode(data, generator);
+        } finally {
+            generator.close();
+        }
+    }
+
+    private void encode(Object value, JsonGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                encode(entry.getValue(), generator);
+            }
+            generator.writeEndObject();
+        } else if (value instanceof Iterable) {
+            generator.writeStartArray();
+            for (Object element : (Iterable<?>) value) {
+                encode(element, generator);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Number) {
+            encodeNumber((Number) value, generator);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            generator.writeString(value.toString());
+        } else if (value instanceof Object[]) {
+            generator.writeStartArray();
+            for (Object element : (Object[]) value) {
+                encode(element, generator);
+            }
+            generator.writeEndArray();
+        } else if (value.getClass().isArray()) {
+            encodePrimitiveArray(value, generator);
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    private void encodeNumber(Number number, JsonGenerator generator) throws IOException {
+        if (number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            generator.writeNumber(number.intValue());
+        } else if (number instanceof Long) {
+            generator.writeNumber(number.longValue());
+        } else if (number instanceof Double) {
+            generator.writeNumber(number.doubleValue());
+        } else if (number instanceof Float) {
+            generator.writeNumber(number.floatValue());
+        } else if (number instanceof BigInteger) {
+            generator.writeNumber((BigInteger) number);
+        } else if (number instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) number);
+        } else {
+            generator.writeObject(number);
+        }
+    }
+
+    private void encodePrimitiveArray(Object array, JsonGenerator generator) throws IOException {
+        if (array instanceof byte[] || array instanceof char[]) {
+            // keep Jackson's encoding as base64 and string
+            generator.writeObject(array);
+            return;
+        }
+        generator.writeStartArray();
+        if (array instanceof int[]) {
+            for (int value : (int[]) array) generator.writeNumber(value);
+        } else if (array instanceof long[]) {
+            for (long value : (long[]) array) generator.writeNumber(value);
+        } else if (array instanceof double[]) {
+            for (double value : (double[]) array) generator.writeNumber(value);
+        } else if (array instanceof float[]) {
+            for (float value : (float[]) array) generator.writeNumber(value);
+        } else if (array instanceof boolean[]) {
+            for (boolean value : (boolean[]) array) generator.writeBoolean(value);
+        } else if (array instanceof short[]) {
+            for (short value : (short[]) array) generator.writeNumber(value);
+        }
+        generator.writeEndArray();
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+/**
+ * Bounded, lossy table of canonical strings. A string equal to one in the table is replaced by the table's instance,
+ * otherwise it takes the slot, so the table never grows and a colliding string just evicts the previous one.
+ * Lookups from characters (of the parser or a larger string) don't allocate if the string is found.
+ * The slots are read and written without locking, strings are immutable so a racing lookup at worst misses.
+ */
+public class StringCanonicalizer {
+    private static final StringCanonicalizer SHARED = new StringCanonicalizer(Config.getCanonicalStrings());
+
+    private final String[] table;
+    private final int mask;
+
+    /**
+     * @param size number of slots, rounded up to a power of two, 0 disables the canonicalization
+     */
+    public StringCanonicalizer(int size) {
+        int slots = 1;
+        while (slots < size) slots <<= 1;
+        this.table = size > 0 ? new String[slots] : null;
+        this.mask = slots - 1;
+    }
+
+    public static StringCanonicalizer getShared() {
+        return SHARED;
+    }
+
+    public String canonicalize(String value) {
+        if (value == null || table == null) return value;
+        final int index = slot(value.hashCode());
+        final String canonical = table[index];
+        if (value.equals(canonical)) return canonical;
+        table[index] = value;
+        return value;
+    }
+
+    /**
+     * @return the canonical instance of the characters from start (inclusive) to end (exclusive)
+     */
+    public String canonicalize(String value, int start, int end) {
+        if (table == null) return value.substring(start, end);
+        if (start == 0 && end == value.length()) return canonicalize(value);
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        final int index = slot(hash);
+        final String canonical = table[index];
+        if (canonical != null && canonical.length() == end - start && canonical.regionMatches(0, value, start, end - start)) {
+            return canonical;
+        }
+        final String result = value.substring(start, end);
+        table[index] = result;
+        return result;
+    }
+
+    public String canonicalize(char[] chars, int offset, int length) {
+        if (table == null) return new String(chars, offset, length);
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        final int index = slot(hash);
+        final String canonical = table[index];
+        if (canonical != null && matches(canonical, chars, offset, length)) {
+            return canonical;
+        }
+        final String result = new String(chars, offset, length);
+        table[index] = result;
+        return result;
+    }
+
+    private static boolean matches(String canonical, char[] chars, int offset, int length) {
+        if (canonical.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (canonical.charAt(i) != chars[offset + i]) return false;
+        }
+        return true;
+    }
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
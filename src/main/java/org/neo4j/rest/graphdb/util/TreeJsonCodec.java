@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Decodes with Jackson's data binding into LinkedHashMaps and ArrayLists, like {@link JsonHelper}.
+ */
+public class TreeJsonCodec implements JsonCodec {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Override
+    public Object decode(String json) {
+        try {
+            return mapper.readValue(json, Object.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading as JSON '" + json + "'", e);
+        }
+    }
+
+    @Override
+    public Object decode(InputStream stream) {
+        try {
+            return mapper.readValue(stream, Object.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading JSON from stream", e);
+        }
+    }
+
+    @Override
+    public String encode(Object data) {
+        try {
+            return mapper.writeValueAsString(data);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void encode(Object data, OutputStream stream) throws IOException {
+        final JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(stream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            mapper.writeValue(generator, data);
+        } finally {
+            generator.close();
+        }
+    }
+}
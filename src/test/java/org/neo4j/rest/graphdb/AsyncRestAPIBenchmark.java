@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.util.Config;
+
+import static org.junit.Assert.*;
+
+public class AsyncRestAPIBenchmark extends RestTestBase {
+
+    private static final int REQUESTS = 2000;
+
+    private RestAPIFacade restAPI;
+
+    public AsyncRestAPIBenchmark(String url) {
+        super(url);
+    }
+
+    @Before
+    public void init() {
+        System.setProperty(Config.CONFIG_POOLED_CONNECTIONS, "true");
+        restAPI = new RestAPIFacade(url + "/db/data");
+    }
+
+    @After
+    public void close() {
+        restAPI.close();
+        System.clearProperty(Config.CONFIG_POOLED_CONNECTIONS);
+    }
+
+    @Test
+    public void benchmarkSyncAndAsyncRequests() throws Exception {
+        restAPI.getNodeByIdAsync(0).get(); // warmup
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            restAPI.getNodeById(0);
+        }
+        final double sequential = REQUESTS / seconds(start);
+
+        start = System.nanoTime();
+        final List<Future<RestNode>> futures = new ArrayList<Future<RestNode>>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            futures.add(restAPI.getNodeByIdAsync(0));
+        }
+        for (Future<RestNode> future : futures) {
+            assertEquals(0, future.get().getId());
+        }
+        final double async = REQUESTS / seconds(start);
+        System.out.printf("%s: %d getNodeById requests from one thread, sync %.0f req/s, async (%d executor threads) %.0f req/s%n", url, REQUESTS, sequential, Config.getAsyncThreads(), async);
+    }
+
+    private double seconds(long start) {
+        return (System.nanoTime() - start) / 1000000000.0;
+    }
+}
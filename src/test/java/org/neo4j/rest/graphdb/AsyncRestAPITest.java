@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.neo4j.index.impl.lucene.LuceneIndexImplementation;
+import org.neo4j.rest.graphdb.batch.BatchCallback;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.index.RestIndex;
+import org.neo4j.rest.graphdb.util.Config;
+import org.neo4j.rest.graphdb.util.QueryResult;
+
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class AsyncRestAPITest extends RestTestBase {
+
+    private static final int REQUESTS = 100;
+
+    private RestAPIFacade restAPI;
+
+    public AsyncRestAPITest(String url) {
+        super(url);
+    }
+
+    @Before
+    public void init() {
+        System.setProperty(Config.CONFIG_POOLED_CONNECTIONS, "true");
+        restAPI = new RestAPIFacade(url + "/db/data");
+    }
+
+    @After
+    public void close() {
+        restAPI.close();
+        System.clearProperty(Config.CONFIG_POOLED_CONNECTIONS);
+    }
+
+    @Test
+    public void testCreateAndGetNodeAsync() throws Exception {
+        final Future<RestNode> created = restAPI.createNodeAsync(map("name", "async"));
+        final long id = created.get().getId();
+        final RestNode node = restAPI.getNodeByIdAsync(id).get();
+        assertEquals("async", node.getProperty("name"));
+    }
+
+    @Test
+    public void testQueryAsync() throws Exception {
+        final Node node = restAPI.createNode(map("name", "async"));
+        final Future<QueryResult<Map<String, Object>>> result = restAPI.queryAsync("start n=node({id}) return n.name as name", map("id", node.getId()), null);
+        assertEquals("async", IteratorUtil.single(result.get()).get("name"));
+    }
+
+    @Test
+    public void testAddToIndexAsync() throws Exception {
+        final RestIndex<Node> index = restAPI.createIndex(Node.class, "async-index", LuceneIndexImplementation.EXACT_CONFIG);
+        final Node node = restAPI.createNode(map("name", "async"));
+        restAPI.addToIndexAsync(node, index, "name", "async").get();
+        assertEquals(node, index.get("name", "async").getSingle());
+    }
+
+    @Test
+    public void testAsyncRestRequest() throws Exception {
+        final AsyncRestRequest request = restAPI.getDirect().getAsyncRestRequest();
+        final RequestResult result = request.get("node/0").get();
+        assertEquals(200, result.getStatus());
+    }
+
+    @Test
+    public void testAsyncCallsInBatchAreRecorded() throws Exception {
+        final Future<RestNode> created = restAPI.executeBatch(new BatchCallback<Future<RestNode>>() {
+            @Override
+            public Future<RestNode> recordBatch(RestAPI batchRestApi) {
+                return batchRestApi.createNodeAsync(map("name", "batched"));
+            }
+        });
+        assertTrue(created.isDone());
+        assertEquals("batched", created.get().getProperty("name"));
+    }
+
+    @Test
+    public void testConcurrentRequests() throws Exception {
+        final List<Future<RestNode>> futures = new ArrayList<Future<RestNode>>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            futures.add(restAPI.getNodeByIdAsync(0));
+        }
+        for (Future<RestNode> future : futures) {
+            assertEquals(0, future.get().getId());
+        }
+    }
+}
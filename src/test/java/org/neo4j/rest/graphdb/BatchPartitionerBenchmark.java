@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.rest.graphdb.batch.BatchCallback;
+
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class BatchPartitionerBenchmark extends RestTestBase {
+
+    private static final int PAIRS = 2000;
+
+    public BatchPartitionerBenchmark(String url) {
+        super(url);
+    }
+
+    private long importPairs(final RestAPI restAPI, final int pairs) {
+        final long start = System.nanoTime();
+        restAPI.executeBatch(new BatchCallback<Object>() {
+            @Override
+            public Object recordBatch(RestAPI batchRestApi) {
+                for (int i = 0; i < pairs; i++) {
+                    final Node from = batchRestApi.createNode(map("name", "from" + i));
+                    final Node to = batchRestApi.createNode(map("name", "to" + i));
+                    batchRestApi.createRelationship(from, to, Type.TEST, map("index", i));
+                }
+                return null;
+            }
+        });
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void benchmarkPartitionedBatch() {
+        final RestAPI restAPI = ((RestGraphDatabase) getRestGraphDb()).getRestAPI();
+        final int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+        importPairs(restAPI, PAIRS / 10); // warmup
+        final int existing = countExistingNodes();
+        final long sequential = importPairs(restAPI, PAIRS);
+        System.setProperty("org.neo4j.rest.batch_parallelism", "" + parallelism);
+        final long parallel;
+        try {
+            parallel = importPairs(restAPI, PAIRS);
+        } finally {
+            System.clearProperty("org.neo4j.rest.batch_parallelism");
+        }
+        assertEquals(existing + 4 * PAIRS, countExistingNodes());
+        System.out.printf("%s: batch of %d nodes and %d relationships, one request %d ms, %d concurrent requests %d ms, speedup %.1f%n",
+                url, 2 * PAIRS, PAIRS, sequential / 1000000, parallelism, parallel / 1000000, (double) sequential / parallel);
+    }
+}
@@ -38,6 +38,7 @@ import org.neo4j.graphdb.index.IndexManager;
 import org.neo4j.helpers.collection.IteratorUtil;
 import org.neo4j.index.impl.lucene.LuceneIndexImplementation;
 import org.neo4j.rest.graphdb.batch.BatchCallback;
+import org.neo4j.rest.graphdb.batch.BatchRestAPI;
 import org.neo4j.rest.graphdb.entity.RestNode;
 import org.neo4j.rest.graphdb.entity.RestRelationship;
 import org.neo4j.rest.graphdb.index.RestIndex;
@@ -45,6 +46,7 @@ import org.neo4j.rest.graphdb.query.RestCypherQueryEngine;
 import org.neo4j.rest.graphdb.util.QueryResult;
 import org.neo4j.rest.graphdb.util.TestHelper;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -161,19 +163,64 @@ public class BatchRestAPITest extends RestTestBase {
         });
 
     }
+
+    @Test
     public void testExecuteCypherInBatch() throws Exception {
-        TestBatchResult result = restAPI.executeBatch(new BatchCallback<TestBatchResult>() {
+        final List<QueryResult<Map<String, Object>>> results = restAPI.executeBatch(new BatchCallback<List<QueryResult<Map<String, Object>>>>() {
             @Override
-            public TestBatchResult recordBatch(RestAPI batchRestApi) {
+            public List<QueryResult<Map<String, Object>>> recordBatch(RestAPI batchRestApi) {
                 RestCypherQueryEngine engine = new RestCypherQueryEngine(batchRestApi);
-                TestBatchResult result = new TestBatchResult();
-                result.n1=engine.query("create (n {name:{name}}) return n", map("name", "Foo")).to(Node.class).singleOrNull();
-                result.n2=engine.query("start n=node(*) where has(n.name) and n.name={name} return n", map("name", "Foo")).to(Node.class).singleOrNull();
-                return result;
+                final List<QueryResult<Map<String, Object>>> results = new ArrayList<QueryResult<Map<String, Object>>>();
+                results.add(engine.query("create (n {name:{name}}) return n", map("name", "Foo")));
+                results.add(engine.query("start n=node(*) where has(n.name) and n.name={name} return n", map("name", "Foo")));
+                try {
+                    results.get(0).iterator();
+                    fail("results are only available after the batch was executed");
+                } catch (IllegalStateException expected) {
+                }
+                return results;
+            }
+        });
+        final Node n1 = results.get(0).to(Node.class).singleOrNull();
+        final Node n2 = results.get(1).to(Node.class).singleOrNull();
+        assertEquals("Foo",n1.getProperty("name"));
+        assertEquals(n1.getId(),n2.getId());
+    }
+
+    @Test
+    public void testPipelineQueriesInBatch() throws Exception {
+        final int existing = countExistingNodes();
+        final List<QueryResult<Map<String, Object>>> results = restAPI.executeBatch(new BatchCallback<List<QueryResult<Map<String, Object>>>>() {
+            @Override
+            public List<QueryResult<Map<String, Object>>> recordBatch(RestAPI batchRestApi) {
+                final List<QueryResult<Map<String, Object>>> results = new ArrayList<QueryResult<Map<String, Object>>>();
+                for (int i = 0; i < 30; i++) {
+                    results.add(batchRestApi.query("create (n {index:{index}}) return n.index as index", map("index", i), null));
+                }
+                return results;
             }
         });
-        assertEquals("Foo",result.n1.getProperty("name"));
-        assertEquals(result.n1.getId(),result.n2.getId());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(i, ((Number) IteratorUtil.single(results.get(i)).get("index")).intValue());
+        }
+        assertEquals(existing + 30, countExistingNodes());
+    }
+
+    @Test
+    public void testColumnarQueryIsNotRecordedInBatch() throws Exception {
+        final int existing = countExistingNodes();
+        restAPI.executeBatch(new BatchCallback<Void>() {
+            @Override
+            public Void recordBatch(RestAPI batchRestApi) {
+                try {
+                    batchRestApi.queryColumnar("create (n {name:'columnar'}) return n", null);
+                    fail("columnar results are not available in a batch");
+                } catch (UnsupportedOperationException expected) {
+                }
+                return null;
+            }
+        });
+        assertEquals(existing, countExistingNodes());
     }
 
     @Test
@@ -241,6 +288,89 @@ public class BatchRestAPITest extends RestTestBase {
        
     }
     
+    @Test
+    public void testPartitionedBatch(){
+        final int pairs = 100;
+        final int existing = countExistingNodes();
+        final List<Relationship> created = new ArrayList<Relationship>();
+        System.setProperty("org.neo4j.rest.batch_parallelism", "4");
+        try {
+            restAPI.executeBatch(new BatchCallback<Void>() {
+                @Override
+                public Void recordBatch(RestAPI batchRestApi) {
+                    for (int i = 0; i < pairs; i++) {
+                        final Node from = batchRestApi.createNode(map("name", "from" + i));
+                        final Node to = batchRestApi.createNode(map("name", "to" + i));
+                        created.add(batchRestApi.createRelationship(from, to, Type.TEST, map("index", i)));
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            System.clearProperty("org.neo4j.rest.batch_parallelism");
+        }
+        assertEquals(existing + 2 * pairs, countExistingNodes());
+        for (int i = 0; i < pairs; i++) {
+            final RestRelationship relationship = (RestRelationship) created.get(i);
+            assertFalse(relationship.getUri(), relationship.getUri().contains("{"));
+            final Relationship real = getGraphDatabase().getRelationshipById(relationship.getId());
+            assertEquals(i, real.getProperty("index"));
+            assertEquals("from" + i, real.getStartNode().getProperty("name"));
+            assertEquals("to" + i, real.getEndNode().getProperty("name"));
+        }
+    }
+
+    @Test
+    public void testFailedPartitionLeavesCommittedEntitiesUsable(){
+        final Node missing = new RestNode(url + "/db/data/node/" + Integer.MAX_VALUE, restAPI);
+        final Node[] created = new Node[1];
+        System.setProperty("org.neo4j.rest.batch_parallelism", "2");
+        try {
+            restAPI.executeBatch(new BatchCallback<Void>() {
+                @Override
+                public Void recordBatch(RestAPI batchRestApi) {
+                    created[0] = batchRestApi.createNode(map("name", "committed"));
+                    missing.setProperty("name", "failed");
+                    return null;
+                }
+            });
+            fail("expected the partition writing the missing node to fail");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("partition"));
+        } finally {
+            System.clearProperty("org.neo4j.rest.batch_parallelism");
+        }
+        assertFalse(((RestNode) created[0]).getUri().contains("{"));
+        assertEquals("committed", loadRealNode(created[0]).getProperty("name"));
+    }
+
+    @Test
+    public void testCompactPropertyWrites(){
+        final Node existing = restAPI.createNode(map("name", "existing"));
+        final BatchRestAPI[] batchApi = new BatchRestAPI[1];
+        TestBatchResult response =this.restAPI.executeBatch(new BatchCallback<TestBatchResult>() {
+            @Override
+            public TestBatchResult recordBatch(RestAPI batchRestApi) {
+                batchApi[0] = BatchTransaction.getRestApi();
+                TestBatchResult result=new TestBatchResult();
+                result.n1 = batchRestApi.createNode(map("name", "node1"));
+                for (int i = 0; i < 5; i++) {
+                    result.n1.setProperty("count", i);
+                    existing.setProperty("count", i);
+                }
+                result.n2 = batchRestApi.createNode(map("name", "node2"));
+                result.n2.setProperty("name", "deleted");
+                result.n2.delete();
+                return result;
+            }
+        });
+        assertEquals(4, loadRealNode(response.n1).getProperty("count"));
+        assertEquals("node1", loadRealNode(response.n1).getProperty("name"));
+        assertEquals(4, loadRealNode(existing).getProperty("count"));
+        assertEquals(4, response.n1.getProperty("count"));
+        assertEquals(5 + 4 + 1, batchApi[0].getRecordedOperations().getCompacted());
+    }
+
     @Test  (expected = org.neo4j.graphdb.NotFoundException.class)
     public void testDeleteNode(){
         TestBatchResult response =this.restAPI.executeBatch(new BatchCallback<TestBatchResult>() {
@@ -304,6 +434,37 @@ public class BatchRestAPITest extends RestTestBase {
         assertThat(r.allRelationships, new IsRelationshipToNodeMatcher(r.n1, r.n2));
     }
 
+    @Test
+    public void testFlushBatchInChunks(){
+        final int count = 25;
+        final RestIndex<Node> index = restAPI.createIndex(Node.class, "chunked", LuceneIndexImplementation.EXACT_CONFIG);
+        System.setProperty("org.neo4j.rest.batch_max_operations", "7");
+        final int existing = countExistingNodes();
+        final Node[] nodes = new Node[count];
+        try {
+            this.restAPI.executeBatch(new BatchCallback<Object>() {
+                @Override
+                public Object recordBatch(RestAPI batchRestApi) {
+                    for (int i = 0; i < count; i++) {
+                        nodes[i] = batchRestApi.createNode(map("name", "node" + i));
+                        batchRestApi.addToIndex(nodes[i], index, "name", "node" + i);
+                        if (i > 0) batchRestApi.createRelationship(nodes[i - 1], nodes[i], Type.TEST, map("index", i));
+                    }
+                    return null;
+                }
+            });
+        } finally {
+            System.clearProperty("org.neo4j.rest.batch_max_operations");
+        }
+        assertEquals(existing + count, countExistingNodes());
+        for (int i = 1; i < count; i++) {
+            final Relationship relationship = nodes[i - 1].getSingleRelationship(Type.TEST, Direction.OUTGOING);
+            assertEquals(nodes[i], relationship.getEndNode());
+            assertEquals(i, relationship.getProperty("index"));
+        }
+        assertEquals(nodes[count - 1], index.get("name", "node" + (count - 1)).getSingle());
+    }
+
     @Test
     public void testAddToIndex() {
         final MatrixDataGraph matrixDataGraph = new MatrixDataGraph(getGraphDatabase());
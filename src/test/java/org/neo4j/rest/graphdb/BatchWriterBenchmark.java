@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.rest.graphdb.batch.BatchWriter;
+import org.neo4j.rest.graphdb.entity.RestNode;
+
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class BatchWriterBenchmark extends RestTestBase {
+
+    private static final int THREADS = 8;
+    private static final int WRITES = 1000;
+
+    private RestAPIFacade restAPI;
+    private BatchWriter writer;
+    private ExecutorService executor;
+
+    public BatchWriterBenchmark(String url) {
+        super(url);
+    }
+
+    @Before
+    public void init() {
+        restAPI = new RestAPIFacade(url + "/db/data");
+        writer = new BatchWriter(restAPI);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void close() {
+        executor.shutdownNow();
+        writer.close();
+        restAPI.close();
+    }
+
+    @Test
+    public void benchmarkConcurrentWrites() throws Exception {
+        final List<Future<List<Future<RestNode>>>> submitters = new ArrayList<Future<List<Future<RestNode>>>>();
+        final long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            submitters.add(executor.submit(new Callable<List<Future<RestNode>>>() {
+                public List<Future<RestNode>> call() throws Exception {
+                    final List<Future<RestNode>> nodes = new ArrayList<Future<RestNode>>(WRITES);
+                    for (int i = 0; i < WRITES; i++) {
+                        nodes.add(writer.createNode(map("name", thread + "-" + i)));
+                    }
+                    return nodes;
+                }
+            }));
+        }
+        for (Future<List<Future<RestNode>>> submitter : submitters) {
+            for (Future<RestNode> node : submitter.get()) {
+                node.get();
+            }
+        }
+        final double seconds = (System.nanoTime() - start) / 1000000000.0;
+        assertEquals(THREADS * WRITES, writer.getWrites());
+        System.out.printf("%s: %d nodes from %d threads in %.0f writes/s, %s%n", url, THREADS * WRITES, THREADS, THREADS * WRITES / seconds, writer);
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.index.impl.lucene.LuceneIndexImplementation;
+import org.neo4j.rest.graphdb.batch.BatchWriter;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.entity.RestRelationship;
+import org.neo4j.rest.graphdb.index.RestIndex;
+
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class BatchWriterTest extends RestTestBase {
+
+    private static final int THREADS = 8;
+    private static final int WRITES = 250;
+
+    private RestAPIFacade restAPI;
+    private BatchWriter writer;
+    private ExecutorService executor;
+
+    public BatchWriterTest(String url) {
+        super(url);
+    }
+
+    @Before
+    public void init() {
+        restAPI = new RestAPIFacade(url + "/db/data");
+        writer = new BatchWriter(restAPI, 4, 100, 5, 1000);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void close() {
+        executor.shutdownNow();
+        writer.close();
+        restAPI.close();
+    }
+
+    @Test
+    public void testConcurrentWritesAreGrouped() throws Exception {
+        final int existing = countExistingNodes();
+        final List<Future<List<Future<RestNode>>>> submitters = new ArrayList<Future<List<Future<RestNode>>>>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            submitters.add(executor.submit(new Callable<List<Future<RestNode>>>() {
+                public List<Future<RestNode>> call() throws Exception {
+                    final List<Future<RestNode>> nodes = new ArrayList<Future<RestNode>>(WRITES);
+                    for (int i = 0; i < WRITES; i++) {
+                        nodes.add(writer.createNode(map("name", thread + "-" + i)));
+                    }
+                    return nodes;
+                }
+            }));
+        }
+        for (int t = 0; t < THREADS; t++) {
+            final List<Future<RestNode>> nodes = submitters.get(t).get();
+            for (int i = 0; i < WRITES; i++) {
+                assertEquals(t + "-" + i, nodes.get(i).get().getProperty("name"));
+            }
+        }
+        assertEquals(existing + THREADS * WRITES, countExistingNodes());
+        assertEquals(THREADS * WRITES, writer.getWrites());
+        assertEquals(0, writer.getFailedBatches());
+        assertTrue(writer.toString(), writer.getBatches() < writer.getWrites());
+        assertTrue(writer.toString(), writer.getBatches() >= THREADS * WRITES / 100);
+        assertTrue(writer.toString(), writer.getMaxBatchSize() > 1);
+        assertTrue(writer.toString(), writer.getMaxBatchSize() <= 100);
+    }
+
+    @Test
+    public void testWritesDependingOnCreatedEntities() throws Exception {
+        final RestIndex<Node> index = restAPI.createIndex(Node.class, "writer-index", LuceneIndexImplementation.EXACT_CONFIG);
+        final RestNode start = writer.createNode(map("name", "start")).get();
+        final RestNode end = writer.createNode(map("name", "end")).get();
+        final Future<RestRelationship> relationship = writer.createRelationship(start, end, Type.TEST, map("name", "rel"));
+        final Future<Void> indexed = writer.addToIndex(start, index, "name", "start");
+        final Future<Void> property = writer.setProperty(end, "since", 2012);
+        indexed.get();
+        property.get();
+        final Relationship rel = start.getSingleRelationship(Type.TEST, Direction.OUTGOING);
+        assertEquals(relationship.get(), rel);
+        assertEquals(end, rel.getEndNode());
+        assertEquals(start, index.get("name", "start").getSingle());
+        assertEquals(2012, restAPI.getNodeById(end.getId()).getProperty("since"));
+    }
+
+    @Test
+    public void testFailedBatchFailsItsWrites() throws Exception {
+        final RestNode node = restAPI.createNode(map("name", "deleted"));
+        restAPI.deleteEntity(node);
+        try {
+            writer.setProperty(node, "name", "updated").get();
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RuntimeException);
+        }
+        assertEquals(1, writer.getFailedBatches());
+        assertEquals("alive", writer.createNode(map("name", "alive")).get().getProperty("name"));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testClosedWriterRejectsWrites() throws Exception {
+        final Future<RestNode> node = writer.createNode(map("name", "last"));
+        writer.close();
+        assertTrue(node.isDone());
+        assertEquals("last", node.get().getProperty("name"));
+        writer.createNode(map("name", "rejected"));
+    }
+}
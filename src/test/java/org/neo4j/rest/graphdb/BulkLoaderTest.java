@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.rest.graphdb.batch.BulkLoader;
+import org.neo4j.rest.graphdb.batch.CsvReader;
+import org.neo4j.rest.graphdb.util.LongLongHashMap;
+
+import static org.junit.Assert.*;
+
+public class BulkLoaderTest extends RestTestBase {
+
+    private static final int NODES = 250;
+    private static final int CHUNK_SIZE = 40;
+
+    private RestAPIFacade restAPI;
+
+    public BulkLoaderTest(String url) {
+        super(url);
+    }
+
+    @Before
+    public void init() {
+        restAPI = new RestAPIFacade(url + "/db/data");
+    }
+
+    @After
+    public void close() {
+        restAPI.close();
+    }
+
+    private static String nodesCsv() {
+        final StringBuilder csv = new StringBuilder("key:long,name,rank:int\n");
+        for (int i = 0; i < NODES; i++) {
+            csv.append(1000 + i).append(",node ").append(i).append(',').append(i).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static String relationshipsCsv() {
+        final StringBuilder csv = new StringBuilder("from:long,to:long,type,weight:double\n");
+        for (int i = 0; i < NODES; i++) {
+            csv.append(1000 + i).append(',').append(1000 + (i + 1) % NODES).append(",NEXT,").append(i / 2d).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static Iterator<BulkLoader.NodeRecord> nodes() {
+        return BulkLoader.nodes(new CsvReader(new StringReader(nodesCsv())), "key");
+    }
+
+    @Test
+    public void testLoadNodesAndRelationships() throws Exception {
+        final int existing = countExistingNodes();
+        final List<Long> acknowledged = new ArrayList<Long>();
+        final BulkLoader loader = new BulkLoader(restAPI, CHUNK_SIZE, 3, new LongLongHashMap()).withListener(new BulkLoader.ProgressListener() {
+            public void acknowledged(BulkLoader.Phase phase, BulkLoader.Checkpoint checkpoint, double rowsPerSecond) {
+                if (phase == BulkLoader.Phase.NODES) acknowledged.add(checkpoint.getAcknowledgedRows());
+            }
+        });
+        final BulkLoader.Stats nodes = loader.loadNodes(nodes());
+        final BulkLoader.Stats relationships = loader.loadRelationships(BulkLoader.relationships(new CsvReader(new StringReader(relationshipsCsv())), "from", "to", "type"));
+        assertEquals(nodes.toString(), NODES, nodes.getCreated());
+        assertEquals(7, nodes.getChunks());
+        assertEquals(NODES, nodes.getAcknowledgedRows());
+        assertEquals(Long.valueOf(NODES), acknowledged.get(acknowledged.size() - 1));
+        for (int i = 1; i < acknowledged.size(); i++) {
+            assertTrue(acknowledged.get(i) >= acknowledged.get(i - 1));
+        }
+        assertTrue(nodes.getRowsPerSecond() > 0);
+        assertEquals(relationships.toString(), NODES, relationships.getCreated());
+        assertEquals(existing + NODES, countExistingNodes());
+
+        final Node node = getGraphDatabase().getNodeById(loader.getNodeId(1007));
+        assertEquals("node 7", node.getProperty("name"));
+        assertEquals(7, node.getProperty("rank"));
+        assertFalse(node.hasProperty("key"));
+        final Relationship next = node.getSingleRelationship(DynamicRelationshipType.withName("NEXT"), Direction.OUTGOING);
+        assertEquals(loader.getNodeId(1008), next.getEndNode().getId());
+        assertEquals(3.5d, next.getProperty("weight"));
+    }
+
+    @Test
+    public void testResumeFromLastAcknowledgedChunk() throws Exception {
+        final int existing = countExistingNodes();
+        final AtomicReference<BulkLoader.Checkpoint> acknowledged = new AtomicReference<BulkLoader.Checkpoint>();
+        final BulkLoader loader = new BulkLoader(restAPI, CHUNK_SIZE, 1, new LongLongHashMap()).withListener(new BulkLoader.ProgressListener() {
+            public void acknowledged(BulkLoader.Phase phase, BulkLoader.Checkpoint checkpoint, double rowsPerSecond) {
+                acknowledged.set(checkpoint);
+            }
+        });
+        final Iterator<BulkLoader.NodeRecord> records = nodes();
+        try {
+            loader.loadNodes(new Iterator<BulkLoader.NodeRecord>() {
+                int row;
+
+                public boolean hasNext() {
+                    return records.hasNext();
+                }
+
+                public BulkLoader.NodeRecord next() {
+                    if (row++ == 130) throw new IllegalStateException("source failed");
+                    return records.next();
+                }
+
+                public void remove() {
+                }
+            });
+            fail("expected failure");
+        } catch (RuntimeException e) {
+            assertEquals("source failed", e.getCause().getMessage());
+        }
+        assertEquals(120, acknowledged.get().getAcknowledgedRows());
+        assertEquals(120, acknowledged.get().getCommittedRows());
+        assertEquals(existing + 120, countExistingNodes());
+
+        final BulkLoader.Stats resumed = loader.loadNodes(nodes(), acknowledged.get());
+        assertEquals(NODES - 120, resumed.getCreated());
+        assertEquals(NODES, resumed.getAcknowledgedRows());
+        assertEquals(existing + NODES, countExistingNodes());
+
+        // keys that are already mapped are not created again
+        assertEquals(0, loader.loadNodes(nodes()).getCreated());
+        assertEquals(existing + NODES, countExistingNodes());
+    }
+
+    @Test
+    public void testResumeSkipsChunksCommittedAfterFailedChunk() throws Exception {
+        final AtomicReference<BulkLoader.Checkpoint> acknowledged = new AtomicReference<BulkLoader.Checkpoint>(new BulkLoader.Checkpoint(0));
+        final BulkLoader loader = new BulkLoader(restAPI, CHUNK_SIZE, 3, new LongLongHashMap()).withListener(new BulkLoader.ProgressListener() {
+            public void acknowledged(BulkLoader.Phase phase, BulkLoader.Checkpoint checkpoint, double rowsPerSecond) {
+                if (phase == BulkLoader.Phase.RELATIONSHIPS) acknowledged.set(checkpoint);
+            }
+        });
+        loader.loadNodes(nodes());
+        // the first chunk fails on a missing start node, the chunks sent concurrently may commit after it
+        final long firstNode = loader.getNodeIds().put(1000, Integer.MAX_VALUE);
+        try {
+            loader.loadRelationships(relationships());
+            fail("expected failure");
+        } catch (RuntimeException e) {
+            assertEquals(0, acknowledged.get().getAcknowledgedRows());
+        }
+        assertEquals(acknowledged.get().getCommittedRows(), countNextRelationships(loader));
+
+        // the checkpoint is kept like the key map
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        acknowledged.get().writeTo(new DataOutputStream(bytes));
+        final BulkLoader.Checkpoint checkpoint = BulkLoader.Checkpoint.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(acknowledged.get().toString(), checkpoint.toString());
+
+        loader.getNodeIds().put(1000, firstNode);
+        final BulkLoader.Stats resumed = loader.loadRelationships(relationships(), checkpoint);
+        assertEquals(NODES - checkpoint.getCommittedRows(), resumed.getCreated());
+        assertEquals(NODES, resumed.getAcknowledgedRows());
+        assertEquals(NODES, countNextRelationships(loader));
+    }
+
+    private static Iterator<BulkLoader.RelationshipRecord> relationships() {
+        return BulkLoader.relationships(new CsvReader(new StringReader(relationshipsCsv())), "from", "to", "type");
+    }
+
+    private int countNextRelationships(BulkLoader loader) {
+        int count = 0;
+        for (int i = 0; i < NODES; i++) {
+            final Node node = getGraphDatabase().getNodeById(loader.getNodeId(1000 + i));
+            for (Relationship relationship : node.getRelationships(DynamicRelationshipType.withName("NEXT"), Direction.OUTGOING)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.neo4j.helpers.collection.MapUtil;
+
+import static org.junit.Assert.*;
+
+public class ClusterRestRequestTest extends RestTestBase {
+
+    private static final String REPLICA_1 = "http://localhost:7476/db/data";
+    private static final String REPLICA_2 = "http://localhost:7477/db/data";
+
+    private static LocalTestServer replica1;
+    private static LocalTestServer replica2;
+
+    private ClusterRestRequest cluster;
+
+    public ClusterRestRequestTest(String url) {
+        super(url);
+    }
+
+    @BeforeClass
+    public static void startReplicas() {
+        replica1 = startReplica(1);
+        replica2 = startReplica(2);
+    }
+
+    private static LocalTestServer startReplica(int number) {
+        final LocalTestServer replica = new LocalTestServer().withPropertiesFile("neo4j-replica-" + number + ".properties");
+        replica.start();
+        markReferenceNode(replica.getGraphDatabase(), "replica-" + number);
+        return replica;
+    }
+
+    @AfterClass
+    public static void stopReplicas() {
+        replica1.stop();
+        replica2.stop();
+    }
+
+    @Before
+    public void createCluster() {
+        markReferenceNode(getGraphDatabase(), "master");
+        cluster = new ClusterRestRequest(url + "/db/data", Arrays.asList(REPLICA_1, REPLICA_2));
+    }
+
+    @After
+    public void closeCluster() {
+        cluster.close();
+    }
+
+    private static void markReferenceNode(GraphDatabaseService db, String server) {
+        final Transaction tx = db.beginTx();
+        try {
+            db.getReferenceNode().setProperty("server", server);
+            tx.success();
+        } finally {
+            tx.finish();
+        }
+    }
+
+    private String serverOf(RequestResult result) {
+        return (String) ((Map<?, ?>) result.toMap().get("data")).get("server");
+    }
+
+    @Test
+    public void testReadsAreSpreadOverReplicas() throws Exception {
+        final Set<String> servers = new HashSet<String>();
+        for (int i = 0; i < 50; i++) {
+            servers.add(serverOf(cluster.get("node/0")));
+        }
+        assertEquals(new HashSet<String>(Arrays.asList("replica-1", "replica-2")), servers);
+        for (ClusterRestRequest.Member replica : cluster.getReplicas()) {
+            assertTrue(replica.toString(), replica.getLatencyMicros() > 0);
+        }
+        assertEquals(0, cluster.getMaster().getRequests());
+    }
+
+    @Test
+    public void testWritesGoToMaster() throws Exception {
+        final RequestResult result = cluster.post("node", MapUtil.map("name", "written"));
+        assertEquals(201, result.getStatus());
+        assertEquals(1, cluster.getMaster().getRequests());
+        assertEquals(2, countExistingNodes());
+    }
+
+    @Test
+    public void testQueriesAreRoutedByUpdatingClauses() throws Exception {
+        final RequestResult read = cluster.post("cypher", MapUtil.map("query", "start n=node(0) return n.server", "params", MapUtil.map()));
+        assertTrue(read.getText().contains("replica-"));
+        final RequestResult write = cluster.post("cypher", MapUtil.map("query", "start n=node(0) set n.server='master-updated' return n.server", "params", MapUtil.map()));
+        assertTrue(write.getText().contains("master-updated"));
+        assertEquals("master-updated", getGraphDatabase().getReferenceNode().getProperty("server"));
+    }
+
+    @Test
+    public void testAbsoluteUrisAreResolvedAgainstTheChosenMember() throws Exception {
+        final RestRequest nodeRequest = cluster.with(REPLICA_1 + "/node/0");
+        assertEquals(url + "/db/data/node/0", nodeRequest.getUri());
+        assertTrue(serverOf(nodeRequest.get("")).startsWith("replica-"));
+        assertEquals(Status.NO_CONTENT.getStatusCode(), nodeRequest.put("properties/server", "master-put").getStatus());
+        assertEquals("master-put", getGraphDatabase().getReferenceNode().getProperty("server"));
+    }
+
+    @Test
+    public void testRestApiOverCluster() throws Exception {
+        final RestAPIFacade restAPI = new RestAPIFacade(cluster);
+        final Node node = restAPI.createNode(MapUtil.map("name", "cluster"));
+        assertEquals("cluster", node.getProperty("name"));
+        final Iterable<Map<String, Object>> result = restAPI.query("start n=node(0) return n.server as server", MapUtil.map(), null);
+        assertTrue(((String) IteratorUtil.single(result).get("server")).startsWith("replica-"));
+    }
+
+    @Test
+    public void testFailedReplicaIsEjectedAndRestored() throws Exception {
+        replica2.stop();
+        try {
+            for (int i = 0; i < 20; i++) {
+                assertEquals("replica-1", serverOf(cluster.get("node/0")));
+            }
+            final ClusterRestRequest.Member failed = cluster.getReplicas().get(1);
+            assertFalse(failed.isHealthy());
+            assertEquals(1, failed.getEjections());
+        } finally {
+            replica2 = startReplica(2);
+        }
+        cluster.checkHealth();
+        assertTrue(cluster.getReplicas().get(1).isHealthy());
+    }
+
+    @Test
+    public void testReadsFallBackToMasterWithoutHealthyReplicas() throws Exception {
+        replica1.stop();
+        replica2.stop();
+        try {
+            cluster.checkHealth();
+            assertEquals("master", serverOf(cluster.get("node/0")));
+        } finally {
+            replica1 = startReplica(1);
+            replica2 = startReplica(2);
+        }
+    }
+}
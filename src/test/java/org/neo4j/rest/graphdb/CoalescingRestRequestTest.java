@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CoalescingRestRequestTest {
+
+    private static final int THREADS = 10;
+
+    private StubRestRequest stub;
+    private CoalescingRestRequest request;
+    private ExecutorService executor;
+
+    @Before
+    public void init() {
+        stub = new StubRestRequest("http://localhost:7473/db/data").respond(200, "{\"name\":\"hot\"}");
+        request = new CoalescingRestRequest(stub);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Future<RequestResult>> concurrentGets(final RestRequest request, final String path) throws InterruptedException {
+        final List<Future<RequestResult>> results = new ArrayList<Future<RequestResult>>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(new Callable<RequestResult>() {
+                public RequestResult call() throws Exception {
+                    return request.get(path);
+                }
+            }));
+        }
+        return results;
+    }
+
+    private void awaitStarted(int requests) throws InterruptedException {
+        final long timeout = System.currentTimeMillis() + 5000;
+        while (request.getCollapsed() + request.getExecuted() < requests && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testConcurrentGetsShareOneRequest() throws Exception {
+        stub.block();
+        final List<Future<RequestResult>> results = concurrentGets(request, "node/1");
+        awaitStarted(THREADS);
+        stub.release();
+        final RequestResult first = results.get(0).get();
+        for (Future<RequestResult> result : results) {
+            assertSame(first, result.get());
+            assertSame(first.toMap(), result.get().toMap());
+        }
+        assertEquals(1, stub.getRequests().size());
+        assertEquals(1, request.getExecuted());
+        assertEquals(THREADS - 1, request.getCollapsed());
+    }
+
+    @Test
+    public void testStreamedResultIsReadableByAllCallers() throws Exception {
+        stub.streaming().block();
+        final List<Future<RequestResult>> results = concurrentGets(request, "node/1");
+        awaitStarted(THREADS);
+        stub.release();
+        for (Future<RequestResult> result : results) {
+            assertEquals("{\"name\":\"hot\"}", result.get().getText());
+            assertEquals("hot", result.get().toMap().get("name"));
+        }
+        assertEquals(1, stub.getRequests().size());
+    }
+
+    @Test
+    public void testRelativeAndAbsolutePathsAreTheSameRequest() throws Exception {
+        stub.block();
+        final List<Future<RequestResult>> relative = concurrentGets(request.with("http://localhost:7473/db/data/node/1"), "properties");
+        final Future<RequestResult> absolute = executor.submit(new Callable<RequestResult>() {
+            public RequestResult call() throws Exception {
+                return request.get("http://localhost:7473/db/data/node/1/properties");
+            }
+        });
+        awaitStarted(THREADS + 1);
+        stub.release();
+        assertSame(relative.get(0).get(), absolute.get());
+        assertEquals(1, stub.getRequests().size());
+    }
+
+    @Test
+    public void testSequentialGetsAreNotCoalesced() throws Exception {
+        request.get("node/1");
+        request.get("node/1");
+        assertEquals(2, stub.getRequests().size());
+        assertEquals(0, request.getCollapsed());
+    }
+
+    @Test
+    public void testWritesAreNotCoalesced() throws Exception {
+        request.put("node/1/properties/name", "hot");
+        request.put("node/1/properties/name", "hot");
+        request.delete("node/1");
+        assertEquals(3, stub.getRequests().size());
+        assertEquals(0, request.getExecuted());
+    }
+
+    @Test
+    public void testFailureIsPropagatedToAllWaitingCallers() throws Exception {
+        stub.block().failWith(new IllegalStateException("connection reset"));
+        final List<Future<RequestResult>> results = concurrentGets(request, "node/1");
+        awaitStarted(THREADS);
+        stub.release();
+        for (Future<RequestResult> result : results) {
+            try {
+                result.get();
+                fail("expected failure");
+            } catch (ExecutionException e) {
+                assertEquals("connection reset", e.getCause().getMessage());
+            }
+        }
+        assertEquals(1, stub.getRequests().size());
+    }
+}
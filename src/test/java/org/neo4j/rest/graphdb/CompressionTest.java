@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.rest.graphdb.util.Config;
+
+import static org.junit.Assert.*;
+
+public class CompressionTest extends RestTestBase {
+
+    private ExecutingRestRequest request;
+
+    public CompressionTest(String url) {
+        super(url);
+    }
+
+    @After
+    public void resetConfig() {
+        if (request != null) request.close();
+        System.clearProperty(Config.CONFIG_COMPRESSION);
+        System.clearProperty(Config.CONFIG_COMPRESS_REQUESTS_ABOVE);
+        System.clearProperty(Config.CONFIG_POOLED_CONNECTIONS);
+    }
+
+    @Test
+    public void testCompressionIsOffByDefault() throws Exception {
+        request = new ExecutingRestRequest(url + "/db/data");
+        assertNull(request.getCompressionFilter());
+        final int gzippedResponses = getGzipFilter().getGzippedResponses();
+        assertEquals(200, request.get("node/0").getStatus());
+        assertEquals(gzippedResponses, getGzipFilter().getGzippedResponses());
+    }
+
+    @Test
+    public void testCompressedResponse() throws Exception {
+        System.setProperty(Config.CONFIG_COMPRESSION, "true");
+        request = new ExecutingRestRequest(url + "/db/data");
+        final Map<?, ?> data = request.get("node/0").toMap();
+        assertTrue(data.get("self").toString().endsWith("/node/0"));
+        final CompressionFilter filter = request.getCompressionFilter();
+        assertEquals(1, filter.getCompressedResponses());
+        assertTrue(filter.toString(), filter.getResponseBytesOnWire() < filter.getResponseBytes());
+    }
+
+    @Test
+    public void testCompressedRequest() throws Exception {
+        assertCompressedRequest();
+    }
+
+    @Test
+    public void testCompressedRequestWithPooledConnections() throws Exception {
+        System.setProperty(Config.CONFIG_POOLED_CONNECTIONS, "true");
+        assertCompressedRequest();
+    }
+
+    private void assertCompressedRequest() {
+        System.setProperty(Config.CONFIG_COMPRESSION, "true");
+        System.setProperty(Config.CONFIG_COMPRESS_REQUESTS_ABOVE, "1024");
+        request = new ExecutingRestRequest(url + "/db/data");
+        final int gzippedRequests = getGzipFilter().getGzippedRequests();
+
+        final RequestResult small = request.post("node", MapUtil.map("name", "small"));
+        assertEquals(201, small.getStatus());
+        assertEquals(0, request.getCompressionFilter().getCompressedRequests());
+
+        final List<String> names = new ArrayList<String>();
+        for (int i = 0; i < 200; i++) {
+            names.add("name-" + i);
+        }
+        final RequestResult large = request.post("node", MapUtil.map("names", names));
+        assertEquals(201, large.getStatus());
+        final CompressionFilter filter = request.getCompressionFilter();
+        assertEquals(1, filter.getCompressedRequests());
+        assertEquals(gzippedRequests + 1, getGzipFilter().getGzippedRequests());
+        assertTrue(filter.toString(), filter.getRequestBytesOnWire() < filter.getRequestBytes());
+    }
+
+    @Test
+    public void testCypherResultIsCompressed() throws Exception {
+        System.setProperty(Config.CONFIG_COMPRESSION, "true");
+        request = new ExecutingRestRequest(url + "/db/data");
+        for (int i = 0; i < 500; i++) {
+            getRestGraphDb().createNode().setProperty("name", "node-" + i);
+        }
+        final RequestResult result = request.post("cypher", MapUtil.map("query", "start n=node(*) where has(n.name) return n", "params", MapUtil.map()));
+        assertEquals(500, ((List<?>) result.toMap().get("data")).size());
+        final CompressionFilter filter = request.getCompressionFilter();
+        assertTrue(filter.toString(), filter.getResponseBytesOnWire() < filter.getResponseBytes());
+        assertTrue(filter.toString(), filter.getResponseBytesOnWire() * 2 < filter.getResponseBytes());
+    }
+}
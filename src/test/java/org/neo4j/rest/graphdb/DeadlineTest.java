@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.rest.graphdb.query.RestCypherQueryEngine;
+import org.neo4j.rest.graphdb.util.Config;
+
+import static org.junit.Assert.*;
+
+public class DeadlineTest extends RestTestBase {
+
+    private ExecutingRestRequest request;
+
+    public DeadlineTest(String url) {
+        super(url);
+    }
+
+    @After
+    public void resetConfig() {
+        if (request != null) request.close();
+        System.clearProperty(Config.CONFIG_POOLED_CONNECTIONS);
+        System.clearProperty(Config.CONFIG_STREAM_RESULTS);
+    }
+
+    private ExecutingRestRequest createRequest(boolean pooled) {
+        if (pooled) System.setProperty(Config.CONFIG_POOLED_CONNECTIONS, "true");
+        request = new ExecutingRestRequest(url + "/test");
+        return request;
+    }
+
+    private long failsWithin(Deadline deadline, final String path) {
+        final long start = System.currentTimeMillis();
+        try {
+            deadline.call(new Callable<RequestResult>() {
+                public RequestResult call() {
+                    return request.get(path);
+                }
+            }).toEntity();
+            fail("expected deadline to be exceeded");
+        } catch (DeadlineExceededException e) {
+            // expected
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    @Test
+    public void testExpiredDeadlineIsNotSent() throws Exception {
+        createRequest(false);
+        final long took = failsWithin(Deadline.after(0, TimeUnit.MILLISECONDS), "slow/0");
+        assertTrue("took " + took, took < 100);
+    }
+
+    @Test
+    public void testSlowResponseIsAbortedAtDeadline() throws Exception {
+        createRequest(false);
+        final long took = failsWithin(Deadline.after(300, TimeUnit.MILLISECONDS), "slow/3000");
+        assertTrue("took " + took, took < 1500);
+    }
+
+    @Test
+    public void testSlowResponseIsAbortedAtDeadlineWithPooledConnections() throws Exception {
+        createRequest(true);
+        final long took = failsWithin(Deadline.after(300, TimeUnit.MILLISECONDS), "slow/3000");
+        assertTrue("took " + took, took < 1500);
+        assertEquals(0, request.getConnectionManager().getConnectionsInUse());
+        assertEquals("\"slept\"", request.get("slow/0").getText());
+    }
+
+    @Test
+    public void testSlowBodyIsAbortedAtDeadline() throws Exception {
+        System.setProperty(Config.CONFIG_STREAM_RESULTS, "true");
+        createRequest(true);
+        final long took = failsWithin(Deadline.after(300, TimeUnit.MILLISECONDS), "slow/body/3000");
+        assertTrue("took " + took, took < 1500);
+        assertEquals(0, request.getConnectionManager().getConnectionsInUse());
+    }
+
+    @Test
+    public void testCancelAbortsRequestInFlight() throws Exception {
+        createRequest(true);
+        final Deadline deadline = Deadline.after(10, TimeUnit.SECONDS);
+        final ScheduledExecutorService canceller = Executors.newSingleThreadScheduledExecutor();
+        try {
+            canceller.schedule(new Runnable() {
+                public void run() {
+                    deadline.cancel();
+                }
+            }, 200, TimeUnit.MILLISECONDS);
+            final long took = failsWithin(deadline, "slow/3000");
+            assertTrue("took " + took, took < 1500);
+            assertTrue(deadline.isCancelled());
+            assertEquals(1, request.getConnectionManager().getAbortedConnections());
+        } finally {
+            canceller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRequestsWithinDeadlineSucceed() throws Exception {
+        createRequest(true);
+        final Deadline deadline = Deadline.after(5, TimeUnit.SECONDS);
+        final Deadline.Scope scope = deadline.enter();
+        try {
+            assertEquals("\"slept\"", request.get("slow/10").getText());
+            assertSame(deadline, Deadline.current());
+        } finally {
+            scope.exit();
+        }
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    public void testQueryWithDeadline() throws Exception {
+        final RestAPIFacade restAPI = new RestAPIFacade(url + "/db/data");
+        try {
+            final RestCypherQueryEngine engine = new RestCypherQueryEngine(restAPI);
+            final Iterable<Map<String, Object>> result = engine.query("start n=node(0) return id(n) as id", MapUtil.map(), Deadline.after(5, TimeUnit.SECONDS));
+            assertEquals(0L, ((Number) IteratorUtil.single(result).get("id")).longValue());
+            try {
+                engine.query("start n=node(0) return n", MapUtil.map(), Deadline.after(0, TimeUnit.MILLISECONDS));
+                fail("expected deadline to be exceeded");
+            } catch (DeadlineExceededException e) {
+                // expected
+            }
+        } finally {
+            restAPI.close();
+        }
+    }
+
+    @Test
+    public void testAsyncOperationsInheritTheDeadline() throws Exception {
+        final RestAPIFacade restAPI = new RestAPIFacade(url + "/db/data");
+        final Deadline.Scope scope = Deadline.after(0, TimeUnit.MILLISECONDS).enter();
+        try {
+            restAPI.getNodeByIdAsync(0).get();
+            fail("expected deadline to be exceeded");
+        } catch (java.util.concurrent.ExecutionException e) {
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+        } finally {
+            scope.exit();
+            restAPI.close();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Lets the test server accept gzipped request bodies and gzip responses for clients that ask for it,
+ * like a compressing proxy in front of the server would.
+ */
+public class GzipServletFilter implements Filter {
+    private final AtomicInteger gzippedRequests = new AtomicInteger();
+    private final AtomicInteger gzippedResponses = new AtomicInteger();
+
+    public void init(FilterConfig filterConfig) throws ServletException { }
+
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        if ("gzip".equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+            gzippedRequests.incrementAndGet();
+            request = new GzipRequest(request);
+        }
+        final String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+            chain.doFilter(request, response);
+            return;
+        }
+        final GzipResponse gzipResponse = new GzipResponse(response);
+        chain.doFilter(request, gzipResponse);
+        gzipResponse.finish();
+    }
+
+    public void destroy() { }
+
+    public int getGzippedRequests() {
+        return gzippedRequests.get();
+    }
+
+    public int getGzippedResponses() {
+        return gzippedResponses.get();
+    }
+
+    private static class GzipRequest extends HttpServletRequestWrapper {
+        private final ServletInputStream stream;
+
+        GzipRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            final InputStream in = new GZIPInputStream(request.getInputStream());
+            stream = new ServletInputStream() {
+                public int read() throws IOException {
+                    return in.read();
+                }
+
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    return in.read(bytes, offset, length);
+                }
+            };
+        }
+
+        public ServletInputStream getInputStream() throws IOException {
+            return stream;
+        }
+
+        public int getContentLength() {
+            return -1;
+        }
+
+        public String getHeader(String name) {
+            if (name.equalsIgnoreCase("Content-Encoding") || name.equalsIgnoreCase("Content-Length")) return null;
+            return super.getHeader(name);
+        }
+    }
+
+    private class GzipResponse extends HttpServletResponseWrapper {
+        private GZIPOutputStream gzip;
+        private ServletOutputStream stream;
+        private PrintWriter writer;
+
+        GzipResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (stream == null) {
+                setHeader("Content-Encoding", "gzip");
+                gzippedResponses.incrementAndGet();
+                gzip = new GZIPOutputStream(super.getOutputStream());
+                stream = new ServletOutputStream() {
+                    public void write(int b) throws IOException {
+                        gzip.write(b);
+                    }
+
+                    public void write(byte[] bytes, int offset, int length) throws IOException {
+                        gzip.write(bytes, offset, length);
+                    }
+
+                    public void flush() throws IOException {
+                        gzip.flush();
+                    }
+                };
+            }
+            return stream;
+        }
+
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        public void setContentLength(int length) {
+        }
+
+        public void setHeader(String name, String value) {
+            if (!name.equalsIgnoreCase("Content-Length")) super.setHeader(name, value);
+        }
+
+        public void addHeader(String name, String value) {
+            if (!name.equalsIgnoreCase("Content-Length")) super.addHeader(name, value);
+        }
+
+        public void setIntHeader(String name, int value) {
+            if (!name.equalsIgnoreCase("Content-Length")) super.setIntHeader(name, value);
+        }
+
+        public void addIntHeader(String name, int value) {
+            if (!name.equalsIgnoreCase("Content-Length")) super.addIntHeader(name, value);
+        }
+
+        public void flushBuffer() throws IOException {
+            if (writer != null) writer.flush();
+            if (gzip != null) gzip.flush();
+            super.flushBuffer();
+        }
+
+        void finish() throws IOException {
+            if (writer != null) writer.flush();
+            if (gzip != null) gzip.finish();
+        }
+    }
+}
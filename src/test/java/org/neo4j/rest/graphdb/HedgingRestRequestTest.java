@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.helpers.collection.MapUtil;
+
+import static org.junit.Assert.*;
+
+public class HedgingRestRequestTest {
+
+    private static final int WARMUP = 30;
+    private static final long MIN_DELAY_MILLIS = 20;
+
+    private StubRestRequest stub;
+    private HedgingRestRequest request;
+
+    @Before
+    public void init() {
+        stub = new StubRestRequest("http://localhost:7473/db/data").respond(200, "{\"name\":\"hedged\"}");
+        request = new HedgingRestRequest(stub, 95, MIN_DELAY_MILLIS);
+    }
+
+    @After
+    public void shutdown() {
+        stub.release();
+        request.close();
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(200, request.get("node/0").getStatus());
+        }
+    }
+
+    @Test
+    public void testFastReadsAreNotHedged() throws Exception {
+        warmUp();
+        assertEquals(WARMUP, request.getRequests());
+        assertEquals(0, request.getHedged());
+        assertEquals(WARMUP, stub.getRequests().size());
+        assertTrue(request.getHedgeDelayMicros() >= MIN_DELAY_MILLIS * 1000);
+    }
+
+    @Test
+    public void testSlowReadIsHedgedAndTheHedgeWins() throws Exception {
+        warmUp();
+        stub.block(1);
+        final long start = System.currentTimeMillis();
+        final RequestResult result = request.get("node/1");
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals("hedged", result.toMap().get("name"));
+        assertEquals(1, request.getHedged());
+        assertEquals(1, request.getHedgeWins());
+        assertEquals(WARMUP + 2, stub.getRequests().size());
+        assertEquals("GET node/1", stub.getRequests().get(WARMUP + 1));
+    }
+
+    @Test
+    public void testNoHedgingBeforeEnoughResponseTimesWereRecorded() throws Exception {
+        stub.block(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<RequestResult> result = executor.submit(new Callable<RequestResult>() {
+                public RequestResult call() throws Exception {
+                    return request.get("node/1");
+                }
+            });
+            Thread.sleep(MIN_DELAY_MILLIS * 5);
+            stub.release();
+            assertEquals(200, result.get().getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(-1, request.getHedgeDelayMicros());
+        assertEquals(0, request.getHedged());
+        assertEquals(1, stub.getRequests().size());
+    }
+
+    @Test
+    public void testSaturatedPoolSkipsHedging() throws Exception {
+        request.close();
+        request = new HedgingRestRequest(stub, 95, MIN_DELAY_MILLIS, 1);
+        warmUp();
+        stub.block(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<RequestResult> result = executor.submit(new Callable<RequestResult>() {
+                public RequestResult call() throws Exception {
+                    return request.get("node/1");
+                }
+            });
+            Thread.sleep(MIN_DELAY_MILLIS * 5);
+            assertEquals(0, request.getHedged());
+            stub.release();
+            assertEquals(200, result.get().getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(WARMUP + 1, request.getRequests());
+        assertEquals(0, request.getHedged());
+        assertEquals(WARMUP + 1, stub.getRequests().size());
+    }
+
+    @Test
+    public void testWritesAreNotHedged() throws Exception {
+        warmUp();
+        request.put("node/1/properties/name", "hedged");
+        request.delete("node/1");
+        request.post("node", MapUtil.map("name", "hedged"));
+        assertEquals(WARMUP, request.getRequests());
+        assertEquals(WARMUP + 3, stub.getRequests().size());
+    }
+
+    @Test
+    public void testReadOnlyPostIsHedged() throws Exception {
+        warmUp();
+        stub.block(1);
+        request.post("cypher", MapUtil.map("query", "start n=node(0) return n", "params", MapUtil.map()));
+        assertEquals(WARMUP + 1, request.getRequests());
+        assertEquals(1, request.getHedgeWins());
+    }
+}
@@ -56,6 +56,7 @@ public class LocalTestServer {
     protected String propertiesFile = "test-db.properties";
     private final ImpermanentGraphDatabase graphDatabase;
     private String userAgent;
+    private final GzipServletFilter gzipFilter = new GzipServletFilter();
 
     public LocalTestServer() {
         this("localhost");
@@ -106,6 +107,7 @@ public class LocalTestServer {
 
             public void destroy() { }
         },"/*");
+        jettyWebServer.addFilter(gzipFilter, "/*");
         String path = getPathFromUrl(url);
         neoServer = new CommunityNeoServer(new PropertyFileConfigurator(new File(path))) {
 
@@ -179,6 +181,10 @@ public class LocalTestServer {
         return userAgent;
     }
 
+    public GzipServletFilter getGzipFilter() {
+        return gzipFilter;
+    }
+
     private static class JettyStartupListener implements LifeCycle.Listener {
         CountDownLatch latch=new CountDownLatch(1);
         public void await() {
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.rest.graphdb.util.Config;
+
+import static org.neo4j.rest.graphdb.PooledConnectionTest.createRequest;
+import static org.neo4j.rest.graphdb.PooledConnectionTest.run;
+
+public class PooledConnectionBenchmark extends RestTestBase {
+
+    private static final int THREADS = 8;
+    private static final int REQUESTS_PER_THREAD = 250;
+
+    public PooledConnectionBenchmark(String url) {
+        super(url);
+    }
+
+    @After
+    public void resetConfig() {
+        System.clearProperty(Config.CONFIG_POOLED_CONNECTIONS);
+    }
+
+    @Test
+    public void benchmarkThroughputWithAndWithoutPooling() throws Exception {
+        final double unpooled = measureThroughput(false);
+        final double pooled = measureThroughput(true);
+        System.out.printf("%s: %d threads x %d GET requests, unpooled %.0f req/s, pooled %.0f req/s%n", url, THREADS, REQUESTS_PER_THREAD, unpooled, pooled);
+    }
+
+    private double measureThroughput(boolean pooled) throws Exception {
+        ExecutingRestRequest request = createRequest(url, pooled);
+        try {
+            run(request, THREADS, 20); // warmup
+            long start = System.nanoTime();
+            run(request, THREADS, REQUESTS_PER_THREAD);
+            long duration = System.nanoTime() - start;
+            return THREADS * REQUESTS_PER_THREAD / (duration / 1000000000.0);
+        } finally {
+            request.close();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.rest.graphdb.util.Config;
+
+import static org.junit.Assert.*;
+
+public class PooledConnectionTest extends RestTestBase {
+
+    private static final int THREADS = 8;
+
+    public PooledConnectionTest(String url) {
+        super(url);
+    }
+
+    @After
+    public void resetConfig() {
+        System.clearProperty(Config.CONFIG_POOLED_CONNECTIONS);
+    }
+
+    @Test
+    public void testPooledRequestsReuseConnections() throws Exception {
+        ExecutingRestRequest request = createRequest(url, true);
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(200, request.get("node/0").getStatus());
+            }
+            final PooledConnectionManager connectionManager = request.getConnectionManager();
+            assertNotNull(connectionManager);
+            assertEquals(10, connectionManager.getLeasedConnections());
+            assertEquals(0, connectionManager.getConnectionsInUse());
+            assertTrue(connectionManager.getConnectionsInPool() <= 1);
+        } finally {
+            request.close();
+        }
+    }
+
+    @Test
+    public void testPoolIsBoundedByMaxConnectionsPerHost() throws Exception {
+        ExecutingRestRequest request = createRequest(url, true);
+        try {
+            run(request, THREADS, 20);
+            final PooledConnectionManager connectionManager = request.getConnectionManager();
+            assertTrue(connectionManager.getConnectionsInPool() <= connectionManager.getMaxConnectionsPerHost());
+            assertEquals(0, connectionManager.getConnectionsInUse());
+        } finally {
+            request.close();
+        }
+    }
+
+    @Test
+    public void testAbortOnlyClosesConnectionStillHeldByTheLease() throws Exception {
+        final PooledConnectionManager connectionManager = new PooledConnectionManager(1, 1, 0, 1000);
+        try {
+            final URI uri = new URI(url);
+            final HostConfiguration host = new HostConfiguration();
+            host.setHost(uri.getHost(), uri.getPort());
+
+            final PooledConnectionManager.Lease released = new PooledConnectionManager.Lease();
+            connectionManager.captureLeases(released);
+            final HttpConnection connection = connectionManager.getConnectionWithTimeout(host, 1000);
+            connectionManager.captureLeases(null);
+            connection.open();
+            connection.releaseConnection();
+
+            final PooledConnectionManager.Lease held = new PooledConnectionManager.Lease();
+            connectionManager.captureLeases(held);
+            final HttpConnection reused = connectionManager.getConnectionWithTimeout(host, 1000);
+            connectionManager.captureLeases(null);
+
+            connectionManager.abort(released);
+            assertTrue(reused.isOpen());
+            assertEquals(0, connectionManager.getAbortedConnections());
+
+            connectionManager.abort(held);
+            assertFalse(reused.isOpen());
+            assertEquals(1, connectionManager.getAbortedConnections());
+            reused.releaseConnection();
+        } finally {
+            connectionManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnpooledRequestHasNoConnectionManager() throws Exception {
+        ExecutingRestRequest request = createRequest(url, false);
+        try {
+            assertNull(request.getConnectionManager());
+            assertEquals(200, request.get("node/0").getStatus());
+        } finally {
+            request.close();
+        }
+    }
+
+    static void run(final ExecutingRestRequest request, int threads, final int requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        for (int j = 0; j < requests; j++) {
+                            assertEquals(200, request.get("node/0").getStatus());
+                        }
+                        return requests;
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static ExecutingRestRequest createRequest(String url, boolean pooled) {
+        System.setProperty(Config.CONFIG_POOLED_CONNECTIONS, String.valueOf(pooled));
+        return new ExecutingRestRequest(url + "/db/data");
+    }
+}
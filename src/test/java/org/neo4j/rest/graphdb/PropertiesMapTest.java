@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.neo4j.helpers.collection.MapUtil;
+
+import static org.junit.Assert.*;
+
+public class PropertiesMapTest {
+
+    private static Object value(Object list) {
+        return new PropertiesMap(MapUtil.map("key", list)).getValue("key");
+    }
+
+    @Test
+    public void testNumberArrays() throws Exception {
+        assertArrayEquals(new long[]{1, 2}, (long[]) value(Arrays.asList(1, 2L)));
+        assertArrayEquals(new double[]{1.5, 2}, (double[]) value(Arrays.asList(1.5, 2)), 0);
+    }
+
+    @Test
+    public void testFloatingPointAfterTheFirstElementMakesDoubleArray() throws Exception {
+        assertArrayEquals(new double[]{1, 2.5}, (double[]) value(Arrays.<Number>asList(1, 2.5)), 0);
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.helpers.collection.MapUtil;
+
+import static org.junit.Assert.*;
+
+public class ResilientRestRequestTest {
+
+    private static final ClientHandlerException CONNECTION_RESET = new ClientHandlerException(new IOException("Connection reset"));
+
+    private StubRestRequest stub;
+    private ResilientRestRequest request;
+
+    @Before
+    public void init() {
+        stub = new StubRestRequest("http://localhost:7473/db/data");
+        request = new ResilientRestRequest(stub, 3, 1, 10, 5, 100);
+    }
+
+    @Test
+    public void testIdempotentRequestsAreRetried() throws Exception {
+        stub.failWith(CONNECTION_RESET, 2);
+        assertEquals(200, request.get("node/1").getStatus());
+        assertEquals(3, stub.getRequests().size());
+        assertEquals(2, request.getRetries());
+        stub.failWith(CONNECTION_RESET, 1);
+        assertEquals(200, request.put("node/1/properties/name", "value").getStatus());
+        stub.failWith(CONNECTION_RESET, 1);
+        assertEquals(200, request.delete("node/1").getStatus());
+        assertEquals(4, request.getRetries());
+    }
+
+    @Test
+    public void testUnavailableStatusIsRetried() throws Exception {
+        stub.respond(503, "");
+        assertEquals(503, request.get("node/1").getStatus());
+        assertEquals(4, stub.getRequests().size());
+        assertEquals(1, request.getExhausted());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxRetries() throws Exception {
+        stub.failWith(CONNECTION_RESET);
+        try {
+            request.get("node/1");
+            fail("expected failure");
+        } catch (ClientHandlerException e) {
+            assertSame(CONNECTION_RESET, e);
+        }
+        assertEquals(4, stub.getRequests().size());
+        assertEquals(3, request.getRetries());
+        assertEquals(1, request.getExhausted());
+    }
+
+    @Test
+    public void testPostsAreNotRetried() throws Exception {
+        stub.failWith(CONNECTION_RESET, 1);
+        try {
+            request.post("node", MapUtil.map("name", "value"));
+            fail("expected failure");
+        } catch (ClientHandlerException e) {
+            assertSame(CONNECTION_RESET, e);
+        }
+        assertEquals(1, stub.getRequests().size());
+        assertEquals(0, request.getRetries());
+    }
+
+    @Test
+    public void testReadOnlyAndSafePostsAreRetried() throws Exception {
+        stub.failWith(CONNECTION_RESET, 1);
+        request.post("cypher", MapUtil.map("query", "start n=node(1) return n"));
+        stub.failWith(CONNECTION_RESET, 1);
+        request.post("node/1/traverse/node", MapUtil.map());
+        stub.failWith(CONNECTION_RESET, 1);
+        request.markSafe(Pattern.compile("ext/ReadPlugin/"));
+        request.post("ext/ReadPlugin/graphdb/read", MapUtil.map());
+        assertEquals(3, request.getRetries());
+
+        stub.failWith(CONNECTION_RESET, 1);
+        try {
+            request.post("cypher", MapUtil.map("query", "start n=node(1) set n.name='value'"));
+            fail("expected failure");
+        } catch (ClientHandlerException e) {
+            assertEquals(3, request.getRetries());
+        }
+    }
+
+    @Test
+    public void testCircuitBreakerOpensAndFailsFast() throws Exception {
+        request = new ResilientRestRequest(stub, 0, 1, 10, 3, 100);
+        stub.failWith(CONNECTION_RESET);
+        for (int i = 0; i < 3; i++) {
+            try {
+                request.get("node/1");
+                fail("expected failure");
+            } catch (CircuitOpenException e) {
+                fail("breaker opened too early");
+            } catch (ClientHandlerException e) {
+                // expected
+            }
+        }
+        final CircuitBreaker breaker = request.getCircuitBreakers().get("http://localhost:7473");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        try {
+            request.with("http://localhost:7473/db/data/node/2").get("properties");
+            fail("expected fail fast");
+        } catch (CircuitOpenException e) {
+            assertEquals("http://localhost:7473", e.getEndpoint());
+        }
+        assertEquals(3, stub.getRequests().size());
+        assertEquals(1, breaker.getRejected());
+    }
+
+    @Test
+    public void testCircuitBreakerClosesAfterSuccessfulTrial() throws Exception {
+        request = new ResilientRestRequest(stub, 0, 1, 10, 1, 50);
+        stub.failWith(CONNECTION_RESET, 1);
+        try {
+            request.get("node/1");
+            fail("expected failure");
+        } catch (ClientHandlerException e) {
+            // expected
+        }
+        final CircuitBreaker breaker = request.getCircuitBreakers().get("http://localhost:7473");
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(60);
+        assertEquals(200, request.get("node/1").getStatus());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getOpened());
+    }
+
+    @Test
+    public void testFailedTrialReopensCircuitBreaker() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker("http://localhost:7473", 2, 50);
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+        Thread.sleep(60);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse("only one trial request", breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpened());
+    }
+}
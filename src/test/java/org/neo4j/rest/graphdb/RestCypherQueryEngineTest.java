@@ -33,6 +33,7 @@ import org.junit.Test;
 import org.neo4j.graphdb.Node;
 import org.neo4j.helpers.collection.IteratorUtil;
 import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.rest.graphdb.query.ColumnarResult;
 import org.neo4j.rest.graphdb.query.RestCypherQueryEngine;
 
 
@@ -128,6 +129,17 @@ public class RestCypherQueryEngineTest extends RestTestBase {
         final Collection<String> result =  IteratorUtil.asCollection(queryEngine.query(queryString, MapUtil.map("reference",0)).to(String.class)); 
         assertTrue(result.contains("NEO_NODE"));      
     }
+
+    @Test
+    public void testGetNeoNodeColumnar(){
+        final String queryString = "start neo=node({neoId}) return neo, neo.name, neo.age";
+        final ColumnarResult result = queryEngine.queryColumnar(queryString, MapUtil.map("neoId",getNeoId()));
+        assertEquals(1, result.getRowCount());
+        assertEquals(ColumnarResult.Type.NODE, result.getColumn("neo").getType());
+        assertEquals(getNeoId(), ((ColumnarResult.LongColumn) result.getColumn("neo")).getLong(0));
+        assertEquals("Thomas Anderson", ((ColumnarResult.StringColumn) result.getColumn("neo.name")).getString(0));
+        assertEquals(29, ((ColumnarResult.LongColumn) result.getColumn("neo.age")).getLong(0));
+    }
     
     
     public long getNeoId(){
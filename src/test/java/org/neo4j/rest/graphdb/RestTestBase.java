@@ -192,6 +192,10 @@ public class RestTestBase {
         return neoServer.getUserAgent();
     }
 
+    public GzipServletFilter getGzipFilter() {
+        return neoServer.getGzipFilter();
+    }
+
     @Test
     public void testNothing() throws Exception { }
 }
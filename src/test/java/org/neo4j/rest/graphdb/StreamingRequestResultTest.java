@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.rest.graphdb.util.Config;
+
+import static org.junit.Assert.*;
+
+public class StreamingRequestResultTest extends RestTestBase {
+
+    private ExecutingRestRequest request;
+
+    public StreamingRequestResultTest(String url) {
+        super(url);
+    }
+
+    @Before
+    public void enableStreaming() {
+        System.setProperty(Config.CONFIG_STREAM_RESULTS, "true");
+        System.setProperty(Config.CONFIG_POOLED_CONNECTIONS, "true");
+        request = new ExecutingRestRequest(url + "/db/data");
+    }
+
+    @After
+    public void resetConfig() {
+        request.close();
+        System.clearProperty(Config.CONFIG_STREAM_RESULTS);
+        System.clearProperty(Config.CONFIG_POOLED_CONNECTIONS);
+    }
+
+    @Test
+    public void testOkResultIsParsedFromStream() throws Exception {
+        final RequestResult result = request.get("node/0");
+        assertTrue(result.isStreaming());
+        assertEquals(1, request.getConnectionManager().getConnectionsInUse());
+        final Map<?, ?> data = result.toMap();
+        assertFalse(result.isStreaming());
+        assertTrue(data.get("self").toString().endsWith("/node/0"));
+        assertEquals(0, request.getConnectionManager().getConnectionsInUse());
+    }
+
+    @Test
+    public void testGetTextReleasesConnection() throws Exception {
+        final RequestResult result = request.get("node/0");
+        assertTrue(result.getText().contains("/node/0"));
+        assertEquals(0, request.getConnectionManager().getConnectionsInUse());
+    }
+
+    @Test
+    public void testCloseReleasesUnreadResult() throws Exception {
+        final RequestResult result = request.get("node/0");
+        result.close();
+        assertFalse(result.isStreaming());
+        assertEquals(0, request.getConnectionManager().getConnectionsInUse());
+    }
+
+    @Test
+    public void testAbortReleasesUnreadResult() throws Exception {
+        final RequestResult result = request.get("node/0");
+        result.abort();
+        assertFalse(result.isStreaming());
+        assertEquals(0, request.getConnectionManager().getConnectionsInUse());
+    }
+
+    @Test
+    public void testClosingResultOfCancelledRequestDoesNotThrow() throws Exception {
+        final Deadline deadline = Deadline.after(10, TimeUnit.SECONDS);
+        final RequestResult result;
+        final Deadline.Scope scope = deadline.enter();
+        try {
+            result = request.get("node/0");
+        } finally {
+            scope.exit();
+        }
+        deadline.cancel();
+        result.close();
+        assertFalse(result.isStreaming());
+    }
+
+    @Test
+    public void testNonOkResultsAreBuffered() throws Exception {
+        final RequestResult result = request.get("node/" + Integer.MAX_VALUE);
+        assertEquals(404, result.getStatus());
+        assertFalse(result.isStreaming());
+        assertEquals(0, request.getConnectionManager().getConnectionsInUse());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStreamedCypherResult() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            getRestGraphDb().createNode().setProperty("index", i);
+        }
+        final RequestResult result = request.post("cypher", MapUtil.map("query", "start n=node(*) where has(n.index) return n.index", "params", Collections.emptyMap()));
+        assertTrue(result.isStreaming());
+        final List<List<Object>> rows = (List<List<Object>>) result.toMap().get("data");
+        assertEquals(100, rows.size());
+        assertEquals(0, request.getConnectionManager().getConnectionsInUse());
+    }
+
+    @Test
+    public void testRestApiWorksWithStreamedResults() throws Exception {
+        final RestAPI restAPI = new RestAPIFacade(url + "/db/data");
+        try {
+            final Node node = restAPI.createNode(MapUtil.map("name", "streamed"));
+            assertEquals("streamed", restAPI.getNodeById(node.getId()).getProperty("name"));
+            final Iterable<Map<String, Object>> rows = restAPI.query("start n=node({id}) return n.name as name", MapUtil.map("id", (Object) node.getId()), null);
+            assertEquals("streamed", IteratorUtil.single(rows).get("name"));
+        } finally {
+            restAPI.close();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb;
+
+import java.io.ByteArrayInputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the requests and answers them with a fixed body, optionally blocking them until released
+ * or failing them.
+ */
+public class StubRestRequest implements RestRequest {
+    private final String uri;
+    private final List<String> requests;
+    private volatile CountDownLatch gate;
+    private volatile RuntimeException failure;
+    private final AtomicInteger failures;
+    private final AtomicInteger blocked;
+    private volatile int status = 200;
+    private volatile String body = "{}";
+    private volatile boolean streaming;
+
+    public StubRestRequest(String uri) {
+        this.uri = uri;
+        this.requests = Collections.synchronizedList(new ArrayList<String>());
+        this.failures = new AtomicInteger();
+        this.blocked = new AtomicInteger();
+    }
+
+    private StubRestRequest(String uri, StubRestRequest parent) {
+        this.uri = uri;
+        this.requests = parent.requests;
+        this.gate = parent.gate;
+        this.failure = parent.failure;
+        this.failures = parent.failures;
+        this.blocked = parent.blocked;
+        this.status = parent.status;
+        this.body = parent.body;
+        this.streaming = parent.streaming;
+    }
+
+    public StubRestRequest respond(int status, String body) {
+        this.status = status;
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * answers with streamed results, as with stream_results enabled
+     */
+    public StubRestRequest streaming() {
+        this.streaming = true;
+        return this;
+    }
+
+    public StubRestRequest failWith(RuntimeException failure) {
+        return failWith(failure, Integer.MAX_VALUE);
+    }
+
+    /**
+     * fails the next requests, the following ones succeed again
+     */
+    public StubRestRequest failWith(RuntimeException failure, int times) {
+        this.failure = failure;
+        this.failures.set(times);
+        return this;
+    }
+
+    public StubRestRequest block() {
+        return block(Integer.MAX_VALUE);
+    }
+
+    /**
+     * blocks the next requests until released, the following ones are answered immediately
+     */
+    public StubRestRequest block(int requests) {
+        this.blocked.set(requests);
+        this.gate = new CountDownLatch(1);
+        return this;
+    }
+
+    public void release() {
+        final CountDownLatch gate = this.gate;
+        if (gate != null) gate.countDown();
+    }
+
+    public List<String> getRequests() {
+        synchronized (requests) {
+            return new ArrayList<String>(requests);
+        }
+    }
+
+    private RequestResult handle(String method, String path) {
+        requests.add(method + " " + path);
+        final CountDownLatch gate = this.gate;
+        if (gate != null && blocked.getAndDecrement() > 0) {
+            try {
+                if (!gate.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("request was not released");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+        if (failure != null && failures.getAndDecrement() > 0) throw failure;
+        if (streaming) {
+            try {
+                return new RequestResult(status, null, new ByteArrayInputStream(body.getBytes("UTF-8")), null);
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return new RequestResult(status, null, body);
+    }
+
+    @Override
+    public RequestResult get(String path) {
+        return handle("GET", path);
+    }
+
+    @Override
+    public RequestResult get(String path, Object data) {
+        return handle("GET", path);
+    }
+
+    @Override
+    public RequestResult delete(String path) {
+        return handle("DELETE", path);
+    }
+
+    @Override
+    public RequestResult post(String path, Object data) {
+        return handle("POST", path);
+    }
+
+    @Override
+    public RequestResult put(String path, Object data) {
+        return handle("PUT", path);
+    }
+
+    @Override
+    public RestRequest with(String uri) {
+        return new StubRestRequest(uri, this);
+    }
+
+    @Override
+    public String getUri() {
+        return uri;
+    }
+
+    @Override
+    public Map<?, ?> toMap(RequestResult requestResult) {
+        return requestResult.toMap();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation.Methods;
+import org.neo4j.rest.graphdb.converter.RestEntityExtractor;
+import org.neo4j.rest.graphdb.converter.RestEntityPropertyRefresher;
+import org.neo4j.rest.graphdb.entity.RestNode;
+
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class BatchCompactorTest {
+
+    private static final String BASE_URI = "http://localhost:7474/db/data";
+    private static final String NODE = BASE_URI + "/node/5";
+
+    private final RestAPI restApi = new RestAPIFacade("http://localhost:7470").getDirect();
+    private final RestOperations operations = new RestOperations();
+
+    private long createNode(Map<String, Object> props) {
+        final long batchId = operations.record(Methods.POST, "node", props, BASE_URI).getBatchId();
+        operations.addToRestOperation(batchId, new RestNode("{" + batchId + "}", restApi), new RestEntityExtractor(restApi));
+        return batchId;
+    }
+
+    private long setProperty(String entityUri, String key, Object value) {
+        final long batchId = operations.record(Methods.PUT, "properties/" + key, value, entityUri).getBatchId();
+        final RestNode entity = new RestNode(entityUri.startsWith("{") ? entityUri : NODE, restApi);
+        operations.addToRestOperation(batchId, entity, new RestEntityPropertyRefresher(entity));
+        return batchId;
+    }
+
+    private long addToIndex(String entityUri, String key, Object value) {
+        return operations.record(Methods.POST, "index/node/test", map("key", key, "value", value, "uri", entityUri), BASE_URI).getBatchId();
+    }
+
+    private List<Long> sent() {
+        final List<Long> sent = new ArrayList<Long>();
+        for (RestOperation operation : operations.getRecordedRequests().values()) {
+            if (!operation.isCompacted()) sent.add(operation.getBatchId());
+        }
+        return sent;
+    }
+
+    @Test
+    public void testPropertiesAreMergedIntoCreation() throws Exception {
+        final Map<String, Object> props = map("name", "node");
+        final long create = createNode(props);
+        for (int i = 0; i < 5; i++) {
+            setProperty("{" + create + "}", "p" + i, i);
+        }
+        setProperty("{" + create + "}", "name", "renamed");
+
+        assertEquals(6, new BatchCompactor().compact(operations));
+        assertEquals(asList(create), sent());
+        assertEquals(map("name", "renamed", "p0", 0, "p1", 1, "p2", 2, "p3", 3, "p4", 4), operations.getOperation(create).getData());
+        assertEquals("recorded map is not changed", map("name", "node"), props);
+        assertEquals(6, operations.getCompacted());
+    }
+
+    @Test
+    public void testPropertiesAreMergedIntoRelationshipCreation() throws Exception {
+        final long start = createNode(null);
+        final long end = createNode(null);
+        final long relationship = operations.record(Methods.POST, "relationships", map("to", "{" + end + "}", "type", "KNOWS"), "{" + start + "}").getBatchId();
+        setProperty("{" + relationship + "}", "since", 2012);
+        setProperty("{" + start + "}", "name", "start");
+
+        assertEquals(2, new BatchCompactor().compact(operations));
+        assertEquals(map("to", "{" + end + "}", "type", "KNOWS", "data", map("since", 2012)), operations.getOperation(relationship).getData());
+        assertEquals(map("name", "start"), operations.getOperation(start).getData());
+    }
+
+    @Test
+    public void testOnlyLastWriteOfExistingEntityIsSent() throws Exception {
+        setProperty(NODE, "name", "first");
+        setProperty(NODE, "age", 1);
+        final long last = setProperty(NODE, "name", "last");
+        final long age = setProperty(NODE, "age", 2);
+
+        assertEquals(2, new BatchCompactor().compact(operations));
+        assertEquals(asList(last, age), sent());
+    }
+
+    @Test
+    public void testReadsSeeTheWritesBeforeThem() throws Exception {
+        final long create = createNode(null);
+        final long first = setProperty("{" + create + "}", "name", "first");
+        final long read = operations.record(Methods.GET, "properties", null, "{" + create + "}").getBatchId();
+        final long second = setProperty("{" + create + "}", "name", "second");
+        final long removal = operations.record(Methods.DELETE, "properties/name", null, NODE).getBatchId();
+        final long third = setProperty(NODE, "name", "third");
+
+        assertEquals(1, new BatchCompactor().compact(operations));
+        assertEquals(asList(create, read, second, removal, third), sent());
+        assertEquals(map("name", "first"), operations.getOperation(create).getData());
+        assertTrue(operations.getOperation(first).isCompacted());
+    }
+
+    @Test
+    public void testWritesOfDeletedEntitiesAreDropped() throws Exception {
+        setProperty(NODE, "name", "deleted");
+        addToIndex(NODE, "name", "deleted");
+        final long other = addToIndex(BASE_URI + "/node/6", "name", "other");
+        final long delete = operations.record(Methods.DELETE, "", null, NODE).getBatchId();
+
+        assertEquals(2, new BatchCompactor().compact(operations));
+        assertEquals(asList(other, delete), sent());
+    }
+
+    @Test
+    public void testDuplicateIndexEntriesAreDropped() throws Exception {
+        final long first = addToIndex(NODE, "name", "node");
+        addToIndex(NODE, "name", "node");
+        final long otherValue = addToIndex(NODE, "name", "other");
+        final long removal = operations.record(Methods.DELETE, "index/node/test/name/node/5", null, BASE_URI).getBatchId();
+        final long again = addToIndex(NODE, "name", "node");
+
+        assertEquals(1, new BatchCompactor().compact(operations));
+        assertEquals(asList(first, otherValue, removal, again), sent());
+    }
+
+    private static List<Long> asList(long... batchIds) {
+        final List<Long> result = new ArrayList<Long>();
+        for (long batchId : batchIds) {
+            result.add(batchId);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation.Methods;
+
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class BatchPartitionerTest {
+
+    private static final String BASE_URI = "http://localhost:7474/db/data";
+
+    private final RestOperations operations = new RestOperations();
+    private final BatchPartitioner partitioner = new BatchPartitioner(BASE_URI);
+
+    private long record(Methods method, String path, Object data, String baseUri) {
+        return operations.record(method, path, data, baseUri).getBatchId();
+    }
+
+    private long createNode() {
+        return record(Methods.POST, "node", map("name", "node"), BASE_URI);
+    }
+
+    private long createRelationship(String start, String end) {
+        return record(Methods.POST, "relationships", map("to", end, "type", "KNOWS"), start);
+    }
+
+    private List<Long> ids(List<RestOperation> partition) {
+        final List<Long> ids = new ArrayList<Long>();
+        for (RestOperation operation : partition) {
+            ids.add(operation.getBatchId());
+        }
+        return ids;
+    }
+
+    private int partitionOf(List<List<RestOperation>> partitions, long batchId) {
+        for (int i = 0; i < partitions.size(); i++) {
+            if (ids(partitions.get(i)).contains(batchId)) return i;
+        }
+        throw new AssertionError("operation " + batchId + " not in any partition");
+    }
+
+    @Test
+    public void testIndependentOperationsAreSpread() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            createNode();
+        }
+        final List<List<RestOperation>> partitions = partitioner.partition(operations, 4);
+        assertEquals(4, partitions.size());
+        for (List<RestOperation> partition : partitions) {
+            assertEquals(2, partition.size());
+        }
+    }
+
+    @Test
+    public void testDependentOperationsStayInOrder() throws Exception {
+        final long a = createNode();
+        final long b = createNode();
+        final long c = createNode();
+        final long d = createNode();
+        final long ab = createRelationship("{" + a + "}", "{" + b + "}");
+        final long property = record(Methods.PUT, "properties/since", 2012, "{" + ab + "}");
+        final long indexed = record(Methods.POST, "index/node/test", map("key", "name", "value", "c", "uri", "{" + c + "}"), BASE_URI);
+
+        final List<List<RestOperation>> partitions = partitioner.partition(operations, 4);
+        assertEquals(3, partitions.size());
+        final int first = partitionOf(partitions, a);
+        assertEquals(asList(a, b, ab, property), ids(partitions.get(first)));
+        assertEquals(asList(c, indexed), ids(partitions.get(partitionOf(partitions, c))));
+        assertEquals(asList(d), ids(partitions.get(partitionOf(partitions, d))));
+    }
+
+    @Test
+    public void testOperationsOnTheSameExistingEntityAreConnected() throws Exception {
+        final String node = BASE_URI + "/node/5";
+        final long first = record(Methods.PUT, "properties/name", "first", node);
+        final long other = createNode();
+        final long relationship = createRelationship(BASE_URI + "/node/6", node);
+        final long last = record(Methods.PUT, "properties/name", "last", node);
+        final long unique = record(Methods.POST, "index/node/test?unique", map("key", "uid", "value", 1, "properties", map()), BASE_URI);
+        final long sameUnique = record(Methods.POST, "index/node/test?unique", map("key", "uid", "value", 1, "properties", map()), BASE_URI);
+
+        final List<List<RestOperation>> partitions = partitioner.partition(operations, 8);
+        assertEquals(3, partitions.size());
+        assertEquals(asList(first, relationship, last), ids(partitions.get(partitionOf(partitions, first))));
+        assertEquals(asList(unique, sameUnique), ids(partitions.get(partitionOf(partitions, unique))));
+        assertEquals(asList(other), ids(partitions.get(partitionOf(partitions, other))));
+    }
+
+    @Test
+    public void testBatchWithReadsIsNotSplit() throws Exception {
+        createNode();
+        createNode();
+        record(Methods.POST, "cypher", map("query", "start n=node(*) return count(*)", "params", map()), BASE_URI);
+        assertEquals(1, partitioner.partition(operations, 4).size());
+    }
+
+    @Test
+    public void testBatchDeletingExistingEntitiesIsNotSplit() throws Exception {
+        createNode();
+        record(Methods.DELETE, "", null, BASE_URI + "/relationship/3");
+        record(Methods.DELETE, "", null, BASE_URI + "/node/5");
+        createNode();
+        assertEquals(1, partitioner.partition(operations, 4).size());
+    }
+
+    @Test
+    public void testCompactedOperationsAreLeftOut() throws Exception {
+        final long a = createNode();
+        final long property = record(Methods.PUT, "properties/name", "folded", "{" + a + "}");
+        final long b = createNode();
+        new BatchCompactor().compact(operations);
+        final List<List<RestOperation>> partitions = partitioner.partition(operations, 4);
+        assertEquals(2, partitions.size());
+        assertFalse(ids(partitions.get(0)).contains(property) || ids(partitions.get(1)).contains(property));
+        assertEquals(asList(b), ids(partitions.get(partitionOf(partitions, b))));
+    }
+
+    private static List<Long> asList(long... batchIds) {
+        final List<Long> result = new ArrayList<Long>();
+        for (long batchId : batchIds) {
+            result.add(batchId);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation.Methods;
+import org.neo4j.rest.graphdb.util.JsonCodec;
+import org.neo4j.rest.graphdb.util.JsonCodecs;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class BatchRequestEntityTest {
+
+    private static final String BASE_URI = "http://localhost:7474/db/data";
+
+    private final JsonCodec codec = JsonCodecs.getDefault();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testWritesOperationsAsBatchRequest() throws Exception {
+        final RestOperations operations = new RestOperations();
+        operations.record(Methods.POST, "node", map("name", "quote\"d", "ages", new int[]{1, 2}), BASE_URI);
+        operations.record(Methods.PUT, "properties/name", "value", "{1}");
+        operations.record(Methods.DELETE, "", null, BASE_URI + "/node/5");
+        operations.record(Methods.GET, "/relationships/all", null, BASE_URI + "/node/5");
+
+        final List<Map<String, Object>> batch = (List<Map<String, Object>>) codec.decode(new BatchRequestEntity(operations, BASE_URI, codec).toString());
+        assertEquals(4, batch.size());
+        assertEquals(map("method", "POST", "to", "node", "body", map("name", "quote\"d", "ages", asList(1, 2)), "id", 1), batch.get(0));
+        assertEquals(map("method", "PUT", "to", "{1}/properties/name", "body", "value", "id", 2), batch.get(1));
+        assertEquals(map("method", "DELETE", "to", BASE_URI + "/node/5/", "id", 3), batch.get(2));
+        assertEquals(map("method", "GET", "to", BASE_URI + "/node/5/relationships/all", "id", 4), batch.get(3));
+    }
+
+    @Test
+    public void testEmptyBatch() throws Exception {
+        assertEquals("[]", new BatchRequestEntity(new RestOperations(), BASE_URI, codec).toString());
+    }
+}
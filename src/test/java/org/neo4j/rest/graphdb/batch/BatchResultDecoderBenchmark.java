@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.neo4j.rest.graphdb.RequestResult;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.util.JsonCodec;
+import org.neo4j.rest.graphdb.util.JsonCodecs;
+
+import static org.junit.Assert.*;
+import static org.neo4j.rest.graphdb.batch.BatchResultDecoderTest.recordNodes;
+import static org.neo4j.rest.graphdb.batch.BatchResultDecoderTest.response;
+import static org.neo4j.rest.graphdb.util.MemoryUsage.allocatedBytes;
+
+public class BatchResultDecoderBenchmark {
+
+    private static final int NODES = 10000;
+    private static final int ROUNDS = 10;
+
+    private final RestAPI restApi = new RestAPIFacade("http://localhost:7470").getDirect();
+    private final JsonCodec codec = JsonCodecs.getDefault();
+
+    /**
+     * the previous way: parse the whole response, encode each body again and parse it as sub result
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Object> roundTrip(RestOperations operations, String json) {
+        final Map<Long, Object> mapped = new HashMap<Long, Object>();
+        for (Map<String, Object> entry : (Collection<Map<String, Object>>) codec.decode(json)) {
+            final long batchId = ((Number) entry.get("id")).longValue();
+            final RequestResult subResult = RequestResult.extractFrom(entry, codec);
+            mapped.put(batchId, operations.getOperation(batchId).getResultConverter().convertFromRepresentation(subResult));
+        }
+        return mapped;
+    }
+
+    @Test
+    public void benchmarkDecodeLargeBatch() throws Exception {
+        final RestOperations operations = recordNodes(restApi, new RestOperations(), NODES);
+        final String json = response(NODES);
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                assertEquals(NODES, roundTrip(operations, json).size());
+            }
+            final long roundTripTime = System.nanoTime() - start;
+            final long roundTripAllocated = allocatedBytes() - allocated;
+
+            allocated = allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                assertEquals(NODES, new BatchResultDecoder(operations).decode(json).size());
+            }
+            final long decodeTime = System.nanoTime() - start;
+            final long decodeAllocated = allocatedBytes() - allocated;
+
+            System.out.printf("batch result of %d nodes: re-encoded bodies %d ms, %d KB allocated; decoded once %d ms, %d KB allocated%n",
+                    NODES, roundTripTime / ROUNDS / 1000000, roundTripAllocated / ROUNDS / 1024,
+                    decodeTime / ROUNDS / 1000000, decodeAllocated / ROUNDS / 1024);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+import org.neo4j.rest.graphdb.RequestResult;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.RestResultException;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation.Methods;
+import org.neo4j.rest.graphdb.converter.RestEntityExtractor;
+import org.neo4j.rest.graphdb.converter.RestResultConverter;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.util.JsonCodec;
+import org.neo4j.rest.graphdb.util.JsonCodecs;
+
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class BatchResultDecoderTest {
+
+    private static final String BASE_URI = "http://localhost:7474/db/data";
+
+    private final RestAPI restApi = new RestAPIFacade("http://localhost:7470").getDirect();
+    private final JsonCodec codec = JsonCodecs.getDefault();
+
+    static RestOperations recordNodes(RestAPI restApi, RestOperations operations, int count) {
+        for (int i = 0; i < count; i++) {
+            final long batchId = operations.record(Methods.POST, "node", map("name", "node" + i), BASE_URI).getBatchId();
+            operations.addToRestOperation(batchId, new RestNode("{" + batchId + "}", restApi), new RestEntityExtractor(restApi));
+        }
+        return operations;
+    }
+
+    static String response(int count) {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) sb.append(',');
+            final String uri = BASE_URI + "/node/" + (100 + i);
+            sb.append("{\"id\":").append(i).append(",\"location\":\"").append(uri).append("\",\"body\":{")
+              .append("\"outgoing_relationships\":\"").append(uri).append("/relationships/out\",")
+              .append("\"data\":{\"name\":\"node").append(i - 1).append("\",\"age\":").append(i).append("},")
+              .append("\"self\":\"").append(uri).append("\"},\"from\":\"/node\"}");
+        }
+        return sb.append("]").toString();
+    }
+
+    @Test
+    public void testConvertsBodiesOfEntries() throws Exception {
+        final RestOperations operations = recordNodes(restApi, new RestOperations(), 3);
+        final long property = operations.record(Methods.PUT, "{1}/properties/name", "renamed", BASE_URI).getBatchId();
+        final String json = response(3).replace("]", ",{\"id\":" + property + ",\"from\":\"/node/101/properties/name\"}]");
+
+        final Map<Long, Object> mapped = new BatchResultDecoder(operations).decode(json);
+        assertEquals(3, mapped.size());
+        final RestNode node = (RestNode) mapped.get(2L);
+        assertEquals(102, node.getId());
+        assertEquals("node1", node.getProperty("name"));
+        assertEquals(2, node.getProperty("age"));
+        assertEquals(mapped, new BatchResultDecoder(operations).convert(codec.decode(json)));
+    }
+
+    @Test
+    public void testHandsDecodedBodyToConverter() throws Exception {
+        final RestOperations operations = new RestOperations();
+        final long batchId = operations.record(Methods.GET, "node/1", null, BASE_URI).getBatchId();
+        final RequestResult[] results = new RequestResult[1];
+        operations.addToRestOperation(batchId, new Object(), new RestResultConverter() {
+            public Object convertFromRepresentation(RequestResult value) {
+                results[0] = value;
+                return value.toMap();
+            }
+        });
+        final Map<Long, Object> mapped = new BatchResultDecoder(operations).decode("[{\"id\":1,\"body\":{\"self\":\"x\",\"list\":[1,2]},\"from\":\"/node/1\"}]");
+        assertEquals(map("self", "x", "list", Arrays.asList(1, 2)), mapped.get(1L));
+        assertNull("not encoded again", results[0].getText());
+    }
+
+    @Test
+    public void testRemembersLocationsOfBoundedOperations() throws Exception {
+        final RestOperations operations = recordNodes(restApi, new RestOperations(2, 0, new RestOperations.Flusher() {
+            public void flush(RestOperations operations) {
+                new BatchResultDecoder(operations).decode(response(2));
+            }
+        }), 2);
+        final long batchId = operations.record(Methods.POST, "relationships", map("to", "{2}"), "{1}").getBatchId();
+        assertEquals(BASE_URI + "/node/101", operations.getOperation(batchId).getBaseUri());
+        assertEquals(map("to", BASE_URI + "/node/102"), operations.getOperation(batchId).getData());
+    }
+
+    @Test(expected = RestResultException.class)
+    public void testFailedBatch() throws Exception {
+        new BatchResultDecoder(new RestOperations()).decode("{\"message\":\"failed\",\"exception\":\"BatchOperationFailedException\"}");
+    }
+
+    @Test(expected = RestResultException.class)
+    public void testFailedEntry() throws Exception {
+        final RestOperations operations = recordNodes(restApi, new RestOperations(), 1);
+        new BatchResultDecoder(operations).decode("[{\"id\":1,\"status\":404,\"body\":{\"message\":\"not found\"}}]");
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class CsvReaderTest {
+
+    @Test
+    public void testReadsTypedColumns() throws Exception {
+        final CsvReader reader = new CsvReader(new StringReader("id:long,name,age:int,score:double,active:boolean\n1,Alice,42,1.5,true\n2,Bob,,2,false\n"));
+        assertEquals(Arrays.asList("id", "name", "age", "score", "active"), Arrays.asList(reader.getColumns()));
+        assertEquals(map("id", 1L, "name", "Alice", "age", 42, "score", 1.5d, "active", true), reader.next());
+        assertEquals(map("id", 2L, "name", "Bob", "score", 2d, "active", false), reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testQuotedFields() throws Exception {
+        final CsvReader reader = new CsvReader(new StringReader("name;text\r\n\"a;b\";\"say \"\"hi\"\"\nagain\"\r\n\r\nc;d"), ';');
+        assertEquals(map("name", "a;b", "text", "say \"hi\"\nagain"), reader.next());
+        assertEquals(map("name", "c", "text", "d"), reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void testInvalidValueReportsLine() throws Exception {
+        final CsvReader reader = new CsvReader(new StringReader("id:long\n1\nx\n"));
+        reader.next();
+        try {
+            reader.next();
+            fail("expected invalid value");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Line 3"));
+        }
+    }
+
+    @Test
+    public void testRecords() throws Exception {
+        final Iterator<BulkLoader.NodeRecord> nodes = BulkLoader.nodes(new CsvReader(new StringReader("key,name\n7,Alice")), "key");
+        final BulkLoader.NodeRecord node = nodes.next();
+        assertEquals(7, node.getKey());
+        assertEquals(map("name", "Alice"), node.getProperties());
+        final Iterator<BulkLoader.RelationshipRecord> relationships = BulkLoader.relationships(new CsvReader(new StringReader("from:long,to:long,type,since:int\n7,8,KNOWS,2001")), "from", "to", "type");
+        final BulkLoader.RelationshipRecord relationship = relationships.next();
+        assertEquals(7, relationship.getStartKey());
+        assertEquals(8, relationship.getEndKey());
+        assertEquals("KNOWS", relationship.getType());
+        assertEquals(map("since", 2001), relationship.getProperties());
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation;
+import org.neo4j.rest.graphdb.batch.RestOperations.RestOperation.Methods;
+
+import static org.junit.Assert.*;
+import static org.neo4j.helpers.collection.MapUtil.map;
+
+public class RestOperationsTest {
+
+    private static final String BASE_URI = "http://localhost:7474/db/data";
+
+    private final List<List<RestOperation>> chunks = new ArrayList<List<RestOperation>>();
+
+    /**
+     * pretends that every operation created the node with the id 100 + batch id
+     */
+    private final RestOperations.Flusher flusher = new RestOperations.Flusher() {
+        public void flush(RestOperations operations) {
+            final List<RestOperation> chunk = new ArrayList<RestOperation>(operations.getRecordedRequests().values());
+            for (RestOperation operation : chunk) {
+                operations.addLocation(operation.getBatchId(), BASE_URI + "/node/" + (100 + operation.getBatchId()));
+            }
+            chunks.add(chunk);
+        }
+    };
+
+    @Before
+    public void init() {
+        chunks.clear();
+    }
+
+    @Test
+    public void testUnboundedOperationsAreNotFlushed() throws Exception {
+        final RestOperations operations = new RestOperations(0, 0, flusher);
+        for (int i = 0; i < 100; i++) {
+            operations.record(Methods.POST, "node", map("name", "node" + i), BASE_URI);
+        }
+        assertEquals(0, operations.getFlushes());
+        assertEquals(100, operations.getRecordedRequests().size());
+        operations.flush();
+        assertEquals(1, chunks.size());
+        assertEquals(100, chunks.get(0).size());
+        assertTrue(operations.isEmpty());
+    }
+
+    @Test
+    public void testFlushByOperationCount() throws Exception {
+        final RestOperations operations = new RestOperations(10, 0, flusher);
+        for (int i = 0; i < 25; i++) {
+            operations.record(Methods.POST, "node", map("name", "node" + i), BASE_URI);
+        }
+        assertEquals(2, operations.getFlushes());
+        assertEquals(5, operations.getRecordedRequests().size());
+        operations.flush();
+        assertEquals(3, chunks.size());
+        assertEquals(10, chunks.get(1).size());
+        assertEquals(11, chunks.get(1).get(0).getBatchId());
+        assertEquals(25, chunks.get(2).get(4).getBatchId());
+    }
+
+    @Test
+    public void testFlushByEstimatedBytes() throws Exception {
+        final RestOperations operations = new RestOperations(0, 1000, flusher);
+        for (int i = 0; i < 100; i++) {
+            operations.record(Methods.POST, "node", map("name", "node" + i), BASE_URI);
+            assertTrue(operations.getEstimatedBytes() <= 1000);
+        }
+        operations.flush();
+        assertTrue(chunks.size() > 5);
+        int recorded = 0;
+        for (List<RestOperation> chunk : chunks) {
+            recorded += chunk.size();
+        }
+        assertEquals(100, recorded);
+    }
+
+    @Test
+    public void testPlaceholdersOfFlushedChunksAreResolved() throws Exception {
+        final RestOperations operations = new RestOperations(2, 0, flusher);
+        operations.record(Methods.POST, "node", null, BASE_URI);
+        operations.record(Methods.POST, "node", null, BASE_URI);
+        final RestOperation relationship = operations.getOperation(operations.record(Methods.POST, "relationships", map("to", "{2}", "data", map("since", "{3}")), "{1}").getBatchId());
+        assertEquals(BASE_URI + "/node/101", relationship.getBaseUri());
+        final Map<?, ?> data = (Map<?, ?>) relationship.getData();
+        assertEquals(BASE_URI + "/node/102", data.get("to"));
+        assertEquals("not recorded yet", "{3}", ((Map<?, ?>) data.get("data")).get("since"));
+
+        final RestOperation property = operations.getOperation(operations.record(Methods.PUT, "{3}/properties/name", "{no placeholder}", BASE_URI).getBatchId());
+        assertEquals("same chunk", "{3}/properties/name", property.getUri());
+        final RestOperation index = operations.getOperation(operations.record(Methods.POST, "index/node/test", map("uri", "{3}", "key", "name"), BASE_URI).getBatchId());
+        assertEquals(BASE_URI + "/node/103", ((Map<?, ?>) index.getData()).get("uri"));
+        assertEquals("{no placeholder}", chunks.get(1).get(1).getData());
+    }
+
+    @Test
+    public void testEstimateSize() throws Exception {
+        assertEquals("\"name\"".length(), RestOperations.estimateSize("name"));
+        assertEquals("{\"name\":\"node\",\"age\":42}".length(), RestOperations.estimateSize(map("name", "node", "age", 42)));
+        assertEquals("[1,2,3]".length(), RestOperations.estimateSize(new int[]{1, 2, 3}));
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.converter;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.util.TreeJsonCodec;
+
+import static org.junit.Assert.*;
+import static org.neo4j.rest.graphdb.util.MemoryUsage.allocatedBytes;
+
+public class LazyPropertyMapBenchmark {
+
+    private static final int NODES = 10000;
+    private static final int ROUNDS = 10;
+
+    private RestEntityDecoder decoder;
+
+    @Before
+    public void init() {
+        decoder = new RestEntityDecoder(new RestAPIFacade("http://localhost:7470").getDirect());
+    }
+
+    private static String nodes(int count, boolean cypher) {
+        final StringBuilder json = new StringBuilder(cypher ? "{\"columns\":[\"n\"],\"data\":[" : "[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) json.append(",");
+            json.append(cypher ? "[" + LazyPropertyMapTest.node(i) + "]" : LazyPropertyMapTest.node(i));
+        }
+        return json.append(cypher ? "]}" : "]").toString();
+    }
+
+    @Test
+    public void benchmarkReadingOnePropertyOfLargeResults() throws Exception {
+        for (boolean cypher : new boolean[]{true, false}) {
+            final String json = nodes(NODES, cypher);
+            for (int i = 0; i < 3; i++) { // warmup
+                readNames(eager(json));
+                readNames(decoder.decode(json));
+            }
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                assertEquals(NODES, readNames(eager(json)));
+            }
+            final long eagerTime = System.nanoTime() - start;
+            final long eagerAllocated = allocatedBytes() - allocated;
+
+            allocated = allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                assertEquals(NODES, readNames(decoder.decode(json)));
+            }
+            final long lazyTime = System.nanoTime() - start;
+            final long lazyAllocated = allocatedBytes() - allocated;
+
+            System.out.printf("%s of %d nodes with %d properties, reading one: eager %d ms, %d KB allocated; lazy %d ms, %d KB allocated%n",
+                    cypher ? "cypher result" : "index hits", NODES, LazyPropertyMapTest.PROPERTIES, eagerTime / ROUNDS / 1000000, eagerAllocated / ROUNDS / 1024,
+                    lazyTime / ROUNDS / 1000000, lazyAllocated / ROUNDS / 1024);
+        }
+    }
+
+    private Object eager(String json) {
+        return decoder.convert(new TreeJsonCodec().decode(json));
+    }
+
+    private int readNames(Object result) {
+        final List<?> rows = (List<?>) (result instanceof Map ? ((Map<?, ?>) result).get("data") : result);
+        int count = 0;
+        for (Object row : rows) {
+            final RestNode node = (RestNode) (row instanceof List ? ((List<?>) row).get(0) : row);
+            if (node.getProperty("name") != null) count++;
+        }
+        return count;
+    }
+}
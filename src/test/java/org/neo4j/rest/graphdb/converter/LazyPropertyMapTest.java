@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.converter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.util.JsonHelper;
+
+import static org.junit.Assert.*;
+
+public class LazyPropertyMapTest {
+
+    private static final String URI = "http://localhost:7470/db/data";
+    static final int PROPERTIES = 30;
+
+    private RestEntityDecoder decoder;
+
+    @Before
+    public void init() {
+        RestAPI restApi = new RestAPIFacade("http://localhost:7470").getDirect();
+        decoder = new RestEntityDecoder(restApi);
+    }
+
+    private static LazyPropertyMap lazy(String json) throws Exception {
+        return new LazyPropertyMap(json.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testReadsSinglePropertyWithoutMaterializing() throws Exception {
+        final LazyPropertyMap properties = lazy("{\"name\":\"foo\",\"nested\":{\"a\":[1,2]},\"age\":42,\"tags\":[\"x\",\"y\"]}");
+        assertEquals(42, properties.get("age"));
+        assertArrayEquals(new String[]{"x", "y"}, (String[]) properties.get("tags"));
+        assertNull(properties.get("missing"));
+        assertEquals(new HashSet<String>(Arrays.asList("name", "nested", "age", "tags")), properties.keySet());
+        assertTrue(properties.containsKey("name"));
+        assertEquals(4, properties.size());
+        assertFalse(properties.isMaterialized());
+    }
+
+    @Test
+    public void testReplacingAPropertyKeepsItLazy() throws Exception {
+        final LazyPropertyMap properties = lazy("{\"scores\":[1,2,3],\"name\":\"foo\"}");
+        assertArrayEquals(new int[]{1, 2, 3}, (int[]) properties.put("scores", new int[]{4, 5}));
+        assertFalse(properties.isMaterialized());
+        assertArrayEquals(new int[]{4, 5}, (int[]) properties.get("scores"));
+        assertArrayEquals(new int[]{4, 5}, (int[]) properties.values().iterator().next());
+        assertTrue(properties.isMaterialized());
+    }
+
+    @Test
+    public void testMaterializesOnIterationAndNewKeys() throws Exception {
+        final LazyPropertyMap properties = lazy("{\"name\":\"foo\",\"age\":42}");
+        properties.put("since", 2010);
+        assertTrue(properties.isMaterialized());
+        assertEquals(JsonHelper.jsonToMap("{\"name\":\"foo\",\"age\":42,\"since\":2010}"), properties);
+        assertEquals(properties, JsonHelper.jsonToMap("{\"name\":\"foo\",\"age\":42,\"since\":2010}"));
+    }
+
+    @Test
+    public void testDecodedNodeKeepsPropertiesLazy() throws Exception {
+        final RestNode node = (RestNode) decoder.decode(node(1));
+        assertEquals("node-1", node.getProperty("name"));
+        assertEquals(PROPERTIES, IteratorUtil.count(node.getPropertyKeys()));
+        assertArrayEquals(new int[]{1, 2, 3}, (int[]) node.getProperty("scores"));
+    }
+
+    static String node(int id) {
+        final String self = URI + "/node/" + id;
+        final StringBuilder data = new StringBuilder("{\"name\":\"node-" + id + "\",\"scores\":[1,2,3]");
+        for (int i = 2; i < PROPERTIES; i++) {
+            data.append(",\"property-").append(i).append("\":").append(i % 2 == 0 ? "\"value " + i + " of node " + id + "\"" : String.valueOf(id * i));
+        }
+        data.append("}");
+        return "{\"outgoing_relationships\":\"" + self + "/relationships/out\",\"data\":" + data + ","
+                + "\"traverse\":\"" + self + "/traverse/{returnType}\",\"self\":\"" + self + "\","
+                + "\"property\":\"" + self + "/properties/{key}\",\"properties\":\"" + self + "/properties\",\"extensions\":{}}";
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.converter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Path;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.entity.RestRelationship;
+import org.neo4j.rest.graphdb.traversal.RestPathParser;
+import org.neo4j.rest.graphdb.util.JsonHelper;
+
+import static org.junit.Assert.*;
+
+public class RestEntityDecoderTest {
+
+    private static final String URI = "http://localhost:7470/db/data";
+
+    private RestEntityDecoder decoder;
+
+    @Before
+    public void init() {
+        RestAPI restApi = new RestAPIFacade("http://localhost:7470").getDirect();
+        decoder = new RestEntityDecoder(restApi);
+    }
+
+    private static String node(int id, String name) {
+        final String self = URI + "/node/" + id;
+        return "{\"outgoing_relationships\":\"" + self + "/relationships/out\",\"data\":{\"name\":\"" + name + "\",\"scores\":[1,2,3]},"
+                + "\"traverse\":\"" + self + "/traverse/{returnType}\",\"all_typed_relationships\":\"" + self + "/relationships/all/{-list|&|types}\","
+                + "\"property\":\"" + self + "/properties/{key}\",\"self\":\"" + self + "\",\"properties\":\"" + self + "/properties\","
+                + "\"paged_traverse\":\"" + self + "/paged/traverse/{returnType}{?pageSize,leaseTime}\",\"extensions\":{},"
+                + "\"all_relationships\":\"" + self + "/relationships/all\"}";
+    }
+
+    private static String relationship(int id, int start, int end) {
+        final String self = URI + "/relationship/" + id;
+        return "{\"start\":\"" + URI + "/node/" + start + "\",\"data\":{\"since\":2010},\"self\":\"" + self + "\","
+                + "\"property\":\"" + self + "/properties/{key}\",\"properties\":\"" + self + "/properties\",\"type\":\"KNOWS\","
+                + "\"extensions\":{},\"end\":\"" + URI + "/node/" + end + "\"}";
+    }
+
+    @Test
+    public void testDecodeNode() throws Exception {
+        final RestNode node = (RestNode) decoder.decode(node(1, "foo"));
+        assertEquals(1, node.getId());
+        assertEquals(URI + "/node/1", node.getUri());
+        assertEquals("foo", node.getProperty("name"));
+        assertArrayEquals(new int[]{1, 2, 3}, (int[]) node.getProperty("scores"));
+    }
+
+    @Test
+    public void testDecodeRelationships() throws Exception {
+        final List<?> relationships = (List<?>) decoder.decode("[" + relationship(1, 0, 1) + "," + relationship(2, 1, 2) + "]");
+        assertEquals(2, relationships.size());
+        final RestRelationship relationship = (RestRelationship) relationships.get(1);
+        assertEquals(2, relationship.getId());
+        assertEquals("KNOWS", relationship.getType().name());
+        assertEquals(1, relationship.getStartNode().getId());
+        assertEquals(2, relationship.getEndNode().getId());
+        assertEquals(2010, relationship.getProperty("since"));
+    }
+
+    @Test
+    public void testDecodeFullPath() throws Exception {
+        final String json = "{\"start\":" + node(0, "a") + ",\"nodes\":[" + node(0, "a") + "," + node(1, "b") + "],"
+                + "\"length\":1,\"relationships\":[" + relationship(5, 0, 1) + "],\"end\":" + node(1, "b") + "}";
+        final Map<?, ?> decoded = (Map<?, ?>) decoder.decode(json);
+        assertTrue(decoded.get("start") instanceof RestNode);
+        final Path path = RestPathParser.parse(decoded, null);
+        assertEquals(1, path.length());
+        assertEquals(5, path.lastRelationship().getId());
+        assertEquals("b", path.endNode().getProperty("name"));
+    }
+
+    @Test
+    public void testOtherValuesAreDecodedLikeJackson() throws Exception {
+        final String json = "{\"columns\":[\"n\"],\"data\":[[1,10000000000,1.5,true,null,\"x\"]]}";
+        assertEquals(JsonHelper.readJson(json), decoder.decode(json));
+    }
+
+    @Test
+    public void testPlainMapsKeepAllKeys() throws Exception {
+        final String json = "{\"properties\":\"x\",\"extensions\":{\"a\":1},\"type\":\"KNOWS\",\"data\":{\"scores\":[1,2]},"
+                + "\"self\":\"" + URI + "/ext/CypherPlugin\"}";
+        final Object decoded = decoder.decode(json);
+        assertEquals(decoder.convert(JsonHelper.readJson(json)), decoded);
+        assertEquals(Arrays.asList(1, 2), ((Map<?, ?>) ((Map<?, ?>) decoded).get("data")).get("scores"));
+        assertEquals("x", ((Map<?, ?>) decoded).get("properties"));
+    }
+
+    @Test
+    public void testConvertParsedRepresentation() throws Exception {
+        final Object parsed = JsonHelper.readJson("[" + node(3, "bar") + "]");
+        final RestNode node = (RestNode) ((List<?>) decoder.convert(parsed)).get(0);
+        assertEquals(3, node.getId());
+        assertEquals("bar", node.getProperty("name"));
+        assertEquals(Arrays.asList("name", "scores"), IteratorUtil.asCollection(node.getPropertyKeys()));
+    }
+}
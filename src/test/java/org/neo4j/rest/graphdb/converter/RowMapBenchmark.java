@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.converter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+
+import static org.junit.Assert.*;
+import static org.neo4j.rest.graphdb.util.MemoryUsage.allocatedBytes;
+
+public class RowMapBenchmark {
+
+    private static final int ROWS = 100000;
+    private static final int COLUMNS = 12;
+    private static final int ROUNDS = 10;
+
+    @Test
+    public void benchmarkExtractRowsOfWideResult() throws Exception {
+        final Map<?, ?> result = createResult();
+        final RestTableResultExtractor extractor = new RestTableResultExtractor(new RestEntityExtractor(new RestAPIFacade("http://localhost:7470").getDirect()));
+        for (int i = 0; i < 3; i++) { // warmup
+            extractHashMaps(result);
+            extractor.extract(result);
+        }
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertEquals(ROWS, extractHashMaps(result).size());
+        }
+        final long hashMapTime = System.nanoTime() - start;
+        final long hashMapAllocated = allocatedBytes() - allocated;
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            assertEquals(ROWS, extractor.extract(result).size());
+        }
+        final long rowMapTime = System.nanoTime() - start;
+        final long rowMapAllocated = allocatedBytes() - allocated;
+
+        System.out.printf("%d rows x %d columns: HashMap %d ms, %d KB allocated; RowMap %d ms, %d KB allocated%n",
+                ROWS, COLUMNS, hashMapTime / ROUNDS / 1000000, hashMapAllocated / ROUNDS / 1024,
+                rowMapTime / ROUNDS / 1000000, rowMapAllocated / ROUNDS / 1024);
+    }
+
+    private Map<?, ?> createResult() {
+        final List<String> columns = new ArrayList<String>();
+        for (int i = 0; i < COLUMNS; i++) {
+            columns.add("column" + i);
+        }
+        final List<List<Object>> data = new ArrayList<List<Object>>(ROWS);
+        for (int row = 0; row < ROWS; row++) {
+            final List<Object> values = new ArrayList<Object>(COLUMNS);
+            for (int i = 0; i < COLUMNS; i++) {
+                values.add(i % 2 == 0 ? row * i : "value" + i);
+            }
+            data.add(values);
+        }
+        return MapUtil.map("columns", columns, "data", data);
+    }
+
+    /**
+     * the extraction as it was before the rows shared their columns
+     */
+    private List<Map<String, Object>> extractHashMaps(Map<?, ?> result) {
+        final List<String> columns = (List<String>) result.get("columns");
+        final List<List<?>> rows = (List<List<?>>) result.get("data");
+        final List<Map<String, Object>> maps = new ArrayList<Map<String, Object>>(rows.size());
+        for (List<?> row : rows) {
+            final Map<String, Object> map = new HashMap<String, Object>(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                map.put(columns.get(i), row.get(i));
+            }
+            maps.add(map);
+        }
+        return maps;
+    }
+}
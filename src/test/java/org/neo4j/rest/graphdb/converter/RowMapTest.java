@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+
+import static org.junit.Assert.*;
+
+public class RowMapTest {
+
+    private static final int COLUMNS = 12;
+
+    private static RowMap row(Object... values) {
+        final List<String> names = new ArrayList<String>();
+        for (int i = 0; i < values.length; i++) {
+            names.add("c" + i);
+        }
+        return new RowMap(new RowMap.Columns(names), values);
+    }
+
+    @Test
+    public void testBehavesLikeAMap() throws Exception {
+        final RowMap row = row("a", null, 3);
+        assertEquals("a", row.get("c0"));
+        assertNull(row.get("c1"));
+        assertTrue(row.containsKey("c1"));
+        assertFalse(row.containsKey("c3"));
+        assertEquals(3, row.size());
+        assertEquals(Arrays.asList("c0", "c1", "c2"), new ArrayList<String>(row.keySet()));
+        final Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put("c0", "a");
+        expected.put("c1", null);
+        expected.put("c2", 3);
+        assertEquals(expected, row);
+        assertEquals(row, expected);
+        assertEquals(expected.hashCode(), row.hashCode());
+    }
+
+    @Test
+    public void testReplacesValuesOfExistingColumns() throws Exception {
+        final RowMap row = row("a", "b");
+        assertEquals("b", row.put("c1", "x"));
+        assertEquals("x", row.get("c1"));
+        row.entrySet().iterator().next().setValue("y");
+        assertEquals("y", row.get("c0"));
+        try {
+            row.put("c2", "z");
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWideRowsUseTheIndex() throws Exception {
+        final Object[] values = new Object[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            values[i] = i;
+        }
+        final RowMap row = row(values);
+        for (int i = 0; i < COLUMNS; i++) {
+            assertEquals(i, row.get("c" + i));
+        }
+        assertNull(row.get("c" + COLUMNS));
+    }
+
+    @Test
+    public void testExtractRowsOfTableResult() throws Exception {
+        final Map<?, ?> result = MapUtil.map("columns", Arrays.asList("name", "age"),
+                "data", Arrays.asList(Arrays.asList("foo", 42), Arrays.asList("bar", null)));
+        final RestTableResultExtractor extractor = new RestTableResultExtractor(new RestEntityExtractor(new RestAPIFacade("http://localhost:7470").getDirect()));
+        final List<Map<String, Object>> rows = extractor.extract(result);
+        final Map<String, Object> second = new HashMap<String, Object>();
+        second.put("name", "bar");
+        second.put("age", null);
+        assertEquals(Arrays.asList(MapUtil.map("name", "foo", "age", 42), second), rows);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.entity;
+
+import org.junit.Test;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.converter.RestEntityDecoder;
+import org.neo4j.rest.graphdb.util.JsonHelper;
+
+import static org.junit.Assert.*;
+import static org.neo4j.rest.graphdb.util.MemoryUsage.usedMemory;
+
+public class CompactRestEntityBenchmark {
+
+    private static final String URI = "http://localhost:7470/db/data";
+    private static final int NODES = 100000;
+
+    private static String nodeJson(int id) {
+        final String self = URI + "/node/" + id;
+        return "{\"outgoing_relationships\":\"" + self + "/relationships/out\",\"data\":{\"name\":\"node" + id + "\"},"
+                + "\"traverse\":\"" + self + "/traverse/{returnType}\",\"all_typed_relationships\":\"" + self + "/relationships/all/{-list|&|types}\","
+                + "\"property\":\"" + self + "/properties/{key}\",\"self\":\"" + self + "\",\"properties\":\"" + self + "/properties\","
+                + "\"outgoing_typed_relationships\":\"" + self + "/relationships/out/{-list|&|types}\",\"incoming_relationships\":\"" + self + "/relationships/in\","
+                + "\"extensions\":{},\"create_relationship\":\"" + self + "/relationships\",\"paged_traverse\":\"" + self + "/paged/traverse/{returnType}{?pageSize,leaseTime}\","
+                + "\"all_relationships\":\"" + self + "/relationships/all\",\"incoming_typed_relationships\":\"" + self + "/relationships/in/{-list|&|types}\"}";
+    }
+
+    @Test
+    public void benchmarkHeapPerNode() throws Exception {
+        final RestEntityDecoder decoder = new RestEntityDecoder(new RestAPIFacade(URI).getDirect());
+        Object[] retained = new Object[NODES];
+        long start = usedMemory();
+        for (int i = 0; i < NODES; i++) {
+            retained[i] = JsonHelper.readJson(nodeJson(i)); // the full representation map, as held by RestEntity before
+        }
+        final long mapBytes = (usedMemory() - start) / NODES;
+        retained = new Object[NODES];
+        start = usedMemory();
+        for (int i = 0; i < NODES; i++) {
+            retained[i] = decoder.decode(nodeJson(i));
+        }
+        final long entityBytes = (usedMemory() - start) / NODES;
+        assertEquals(NODES - 1, ((RestNode) retained[NODES - 1]).getId());
+        System.out.printf("heap per node: representation map %d bytes, compact entity %d bytes, 1M nodes %d MB -> %d MB%n",
+                mapBytes, entityBytes, mapBytes * 1000000 / (1024 * 1024), entityBytes * 1000000 / (1024 * 1024));
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.entity;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+
+import static org.junit.Assert.*;
+
+public class CompactRestEntityTest {
+
+    private static final String URI = "http://localhost:7470/db/data";
+    private static final int NODES = 100000;
+
+    private RestAPI restApi;
+
+    @Before
+    public void init() {
+        restApi = new RestAPIFacade(URI).getDirect();
+    }
+
+    @Test
+    public void testIdIsParsedOnceAndUriDerived() throws Exception {
+        final RestNode node = new RestNode(MapUtil.map("self", URI + "/node/42", "data", MapUtil.map()), restApi);
+        assertEquals(42, node.getId());
+        assertEquals(URI + "/node/42", node.getUri());
+        assertEquals(node, new RestNode(42, restApi));
+        assertEquals(node.hashCode(), new RestNode(URI + "/node/42", restApi).hashCode());
+    }
+
+    @Test
+    public void testForeignAndPlaceholderUrisAreKept() throws Exception {
+        assertEquals("http://other:7474/db/data/node/1", new RestNode("http://other:7474/db/data/node/1", restApi).getUri());
+        assertEquals(1, new RestNode("http://other:7474/db/data/node/1", restApi).getId());
+        assertEquals("{3}", new RestNode("{3}", restApi).getUri());
+    }
+
+    @Test
+    public void testRelationshipStructureIsKeptAsIds() throws Exception {
+        final Map<String, Object> data = MapUtil.map("self", URI + "/relationship/7", "data", MapUtil.map(),
+                "type", "KNOWS", "start", URI + "/node/1", "end", "http://other:7474/db/data/node/2");
+        final RestRelationship relationship = new RestRelationship(data, restApi);
+        assertEquals(7, relationship.getId());
+        assertTrue(relationship.isType(DynamicRelationshipType.withName("KNOWS")));
+        assertEquals(URI + "/node/1", ((RestNode) relationship.getStartNode()).getUri());
+        assertEquals("http://other:7474/db/data/node/2", ((RestNode) relationship.getEndNode()).getUri());
+        assertEquals(2, relationship.getOtherNode(new RestNode(1, restApi)).getId());
+    }
+
+    @Test
+    public void testNodesInHashSet() throws Exception {
+        final Set<RestNode> nodes = new HashSet<RestNode>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new RestNode(i, restApi));
+        }
+        for (int i = 0; i < NODES; i++) {
+            assertTrue(nodes.contains(new RestNode(URI + "/node/" + i, restApi)));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.extension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Answers late or sends the response body slowly, for testing timeouts.
+ */
+@Path("/slow")
+public class SlowResource {
+
+    @GET
+    @Path("/{millis}")
+    public Response get(@PathParam("millis") long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return Response.status(Status.OK).entity("\"slept\"".getBytes()).build();
+    }
+
+    @GET
+    @Path("/body/{millis}")
+    public Response body(@PathParam("millis") final long millis) {
+        return Response.status(Status.OK).entity(new StreamingOutput() {
+            public void write(OutputStream output) throws IOException, WebApplicationException {
+                output.write("[\"first\"".getBytes());
+                output.flush();
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                output.write(",\"last\"]".getBytes());
+            }
+        }).build();
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.entity.RestRelationship;
+import org.neo4j.rest.graphdb.util.JsonHelper;
+
+import static org.junit.Assert.*;
+
+public class ColumnarResultDecoderTest {
+
+    private static final String URI = "http://localhost:7470/db/data";
+
+    private ColumnarResultDecoder decoder;
+
+    @Before
+    public void init() {
+        decoder = new ColumnarResultDecoder(new RestAPIFacade(URI).getDirect());
+    }
+
+    private static String node(int id) {
+        final String self = URI + "/node/" + id;
+        return "{\"outgoing_relationships\":\"" + self + "/relationships/out\",\"data\":{\"name\":\"node" + id + "\"},"
+                + "\"self\":\"" + self + "\",\"properties\":\"" + self + "/properties\",\"extensions\":{}}";
+    }
+
+    private static String relationship(int id) {
+        return "{\"start\":\"" + URI + "/node/1\",\"data\":{},\"self\":\"" + URI + "/relationship/" + id + "\",\"type\":\"KNOWS\",\"end\":\"" + URI + "/node/2\"}";
+    }
+
+    @Test
+    public void testDecodesTypedColumns() throws Exception {
+        final String json = "{\"columns\":[\"n\",\"r\",\"count\",\"score\",\"active\",\"name\"],\"data\":["
+                + "[" + node(1) + "," + relationship(7) + ",3,1.5,true,\"a\"],"
+                + "[" + node(2) + "," + relationship(8) + ",null,2.5,false,\"b\"],"
+                + "[" + node(3) + ",null,5,null,null,\"a\"]]}";
+        final ColumnarResult result = decoder.decode(json);
+        assertEquals(3, result.getRowCount());
+        assertEquals(Arrays.asList("n", "r", "count", "score", "active", "name"), result.getColumnNames());
+
+        final ColumnarResult.LongColumn nodes = (ColumnarResult.LongColumn) result.getColumn("n");
+        assertEquals(ColumnarResult.Type.NODE, nodes.getType());
+        assertEquals(3, nodes.getLong(2));
+        final ColumnarResult.LongColumn relationships = (ColumnarResult.LongColumn) result.getColumn("r");
+        assertEquals(ColumnarResult.Type.RELATIONSHIP, relationships.getType());
+        assertEquals(8, relationships.getLong(1));
+        assertTrue(relationships.isNull(2));
+
+        final ColumnarResult.LongColumn count = (ColumnarResult.LongColumn) result.getColumn("count");
+        assertEquals(3, count.getLong(0));
+        assertTrue(count.isNull(1));
+        assertNull(count.get(1));
+        assertEquals(5L, count.get(2));
+
+        final ColumnarResult.DoubleColumn score = (ColumnarResult.DoubleColumn) result.getColumn("score");
+        assertEquals(2.5, score.getDouble(1), 0);
+        assertTrue(score.isNull(2));
+
+        final ColumnarResult.BooleanColumn active = (ColumnarResult.BooleanColumn) result.getColumn("active");
+        assertFalse(active.getBoolean(1));
+        assertTrue(active.isNull(2));
+
+        final ColumnarResult.StringColumn name = (ColumnarResult.StringColumn) result.getColumn("name");
+        assertArrayEquals(new String[]{"a", "b"}, name.getDictionary());
+        assertEquals(name.getCode(0), name.getCode(2));
+        assertSame(name.getString(0), name.getString(2));
+    }
+
+    @Test
+    public void testWidensAndFallsBackToObjects() throws Exception {
+        final ColumnarResult result = decoder.decode("{\"columns\":[\"x\",\"y\",\"z\"],\"data\":[[null,1,[1,2]],[1,\"one\",{\"a\":1}],[2.5,2,null]]}");
+        final ColumnarResult.DoubleColumn x = (ColumnarResult.DoubleColumn) result.getColumn("x");
+        assertTrue(x.isNull(0));
+        assertEquals(1.0, x.getDouble(1), 0);
+        assertEquals(2.5, x.getDouble(2), 0);
+        final ColumnarResult.Column y = result.getColumn("y");
+        assertEquals(ColumnarResult.Type.OBJECT, y.getType());
+        assertEquals(1L, y.get(0));
+        assertEquals("one", y.get(1));
+        assertEquals(2, y.get(2));
+        final ColumnarResult.Column z = result.getColumn("z");
+        assertEquals(Arrays.asList(1, 2), z.get(0));
+        assertEquals(1, ((Map<?, ?>) z.get(1)).get("a"));
+        assertTrue(z.isNull(2));
+    }
+
+    @Test
+    public void testMixedEntitiesBecomeObjects() throws Exception {
+        final ColumnarResult result = decoder.decode("{\"columns\":[\"e\"],\"data\":[[" + node(1) + "],[" + relationship(4) + "]]}");
+        final ColumnarResult.Column column = result.getColumn("e");
+        assertEquals(ColumnarResult.Type.OBJECT, column.getType());
+        assertEquals(1, ((RestNode) column.get(0)).getId());
+        assertEquals(URI + "/relationship/4", ((RestRelationship) column.get(1)).getUri());
+    }
+
+    @Test
+    public void testMapAfterNodeBecomesObject() throws Exception {
+        final ColumnarResult result = decoder.decode("{\"columns\":[\"e\"],\"data\":[[" + node(1) + "],[{\"name\":\"map\",\"size\":2}],[" + node(3) + "]]}");
+        final ColumnarResult.Column column = result.getColumn("e");
+        assertEquals(ColumnarResult.Type.OBJECT, column.getType());
+        assertEquals(1, ((RestNode) column.get(0)).getId());
+        assertEquals("map", ((Map<?, ?>) column.get(1)).get("name"));
+        assertEquals(2, ((Map<?, ?>) column.get(1)).get("size"));
+        assertEquals(3, ((RestNode) column.get(2)).getId());
+    }
+
+    @Test
+    public void testPathAfterRelationshipBecomesObject() throws Exception {
+        final String path = "{\"start\":\"" + URI + "/node/1\",\"nodes\":[\"" + URI + "/node/1\",\"" + URI + "/node/2\"],\"length\":1,"
+                + "\"relationships\":[\"" + URI + "/relationship/7\"],\"end\":\"" + URI + "/node/2\"}";
+        final ColumnarResult result = decoder.decode("{\"columns\":[\"p\"],\"data\":[[" + relationship(7) + "],[" + path + "],[" + relationship(8) + "]]}");
+        final ColumnarResult.Column column = result.getColumn("p");
+        assertEquals(ColumnarResult.Type.OBJECT, column.getType());
+        assertEquals(7, ((RestRelationship) column.get(0)).getId());
+        final Map<?, ?> decodedPath = (Map<?, ?>) column.get(1);
+        assertEquals(Arrays.asList("start", "nodes", "length", "relationships", "end"), new ArrayList<Object>(decodedPath.keySet()));
+        assertEquals(URI + "/node/1", decodedPath.get("start"));
+        assertEquals(1, decodedPath.get("length"));
+        assertEquals(8, ((RestRelationship) column.get(2)).getId());
+    }
+
+    @Test
+    public void testManyRows() throws Exception {
+        final StringBuilder json = new StringBuilder("{\"columns\":[\"id\",\"group\"],\"data\":[");
+        final int rows = 5000;
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) json.append(",");
+            json.append("[").append(i).append(",\"group").append(i % 10).append("\"]");
+        }
+        final ColumnarResult result = decoder.decode(json.append("]}").toString());
+        assertEquals(rows, result.getRowCount());
+        final ColumnarResult.LongColumn ids = (ColumnarResult.LongColumn) result.getColumn("id");
+        final ColumnarResult.StringColumn groups = (ColumnarResult.StringColumn) result.getColumn("group");
+        assertEquals(10, groups.getDictionary().length);
+        for (int i = 0; i < rows; i++) {
+            assertEquals(i, ids.getLong(i));
+            assertFalse(ids.isNull(i));
+            assertEquals("group" + (i % 10), groups.getString(i));
+        }
+    }
+
+    @Test
+    public void testConvertsParsedResult() throws Exception {
+        final String json = "{\"columns\":[\"n\",\"count\"],\"data\":[[" + node(1) + ",3],[" + node(2) + ",4]]}";
+        final ColumnarResult result = decoder.convert(JsonHelper.readJson(json));
+        assertEquals(2, ((ColumnarResult.LongColumn) result.getColumn("n")).getLong(1));
+        assertEquals(ColumnarResult.Type.NODE, result.getColumn("n").getType());
+        assertEquals(4, ((ColumnarResult.LongColumn) result.getColumn("count")).getLong(1));
+    }
+}
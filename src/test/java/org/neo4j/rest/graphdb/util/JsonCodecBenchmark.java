@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.neo4j.rest.graphdb.util.JsonCodecTest.CODECS;
+import static org.neo4j.rest.graphdb.util.JsonCodecTest.cypherResult;
+import static org.neo4j.rest.graphdb.util.JsonCodecTest.decodeProperty;
+
+public class JsonCodecBenchmark {
+
+    @Test
+    public void benchmarkCodecs() throws Exception {
+        final Map<String, Object> value = cypherResult(10000);
+        final byte[] json = JsonHelper.createJsonFrom(value).getBytes("UTF-8");
+        for (int round = 0; round < 3; round++) {
+            for (JsonCodec codec : CODECS) {
+                final int iterations = 20;
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    codec.decode(new ByteArrayInputStream(json));
+                }
+                final long decode = (System.nanoTime() - start) / iterations / 1000;
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    codec.encode(value, new ByteArrayOutputStream(json.length));
+                }
+                final long encode = (System.nanoTime() - start) / iterations / 1000;
+                if (round == 2) {
+                    System.out.printf("%s: decode %d us, encode %d us for %d bytes%n", codec.getClass().getSimpleName(), decode, encode, json.length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkDecodeVectorProperty() throws Exception {
+        final int size = 4096;
+        final double[] vector = new double[size];
+        for (int i = 0; i < size; i++) {
+            vector[i] = i * 0.25;
+        }
+        final String json = JsonCodecs.STREAMING.encode(vector);
+        final ArrayConverter converter = new ArrayConverter();
+        final int iterations = 500;
+        for (int round = 0; round < 2; round++) { // the first round is the warmup
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                assertEquals(size, ((double[]) converter.toArray((List<?>) JsonCodecs.TREE.decode(json))).length);
+            }
+            final long boxed = (System.nanoTime() - start) / iterations / 1000;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                assertEquals(size, ((double[]) decodeProperty(json)).length);
+            }
+            final long primitive = (System.nanoTime() - start) / iterations / 1000;
+            if (round == 1) {
+                System.out.printf("vector property of %d doubles: list and conversion %d us, primitive %d us%n", size, boxed, primitive);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.junit.Test;
+import org.neo4j.helpers.collection.MapUtil;
+
+import static org.junit.Assert.*;
+
+public class JsonCodecTest {
+
+    static final JsonCodec[] CODECS = {JsonCodecs.TREE, JsonCodecs.STREAMING, JsonCodecs.RECYCLING};
+
+    static Map<String, Object> cypherResult(int rows) {
+        final List<Object> data = new ArrayList<Object>(rows);
+        for (int i = 0; i < rows; i++) {
+            data.add(Arrays.<Object>asList(i, "name " + i, i * 1.5, i % 2 == 0, null, 10000000000L + i,
+                    MapUtil.map("self", "http://localhost:7474/db/data/node/" + i, "data", MapUtil.map("name", "node" + i))));
+        }
+        return MapUtil.map("columns", Arrays.asList("id", "name", "score", "even", "missing", "big", "n"), "data", data);
+    }
+
+    @Test
+    public void testCodecsAgreeWithJsonHelper() throws Exception {
+        final Map<String, Object> value = cypherResult(10);
+        final String json = JsonHelper.createJsonFrom(value);
+        for (JsonCodec codec : CODECS) {
+            final String name = codec.getClass().getSimpleName();
+            assertEquals(name, JsonHelper.readJson(json), codec.decode(json));
+            assertEquals(name, JsonHelper.readJson(json), codec.decode(new ByteArrayInputStream(json.getBytes("UTF-8"))));
+            assertEquals(name, JsonHelper.readJson(json), JsonHelper.readJson(codec.encode(value)));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.encode(value, out);
+            assertEquals(name, codec.encode(value), out.toString("UTF-8"));
+        }
+    }
+
+    @Test
+    public void testEncodeArraysAndScalars() throws Exception {
+        for (JsonCodec codec : CODECS) {
+            assertEquals("[1,2,3]", codec.encode(new long[]{1, 2, 3}));
+            assertEquals("[true,false]", codec.encode(new boolean[]{true, false}));
+            assertEquals("[\"a\",\"b\"]", codec.encode(new String[]{"a", "b"}));
+            assertEquals("\"value\"", codec.encode("value"));
+            assertEquals("{\"key\":[1.5]}", codec.encode(MapUtil.map("key", new double[]{1.5})));
+        }
+    }
+
+    @Test
+    public void testLargeStreamGrowsRecycledBuffer() throws Exception {
+        final String json = JsonHelper.createJsonFrom(cypherResult(5000));
+        assertEquals(JsonHelper.readJson(json), JsonCodecs.RECYCLING.decode(new ByteArrayInputStream(json.getBytes("UTF-8"))));
+        assertEquals(JsonHelper.readJson(json), JsonCodecs.RECYCLING.decode(new ByteArrayInputStream(json.getBytes("UTF-8"))));
+    }
+
+    static Object decodeProperty(String json) throws Exception {
+        final JsonParser parser = new JsonFactory().createJsonParser(json);
+        parser.nextToken();
+        return StreamingJsonCodec.decodePropertyValue(parser);
+    }
+
+    @Test
+    public void testDecodePropertyArrays() throws Exception {
+        assertArrayEquals(new int[]{1, 2, 3}, (int[]) decodeProperty("[1,2,3]"));
+        assertArrayEquals(new long[]{1, 10000000000L}, (long[]) decodeProperty("[1,10000000000]"));
+        assertArrayEquals(new double[]{1, 2.5}, (double[]) decodeProperty("[1,2.5]"), 0);
+        assertArrayEquals(new double[]{2.5, 1}, (double[]) decodeProperty("[2.5,1]"), 0);
+        assertTrue(Arrays.equals(new boolean[]{true, false}, (boolean[]) decodeProperty("[true,false]")));
+        assertArrayEquals(new String[]{"a", null}, (String[]) decodeProperty("[\"a\",null]"));
+        assertArrayEquals(new String[0], (String[]) decodeProperty("[]"));
+        assertEquals(Arrays.asList(1, "a", Arrays.asList(2)), decodeProperty("[1,\"a\",[2]]"));
+        assertEquals("value", decodeProperty("\"value\""));
+    }
+
+    @Test
+    public void testDecodeVectorProperty() throws Exception {
+        final double[] vector = new double[4096];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = i * 0.25;
+        }
+        final String json = JsonCodecs.STREAMING.encode(vector);
+        assertArrayEquals(vector, (double[]) new ArrayConverter().toArray((List<?>) JsonCodecs.TREE.decode(json)), 0);
+        assertArrayEquals(vector, (double[]) decodeProperty(json), 0);
+    }
+}
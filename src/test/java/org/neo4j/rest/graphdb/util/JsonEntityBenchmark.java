@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.neo4j.helpers.collection.MapUtil;
+
+import static org.neo4j.rest.graphdb.util.MemoryUsage.allocatedBytes;
+
+public class JsonEntityBenchmark {
+
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void benchmarkBatchPayload() throws Exception {
+        final List<Map<String, Object>> batch = createBatch(1000);
+        final NullOutputStream out = new NullOutputStream();
+        for (int i = 0; i < 20; i++) { // warmup
+            out.write(JsonHelper.createJsonFrom(batch).getBytes("UTF-8"));
+            new JsonEntity(batch).write(out);
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        long bytes = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            final byte[] payload = JsonHelper.createJsonFrom(batch).getBytes("UTF-8");
+            bytes += payload.length;
+            out.write(payload);
+        }
+        final long stringAllocated = allocatedBytes() - allocated;
+        final long stringTime = System.nanoTime() - start;
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        final long written = out.count;
+        for (int i = 0; i < ROUNDS; i++) {
+            new JsonEntity(batch).write(out);
+        }
+        final long streamAllocated = allocatedBytes() - allocated;
+        final long streamTime = System.nanoTime() - start;
+        final long streamBytes = out.count - written;
+
+        System.out.printf("batch of 1000 operations x %d: pretty String %d KB/request, %d KB allocated/request, %d ms; compact stream %d KB/request, %d KB allocated/request, %d ms%n",
+                ROUNDS, bytes / ROUNDS / 1024, stringAllocated / ROUNDS / 1024, stringTime / 1000000,
+                streamBytes / ROUNDS / 1024, streamAllocated / ROUNDS / 1024, streamTime / 1000000);
+    }
+
+    private List<Map<String, Object>> createBatch(int size) {
+        final List<Map<String, Object>> batch = new ArrayList<Map<String, Object>>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(MapUtil.map("method", "POST", "to", "/node", "id", i, "body", MapUtil.map("name", "node-" + i, "index", i)));
+        }
+        return batch;
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        long count;
+
+        public void write(int b) {
+            count++;
+        }
+
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.junit.Test;
+import org.neo4j.helpers.collection.MapUtil;
+
+import static org.junit.Assert.*;
+
+public class JsonEntityTest {
+
+    @Test
+    public void testWritesCompactJson() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JsonEntity(MapUtil.map("name", "Ä value", "numbers", new int[]{1, 2})).write(out);
+        final String json = out.toString("UTF-8");
+        assertFalse(json, json.contains(" :") || json.contains("\n"));
+        assertEquals(MapUtil.map("name", "Ä value", "numbers", asList(1, 2)), JsonHelper.jsonToMap(json));
+    }
+
+    @Test
+    public void testDoesNotCloseTheOutputStream() throws Exception {
+        final boolean[] closed = new boolean[1];
+        final OutputStream out = new ByteArrayOutputStream() {
+            public void close() throws IOException {
+                closed[0] = true;
+            }
+        };
+        new JsonEntity("value").write(out);
+        assertFalse(closed[0]);
+        assertEquals("\"value\"", out.toString());
+    }
+
+    private static List<Integer> asList(Integer... values) {
+        return java.util.Arrays.asList(values);
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.neo4j.rest.graphdb.util.MemoryUsage.allocatedBytes;
+
+public class LongLongHashMapBenchmark {
+
+    private static final int KEYS = 1000000;
+
+    @Test
+    public void benchmarkAllocationComparedToHashMap() throws Exception {
+        long before = allocatedBytes();
+        final LongLongHashMap map = new LongLongHashMap();
+        for (long key = 0; key < KEYS; key++) {
+            map.put(key * 7, key);
+        }
+        final long primitive = allocatedBytes() - before;
+        before = allocatedBytes();
+        final Map<Long, Long> boxed = new HashMap<Long, Long>();
+        for (long key = 0; key < KEYS; key++) {
+            boxed.put(key * 7, key);
+        }
+        final long hashMap = allocatedBytes() - before;
+        assertEquals(KEYS, map.size());
+        assertEquals(KEYS, boxed.size());
+        System.out.printf("%d keys: LongLongHashMap %d bytes, HashMap<Long,Long> %d bytes%n", KEYS, primitive, hashMap);
+    }
+}
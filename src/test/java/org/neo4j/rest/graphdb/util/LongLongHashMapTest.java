@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LongLongHashMapTest {
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        final LongLongHashMap map = new LongLongHashMap();
+        assertEquals(LongLongHashMap.MISSING, map.get(0));
+        assertEquals(LongLongHashMap.MISSING, map.put(0, 0));
+        assertEquals(LongLongHashMap.MISSING, map.put(-7, 42));
+        assertEquals(LongLongHashMap.MISSING, map.put(Long.MAX_VALUE, 1));
+        assertEquals(0, map.get(0));
+        assertEquals(42, map.get(-7));
+        assertEquals(1, map.get(Long.MAX_VALUE));
+        assertEquals(42, map.put(-7, 43));
+        assertEquals(43, map.get(-7));
+        assertEquals(3, map.size());
+        assertFalse(map.containsKey(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeValuesAreRejected() throws Exception {
+        new LongLongHashMap().put(1, -1);
+    }
+
+    @Test
+    public void testGrows() throws Exception {
+        final LongLongHashMap map = new LongLongHashMap(2);
+        for (long key = 0; key < 100000; key++) {
+            map.put(key * 1024, key);
+        }
+        assertEquals(100000, map.size());
+        for (long key = 0; key < 100000; key++) {
+            assertEquals(key, map.get(key * 1024));
+        }
+        assertEquals(LongLongHashMap.MISSING, map.get(1));
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        final LongLongHashMap map = new LongLongHashMap();
+        for (long key = 0; key < 1000; key++) {
+            map.put(key * 3, key + 10);
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        map.writeTo(new DataOutputStream(bytes));
+        final LongLongHashMap read = LongLongHashMap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(1000, read.size());
+        for (long key = 0; key < 1000; key++) {
+            assertEquals(key + 10, read.get(key * 3));
+        }
+    }
+}
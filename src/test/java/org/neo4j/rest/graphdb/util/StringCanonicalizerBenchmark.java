@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.neo4j.rest.graphdb.util.MemoryUsage.usedMemory;
+
+public class StringCanonicalizerBenchmark {
+
+    private static final String OTHER = "http://other:7474/db/data";
+    private static final String[] TYPES = {"KNOWS", "LIKES", "WORKS_AT", "LIVES_IN", "FOLLOWS"};
+    private static final int RELATIONSHIPS = 100000;
+
+    @Test
+    public void benchmarkHeapOfTypesAndUriPrefixes() throws Exception {
+        final long copiedBytes = retainedBytes(new StringCanonicalizer(0));
+        final long canonicalBytes = retainedBytes(new StringCanonicalizer(4096));
+        System.out.printf("types and node uri prefixes of %d relationships: copied %d KB, canonical %d KB%n",
+                RELATIONSHIPS, copiedBytes / 1024, canonicalBytes / 1024);
+    }
+
+    /**
+     * @return heap retained by the type and the start and end node uri prefixes a decoded relationship keeps
+     */
+    private static long retainedBytes(StringCanonicalizer canonicalizer) throws InterruptedException {
+        final String prefix = OTHER + "/node/";
+        final Object[] retained = new Object[RELATIONSHIPS * 3];
+        final long start = usedMemory();
+        for (int i = 0; i < RELATIONSHIPS; i++) {
+            final char[] type = TYPES[i % TYPES.length].toCharArray();
+            retained[i * 3] = canonicalizer.canonicalize(type, 0, type.length);
+            retained[i * 3 + 1] = canonicalizer.canonicalize(prefix + i, 0, prefix.length());
+            retained[i * 3 + 2] = canonicalizer.canonicalize(prefix + (i + 1), 0, prefix.length());
+        }
+        final long bytes = usedMemory() - start;
+        assertEquals(prefix, retained[retained.length - 1]);
+        return bytes;
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2002-2013 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.rest.graphdb.util;
+
+import org.junit.Test;
+import org.neo4j.rest.graphdb.RestAPI;
+import org.neo4j.rest.graphdb.RestAPIFacade;
+import org.neo4j.rest.graphdb.converter.RestEntityDecoder;
+import org.neo4j.rest.graphdb.entity.RestNode;
+import org.neo4j.rest.graphdb.entity.RestRelationship;
+
+import static org.junit.Assert.*;
+
+public class StringCanonicalizerTest {
+
+    private static final String URI = "http://localhost:7470/db/data";
+    private static final String OTHER = "http://other:7474/db/data";
+    private static final String[] TYPES = {"KNOWS", "LIKES", "WORKS_AT", "LIVES_IN", "FOLLOWS"};
+
+    @Test
+    public void testReturnsSharedInstances() throws Exception {
+        final StringCanonicalizer canonicalizer = new StringCanonicalizer(16);
+        final String knows = canonicalizer.canonicalize(new String("KNOWS"));
+        assertSame(knows, canonicalizer.canonicalize(new String("KNOWS")));
+        assertSame(knows, canonicalizer.canonicalize("xKNOWSx".toCharArray(), 1, 5));
+        assertSame(knows, canonicalizer.canonicalize("is KNOWS", 3, 8));
+        assertEquals("KNOW", canonicalizer.canonicalize("KNOWS", 0, 4));
+        assertNull(canonicalizer.canonicalize(null));
+    }
+
+    @Test
+    public void testTableIsBounded() throws Exception {
+        final StringCanonicalizer canonicalizer = new StringCanonicalizer(4);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("value" + i, canonicalizer.canonicalize("value" + i));
+        }
+        final String value = canonicalizer.canonicalize(new String("value999"));
+        assertEquals("value999", value);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final StringCanonicalizer canonicalizer = new StringCanonicalizer(0);
+        final String knows = new String("KNOWS");
+        assertSame(knows, canonicalizer.canonicalize(knows));
+        assertNotSame(canonicalizer.canonicalize("KNOWS".toCharArray(), 0, 5), canonicalizer.canonicalize("KNOWS".toCharArray(), 0, 5));
+        assertEquals("KNOW", canonicalizer.canonicalize("xKNOWS", 1, 5));
+        assertEquals("is KNOWS", canonicalizer.canonicalize("is KNOWS", 0, 8));
+    }
+
+    @Test
+    public void testDisabledKeepsEntityUriPrefixes() throws Exception {
+        final StringCanonicalizer canonicalizer = new StringCanonicalizer(0);
+        // the prefix a RestEntity keeps for an uri of another server, the uri is the prefix plus the id
+        final String uri = OTHER + "/node/66";
+        final String prefix = canonicalizer.canonicalize(uri, 0, uri.lastIndexOf('/') + 1);
+        assertEquals(OTHER + "/node/", prefix);
+        assertEquals(OTHER + "/node/6", prefix + 6);
+    }
+
+    private static String relationship(int id) {
+        final String self = URI + "/relationship/" + id;
+        return "{\"start\":\"" + OTHER + "/node/" + id + "\",\"data\":{},\"self\":\"" + self + "\","
+                + "\"type\":\"" + TYPES[id % TYPES.length] + "\",\"end\":\"" + OTHER + "/node/" + (id + 1) + "\"}";
+    }
+
+    @Test
+    public void testDecodedRelationshipsShareTypeAndUriPrefix() throws Exception {
+        final RestAPI restApi = new RestAPIFacade(URI).getDirect();
+        final RestEntityDecoder decoder = new RestEntityDecoder(restApi);
+        final RestRelationship first = (RestRelationship) decoder.decode(relationship(0));
+        final RestRelationship second = (RestRelationship) decoder.decode(relationship(5));
+        assertSame(first.getType().name(), second.getType().name());
+        assertEquals(OTHER + "/node/6", ((RestNode) second.getEndNode()).getUri());
+    }
+
+    @Test
+    public void testTypesAndUriPrefixesAreShared() throws Exception {
+        final StringCanonicalizer canonicalizer = new StringCanonicalizer(4096);
+        final String prefix = OTHER + "/node/";
+        final String type = TYPES[0];
+        final String firstType = canonicalizer.canonicalize(type.toCharArray(), 0, type.length());
+        final String firstPrefix = canonicalizer.canonicalize(prefix + 0, 0, prefix.length());
+        for (int i = 1; i < 1000; i++) {
+            assertSame(firstType, canonicalizer.canonicalize(type.toCharArray(), 0, type.length()));
+            assertSame(firstPrefix, canonicalizer.canonicalize(prefix + i, 0, prefix.length()));
+        }
+        assertEquals(prefix, firstPrefix);
+    }
+}